@@ -1,8 +1,10 @@
 package com.bff;
 
+import com.bff.config.CborResponseConverter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
@@ -14,6 +16,10 @@ public class Application {
 
 	@Bean
 	public RestTemplate restTemplate() {
-		return new RestTemplate();
+		// HttpClient 5 envía Accept-Encoding: gzip y descomprime las respuestas de las Functions
+		RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+		// Pedir CBOR primero: las listas de usuarios y roles se decodifican más rápido que en JSON
+		restTemplate.getMessageConverters().add(0, new CborResponseConverter());
+		return restTemplate;
 	}
 }
\ No newline at end of file
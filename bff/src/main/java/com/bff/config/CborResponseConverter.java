@@ -0,0 +1,27 @@
+package com.bff.config;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Convertidor CBOR que sólo se usa para leer respuestas.
+ *
+ * Al registrarlo primero en el RestTemplate, las peticiones a las Azure
+ * Functions envían "Accept: application/cbor" antes que JSON. Los cuerpos de
+ * las peticiones siguen saliendo en JSON porque las Functions los leen como
+ * texto.
+ */
+public class CborResponseConverter extends MappingJackson2CborHttpMessageConverter {
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+}
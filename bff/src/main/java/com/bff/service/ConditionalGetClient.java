@@ -0,0 +1,160 @@
+package com.bff.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Realiza GETs condicionales contra las Azure Functions.
+ *
+ * Guarda el último cuerpo recibido junto con su ETag y lo revalida enviando
+ * If-None-Match; si las Functions responden 304 se reutiliza el cuerpo guardado
+ * sin volver a descargarlo.
+ *
+ * El cuerpo se guarda en bytes, tal como llegó (JSON o CBOR), y se deserializa
+ * en cada llamada con los convertidores del RestTemplate: cada llamador recibe
+ * sus propias instancias y modificarlas no altera la caché.
+ */
+@Component
+public class ConditionalGetClient {
+
+    private final RestTemplate restTemplate;
+    private final Map<String, CachedBody> entries;
+
+    @Autowired
+    public ConditionalGetClient(RestTemplate restTemplate,
+            @Value("${azure.functions.etagCache.maxEntries:1000}") int maxEntries) {
+        this.restTemplate = restTemplate;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedBody> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    public <T> T get(String url, Class<T> type) {
+        return get(url, ParameterizedTypeReference.forType(type));
+    }
+
+    public <T> T get(String url, ParameterizedTypeReference<T> type) {
+        CachedBody cached = entries.get(url);
+
+        HttpHeaders headers = new HttpHeaders();
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.etag);
+        }
+
+        ResponseEntity<byte[]> response;
+        try {
+            // Accept se arma como en exchange, a partir del tipo que se va a leer
+            response = restTemplate.execute(url, HttpMethod.GET,
+                    restTemplate.httpEntityCallback(new HttpEntity<>(headers), type.getType()),
+                    raw -> new ResponseEntity<>(StreamUtils.copyToByteArray(raw.getBody()),
+                            raw.getHeaders(), raw.getStatusCode()));
+        } catch (RestClientException e) {
+            entries.remove(url);
+            throw e;
+        }
+
+        if (cached != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return read(cached, type);
+        }
+
+        byte[] body = response.getBody();
+        if (body == null || body.length == 0) {
+            entries.remove(url);
+            return null;
+        }
+        CachedBody received = new CachedBody(response.getHeaders().getETag(),
+                response.getHeaders().getContentType(), body);
+        if (received.etag != null) {
+            entries.put(url, received);
+        } else {
+            entries.remove(url);
+        }
+        return read(received, type);
+    }
+
+    /**
+     * Deserializa el cuerpo con el convertidor que corresponde a su Content-Type
+     */
+    private <T> T read(CachedBody body, ParameterizedTypeReference<T> type) {
+        try {
+            return new HttpMessageConverterExtractor<T>(type.getType(), restTemplate.getMessageConverters())
+                    .extractData(new CachedResponse(body));
+        } catch (IOException e) {
+            throw new RestClientException("No se pudo leer el cuerpo recibido", e);
+        }
+    }
+
+    private static final class CachedBody {
+        private final String etag;
+        private final MediaType contentType;
+        private final byte[] bytes;
+
+        private CachedBody(String etag, MediaType contentType, byte[] bytes) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Respuesta 200 armada con un cuerpo guardado, para leerla como las recibidas
+     */
+    private static final class CachedResponse implements ClientHttpResponse {
+        private final CachedBody body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        private CachedResponse(CachedBody body) {
+            this.body = body;
+            headers.setContentType(body.contentType);
+            headers.setContentLength(body.bytes.length);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return HttpStatus.OK;
+        }
+
+        @Override
+        public String getStatusText() {
+            return HttpStatus.OK.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body.bytes);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -16,26 +16,26 @@ import java.util.List;
 public class RoleService {
 
     private final RestTemplate restTemplate;
+    private final ConditionalGetClient conditionalGetClient;
     private final String functionsBaseUrl;
 
     @Autowired
-    public RoleService(RestTemplate restTemplate, @Value("${azure.functions.baseUrl}") String functionsBaseUrl) {
+    public RoleService(RestTemplate restTemplate, ConditionalGetClient conditionalGetClient,
+            @Value("${azure.functions.baseUrl}") String functionsBaseUrl) {
         this.restTemplate = restTemplate;
+        this.conditionalGetClient = conditionalGetClient;
         this.functionsBaseUrl = functionsBaseUrl;
     }
 
     public List<Role> getAllRoles() {
-        ResponseEntity<List<Role>> response = restTemplate.exchange(
+        return conditionalGetClient.get(
                 functionsBaseUrl + "/roles",
-                HttpMethod.GET,
-                null,
                 new ParameterizedTypeReference<List<Role>>() {
                 });
-        return response.getBody();
     }
 
     public Role getRoleById(Long id) {
-        return restTemplate.getForObject(functionsBaseUrl + "/roles/" + id, Role.class);
+        return conditionalGetClient.get(functionsBaseUrl + "/roles/" + id, Role.class);
     }
 
     public Role createRole(Role role) {
@@ -57,13 +57,10 @@ public class RoleService {
     }
 
     public List<Role> getUserRoles(Long userId) {
-        ResponseEntity<List<Role>> response = restTemplate.exchange(
+        return conditionalGetClient.get(
                 functionsBaseUrl + "/users/" + userId + "/roles",
-                HttpMethod.GET,
-                null,
                 new ParameterizedTypeReference<List<Role>>() {
                 });
-        return response.getBody();
     }
 
     public void assignRoleToUser(Long userId, Long roleId) {
@@ -16,26 +16,26 @@ import java.util.List;
 public class UserService {
 
     private final RestTemplate restTemplate;
+    private final ConditionalGetClient conditionalGetClient;
     private final String functionsBaseUrl;
 
     @Autowired
-    public UserService(RestTemplate restTemplate, @Value("${azure.functions.baseUrl}") String functionsBaseUrl) {
+    public UserService(RestTemplate restTemplate, ConditionalGetClient conditionalGetClient,
+            @Value("${azure.functions.baseUrl}") String functionsBaseUrl) {
         this.restTemplate = restTemplate;
+        this.conditionalGetClient = conditionalGetClient;
         this.functionsBaseUrl = functionsBaseUrl;
     }
 
     public List<User> getAllUsers() {
-        ResponseEntity<List<User>> response = restTemplate.exchange(
+        return conditionalGetClient.get(
                 functionsBaseUrl + "/users",
-                HttpMethod.GET,
-                null,
                 new ParameterizedTypeReference<List<User>>() {
                 });
-        return response.getBody();
     }
 
     public User getUserById(Long id) {
-        return restTemplate.getForObject(functionsBaseUrl + "/users/" + id, User.class);
+        return conditionalGetClient.get(functionsBaseUrl + "/users/" + id, User.class);
     }
 
     public User createUser(User user) {
@@ -0,0 +1,154 @@
+package com.function;
+
+import com.function.events.EventDeduplicator;
+import com.function.events.EventGridEventData;
+import com.function.events.EventLag;
+import com.function.events.EventQuarantine;
+import com.function.events.EventTypes;
+import com.function.events.PartitionedPipeline;
+import com.function.events.UserEventBatchProcessor;
+import com.function.http.HttpResponses;
+import com.function.json.Json;
+import com.function.repository.RoleRepository;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Consumidor de eventos de usuarios y roles en modo lote.
+ *
+ * El trigger de Event Grid de Java entrega un evento por invocación, así que
+ * este consumidor se suscribe como webhook: Event Grid envía arreglos de hasta
+ * maxEventsPerBatch eventos (se configura en la suscripción) y los procesa
+ * {@link UserEventBatchProcessor} en los carriles del {@link PartitionedPipeline},
+ * después de descartar las reentregas con el {@link EventDeduplicator}. Si la
+ * respuesta no es 2xx Event Grid reenvía el lote completo según la política de
+ * reintentos de la suscripción.
+ *
+ * Los eventos cuya escritura falla no se reenvían (la respuesta es 2xx), así
+ * que quedan retenidos en la {@link EventQuarantine} para reproducirlos.
+ */
+public class EventGridBatchConsumerFunction {
+    private static final Logger logger = Logger.getLogger(EventGridBatchConsumerFunction.class.getName());
+
+    private final Gson gson = Json.compact();
+    private final UserEventBatchProcessor processor;
+    private final EventDeduplicator deduplicator = EventDeduplicator.shared();
+    private final EventQuarantine quarantine = EventQuarantine.shared();
+
+    public EventGridBatchConsumerFunction() {
+        this.processor = new UserEventBatchProcessor(new RoleRepository(), PartitionedPipeline.shared());
+    }
+
+    @FunctionName("processUserEventsBatch")
+    public HttpResponseMessage run(
+            @HttpTrigger(name = "req", methods = {HttpMethod.POST},
+                      authLevel = AuthorizationLevel.FUNCTION,
+                      route = "events/users") HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        String body = request.getBody().orElse("");
+        List<EventGridEventData> events;
+        try {
+            EventGridEventData[] parsed = gson.fromJson(body, EventGridEventData[].class);
+            events = parsed != null ? Arrays.asList(parsed) : List.of();
+        } catch (JsonParseException e) {
+            logger.severe("Lote de eventos inválido: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .body("Lote de eventos inválido: " + e.getMessage())
+                    .build();
+        }
+
+        // Al crear la suscripción Event Grid envía un evento de validación que hay que responder
+        if (events.size() == 1 && EventTypes.SUBSCRIPTION_VALIDATION.equals(events.get(0).eventType)) {
+            return validate(request, events.get(0));
+        }
+
+        logger.info("Recibido lote de " + events.size() + " eventos");
+        try {
+            // Descartar reentregas antes de tocar los repositorios
+            List<EventGridEventData> fresh = deduplicator.filterNew(events);
+            UserEventBatchProcessor.Result result = processor.process(fresh);
+            markProcessed(fresh, result);
+            quarantineFailed(fresh, result);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("duplicates", events.size() - fresh.size());
+            response.put("processed", result.getProcessed());
+            response.put("skipped", result.getSkipped());
+            response.put("failed", result.getFailed());
+            return HttpResponses.json(request, HttpStatus.OK, response);
+        } catch (SQLException | IllegalStateException e) {
+            logger.severe("Error al procesar lote de eventos: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al procesar lote de eventos: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Registra como procesados los eventos del lote salvo los que fallaron, que
+     * podrán procesarse en una reentrega, y las demoras de los procesados
+     */
+    private void markProcessed(List<EventGridEventData> events, UserEventBatchProcessor.Result result) {
+        Set<String> failed = new HashSet<>(result.getFailed());
+        Set<String> skipped = new HashSet<>(result.getSkipped());
+        List<EventGridEventData> done = new ArrayList<>(events.size());
+        List<EventGridEventData> processed = new ArrayList<>(events.size());
+        for (EventGridEventData event : events) {
+            if (event != null && !failed.contains(event.id)) {
+                done.add(event);
+                if (!skipped.contains(event.id)) {
+                    processed.add(event);
+                }
+            }
+        }
+        EventLag.record(processed);
+        try {
+            deduplicator.markProcessed(done);
+        } catch (SQLException | IllegalStateException e) {
+            logger.warning("No se pudieron registrar los eventos del lote como procesados: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retiene en la cuarentena los eventos del lote cuya escritura falló
+     */
+    private void quarantineFailed(List<EventGridEventData> events, UserEventBatchProcessor.Result result) {
+        if (result.getFailed().isEmpty()) {
+            return;
+        }
+        Set<String> failed = new HashSet<>(result.getFailed());
+        for (EventGridEventData event : events) {
+            if (event != null && failed.contains(event.id)) {
+                quarantine.recordFailure(gson.toJson(event), event, "falló la asignación del rol por defecto", true);
+            }
+        }
+    }
+
+    private HttpResponseMessage validate(HttpRequestMessage<Optional<String>> request, EventGridEventData event) {
+        if (!(event.data instanceof JsonObject data) || !data.has("validationCode")) {
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .body("Evento de validación sin validationCode")
+                    .build();
+        }
+
+        JsonObject response = new JsonObject();
+        response.add("validationResponse", data.get("validationCode"));
+        logger.info("Suscripción de Event Grid validada");
+        return HttpResponses.json(request, HttpStatus.OK, response);
+    }
+}
@@ -1,29 +1,44 @@
 package com.function;
 
-import com.function.model.User;
+import com.function.cache.ResponseCaches;
+import com.function.events.EntityChange;
+import com.function.events.EventDeduplicator;
+import com.function.events.EventGridEventData;
+import com.function.events.EventLag;
+import com.function.events.EventQuarantine;
+import com.function.events.EventTypes;
+import com.function.events.PartitionedPipeline;
+import com.function.json.Json;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
 import com.function.model.Role;
-import com.function.repository.UserRepository;
 import com.function.repository.RoleRepository;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.*;
 
+import java.sql.SQLException;
 import java.util.logging.Logger;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 public class EventGridConsumerFunction {
     private static final Logger logger = Logger.getLogger(EventGridConsumerFunction.class.getName());
-    private final Gson gson = new Gson();
-    private final UserRepository userRepository;
+    private final Gson gson = Json.compact();
     private final RoleRepository roleRepository;
-    
-    // Constante para el rol por defecto
-    private static final String DEFAULT_ROLE = "USER";
+    private final EventDeduplicator deduplicator = EventDeduplicator.shared();
+    private final EventQuarantine quarantine = EventQuarantine.shared();
+    private final PartitionedPipeline pipeline = PartitionedPipeline.shared();
+
+    private static final Histogram EVENT_MILLIS = Metrics.histogram("consumer.event.ms");
+    private static final Histogram DEFAULT_ROLE_MILLIS = Metrics.histogram("consumer.default_role.ms");
+
+    // ID del rol por defecto visto por última vez en la instancia
+    private static volatile long knownDefaultRoleId;
     
     public EventGridConsumerFunction() {
         // Inicializar repositorios
-        this.userRepository = new UserRepository();
         this.roleRepository = new RoleRepository();
     }    @FunctionName("processUserEvents")
     public void run(
@@ -32,169 +47,189 @@ public class EventGridConsumerFunction {
 
         logger.info("Función de trigger de Event Grid procesó un evento: " + eventGridEvent);
 
+        EventGridEventData eventData = null;
         try {
-            // El EventGridEvent se recibe como una cadena JSON
-            EventGridEventData eventData = gson.fromJson(eventGridEvent, EventGridEventData.class);
+            // El EventGridEvent se recibe como una cadena JSON; data se decodifica
+            // al tipo que corresponde a eventType en la misma lectura
+            eventData = gson.fromJson(eventGridEvent, EventGridEventData.class);
 
             // Registrar los detalles del evento
             logger.info("ID de Evento: " + eventData.id);
             logger.info("Tipo de Evento: " + eventData.eventType);
             logger.info("Asunto del Evento: " + eventData.subject);
             logger.info("Tiempo del Evento: " + eventData.eventTime);
-            logger.info("Datos del Evento: " + (eventData.data != null ? eventData.data.toString() : "null"));
-
-            // Procesar el evento basado en su tipo
-            if ("user/created".equals(eventData.eventType)) {
-                // Los datos están en formato JSON, convertirlos a objeto User
-                if (eventData.data == null) {
-                    logger.severe("Datos del evento user/created son nulos");
-                    return;
-                }
-                
-                User user = gson.fromJson(eventData.data.toString(), User.class);
-                
-                if (user == null || user.getId() == null || user.getUsername() == null) {
-                    logger.severe("Datos de usuario inválidos en el evento: " + eventData.data.toString());
-                    return;
-                }
 
-                logger.info("Procesando evento de creación de usuario para: " + user.getUsername() + " con ID: " + user.getId());
+            long start = System.nanoTime();
+            dispatch(eventData);
+            EVENT_MILLIS.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            EventLag.record(eventData);
+            quarantine.resolved(eventData);
+        } catch (JsonParseException | IllegalArgumentException e) {
+            // Reintentar un evento con datos inválidos no cambia el resultado: va directo a la cuarentena
+            logger.severe("Evento inválido: " + e.getMessage());
+            if (!quarantine.recordFailure(eventGridEvent, eventData, e.getMessage(), true)) {
+                throw new RuntimeException("Error al procesar evento", e);
+            }
+        } catch (Exception e) {
+            logger.severe("Error al procesar evento: " + e.getMessage());
+            e.printStackTrace();
+            // Event Grid reintenta mientras el evento no llegue al máximo de fallos de la cuarentena
+            String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            if (!quarantine.recordFailure(eventGridEvent, eventData, reason, false)) {
+                throw new RuntimeException("Error al procesar evento", e);
+            }
+        }
+    }
 
-                // Asignar rol por defecto al usuario creado
-                if (!OracleDBConnection.testConnection()) {
-                    logger.severe("No se pudo establecer conexión con la base de datos");
-                    return;
+    /**
+     * Procesa un evento ya decodificado en el carril de su usuario: los eventos
+     * de un mismo usuario se procesan en orden, aunque lleguen en invocaciones
+     * concurrentes. Lo usa también la reproducción de los eventos en cuarentena.
+     *
+     * @throws IllegalArgumentException si los datos del evento son inválidos
+     */
+    public void dispatch(EventGridEventData eventData) throws SQLException {
+        pipeline.dispatch(List.of(eventData), events -> {
+            handle(events.get(0));
+            return null;
+        });
+    }
+
+    /**
+     * Procesa un evento ya decodificado en el hilo del llamador
+     *
+     * @throws IllegalArgumentException si los datos del evento son inválidos
+     */
+    private void handle(EventGridEventData eventData) throws SQLException {
+        // Descartar sin tocar la base de datos los eventos desconocidos o con datos inválidos
+        if (eventData.dataError != null) {
+            throw new IllegalArgumentException("Datos inválidos en el evento " + eventData.id + ": " + eventData.dataError);
+        }
+        if (!isHandled(eventData.eventType)) {
+            logger.info("Recibido evento de tipo: " + eventData.eventType + " (no procesado)");
+            return;
+        }
+
+        // Event Grid entrega al menos una vez: descartar reentregas antes de tocar los repositorios
+        if (deduplicator.isDuplicate(eventData)) {
+            logger.info("Evento " + eventData.id + " ya procesado, se ignora la reentrega");
+            return;
+        }
+
+        // Procesar el evento basado en su tipo
+        switch (eventData.eventType) {
+            case EventTypes.USER_CREATED: {
+                // El evento sólo trae el ID: asignar el rol no necesita el usuario completo
+                if (!(eventData.data instanceof EntityChange created) || !created.hasId()) {
+                    throw new IllegalArgumentException("Datos de usuario inválidos en el evento " + eventData.id);
                 }
-                
-                assignDefaultRoleToUser(user);
+
+                logger.info("Procesando evento de creación de usuario con ID: " + created.getId());
+
+                // Asignar rol por defecto al usuario creado; un fallo de conexión se
+                // informa como error de la llamada, sin una prueba previa
+                assignDefaultRoleToUser(created.getId());
 
                 logger.info("Notificación de usuario creado procesada con éxito");
-            } else if ("user/updated".equals(eventData.eventType)) {
-                // Los datos están en formato JSON, convertirlos a objeto User
-                User user = gson.fromJson(eventData.data.toString(), User.class);
+                break;
+            }
+            case EventTypes.USER_UPDATED: {
+                if (!(eventData.data instanceof EntityChange updated) || !updated.hasId()) {
+                    throw new IllegalArgumentException("Datos de usuario inválidos en el evento " + eventData.id);
+                }
 
-                logger.info("Procesando evento de actualización de usuario para: " + user.getUsername());
+                logger.info("Procesando evento de actualización del usuario " + updated.getId()
+                        + " (cambios " + updated.getChangeMask() + ")");
 
-                // Lógica para usuario actualizado
+                // Lógica para usuario actualizado; si necesita el usuario completo, leerlo
+                // (UserRepository.findById) sólo cuando la máscara incluya los campos que usa
 
                 logger.info("Evento de usuario actualizado procesado con éxito");
-            } else if ("role/deleted".equals(eventData.eventType)) {
-                // Los datos están en formato JSON, convertirlos a objeto Role
-                Role deletedRole = gson.fromJson(eventData.data.toString(), Role.class);
-                
-                logger.info("Procesando evento de eliminación de rol: " + deletedRole.getName());
-                
+                break;
+            }
+            case EventTypes.ROLE_DELETED: {
+                if (!(eventData.data instanceof EntityChange deleted) || !deleted.hasId()) {
+                    throw new IllegalArgumentException("Datos de rol inválidos en el evento " + eventData.id);
+                }
+
+                logger.info("Procesando evento de eliminación del rol: " + deleted.getId());
+
                 // Remover el rol eliminado de todos los usuarios afectados
-                removeRoleFromAffectedUsers(deletedRole);
-                
+                removeRoleFromAffectedUsers(deleted.getId());
+
                 logger.info("Rol eliminado y usuarios actualizados con éxito");
-            } else {
-                logger.info("Recibido evento de tipo: " + eventData.eventType + " (no procesado)");
+                break;
             }
-        } catch (Exception e) {
-            logger.severe("Error al procesar evento: " + e.getMessage());
-            e.printStackTrace();
-            // En producción, considera utilizar un patrón de reintentos o cola de mensajes
-            // muertos en lugar de solo relanzar la excepción
-            throw new RuntimeException("Error al procesar evento", e);
+            default:
+                break;
         }
+
+        markProcessed(eventData);
+    }
+
+    private static boolean isHandled(String eventType) {
+        return EventTypes.USER_CREATED.equals(eventType)
+                || EventTypes.USER_UPDATED.equals(eventType)
+                || EventTypes.ROLE_DELETED.equals(eventType);
     }
 
     /**
-     * Asigna el rol por defecto a un usuario recién creado
+     * Registra el evento como procesado; si falla, una reentrega se procesaría de nuevo
      */
-    private void assignDefaultRoleToUser(User user) {
+    private void markProcessed(EventGridEventData eventData) {
         try {
-            logger.info("Asignando rol por defecto '" + DEFAULT_ROLE + "' al usuario: " + user.getUsername());
-            
-            // Obtener el rol por defecto desde la base de datos
-            Optional<Role> defaultRoleOpt = roleRepository.findByName(DEFAULT_ROLE);
-            
-            if (defaultRoleOpt.isPresent()) {
-                Role defaultRole = defaultRoleOpt.get();
-                logger.info("Rol por defecto encontrado: " + defaultRole.getId() + " - " + defaultRole.getName());
-                
-                // Asignar el rol al usuario
-                roleRepository.assignRoleToUser(Long.parseLong(user.getId()), Long.parseLong(defaultRole.getId()));
-                
-                // Actualizar el objeto de usuario en memoria para reflejar el cambio
-                user.addRole(defaultRole);
-                
-                logger.info("Rol por defecto asignado correctamente al usuario: " + user.getUsername());
-            } else {
-                logger.warning("No se encontró el rol por defecto '" + DEFAULT_ROLE + "' en la base de datos");
-                
-                // Crear rol por defecto si no existe
-                Role newDefaultRole = new Role();
-                newDefaultRole.setName(DEFAULT_ROLE);
-                newDefaultRole.setDescription("Rol por defecto para nuevos usuarios");
-                
-                Role savedRole = roleRepository.save(newDefaultRole);
-                logger.info("Rol por defecto creado con ID: " + savedRole.getId());
-                
-                // Asignar el rol al usuario
-                roleRepository.assignRoleToUser(Long.parseLong(user.getId()), Long.parseLong(savedRole.getId()));
-                
-                // Actualizar el objeto de usuario en memoria
-                user.addRole(savedRole);
-                
-                logger.info("Nuevo rol por defecto creado y asignado al usuario: " + user.getUsername());
-            }
-            
+            deduplicator.markProcessed(List.of(eventData));
+        } catch (SQLException | IllegalStateException e) {
+            logger.warning("No se pudo registrar el evento " + eventData.id + " como procesado: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Asigna el rol por defecto a un usuario recién creado, con una sola llamada
+     * a la base de datos que crea el rol si hace falta
+     */
+    private void assignDefaultRoleToUser(long userId) {
+        try {
+            logger.info("Asignando rol por defecto '" + RoleRepository.DEFAULT_ROLE + "' al usuario: " + userId);
+
+            long start = System.nanoTime();
+            long roleId = roleRepository.assignDefaultRole(userId, RoleRepository.DEFAULT_ROLE,
+                    RoleRepository.DEFAULT_ROLE_DESCRIPTION);
+            DEFAULT_ROLE_MILLIS.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            defaultRoleSeen(roleId);
+
+            logger.info("Rol por defecto " + roleId + " asignado correctamente al usuario: " + userId);
         } catch (Exception e) {
             logger.severe("Error al asignar rol por defecto: " + e.getMessage());
             throw new RuntimeException("Error al asignar rol por defecto", e);
         }
     }
-    
+
+    /**
+     * Si el rol por defecto es otro que el visto por última vez (se acaba de
+     * crear), la lista de roles cacheada quedó vieja
+     */
+    private static void defaultRoleSeen(long roleId) {
+        if (knownDefaultRoleId != roleId) {
+            ResponseCaches.ROLES.invalidate(String.valueOf(roleId));
+            knownDefaultRoleId = roleId;
+        }
+    }
+
     /**
-     * Remueve el rol eliminado de todos los usuarios afectados
+     * Remueve el rol eliminado de todos los usuarios afectados y asigna el rol
+     * por defecto a los que se quedan sin roles, en una sola transacción
      */
-    private void removeRoleFromAffectedUsers(Role deletedRole) {
+    private void removeRoleFromAffectedUsers(long deletedRoleId) {
         try {
-            logger.info("Buscando usuarios con el rol eliminado: " + deletedRole.getName());
-            
-            // Consultar todos los usuarios que tienen el rol eliminado
-            List<User> affectedUsers = userRepository.findUsersByRoleId(Long.parseLong(deletedRole.getId()));
-            logger.info("Se encontraron " + affectedUsers.size() + " usuarios afectados por la eliminación del rol: " + deletedRole.getName());
-            
-            // Actualizar cada usuario eliminando la referencia al rol
-            for (User user : affectedUsers) {
-                // Eliminar la relación en la base de datos
-                roleRepository.removeRoleFromUser(Long.parseLong(user.getId()), Long.parseLong(deletedRole.getId()));
-                
-                // Actualizar el objeto en memoria
-                user.removeRole(deletedRole);
-                
-                logger.info("Rol eliminado del usuario: " + user.getUsername() + " (ID: " + user.getId() + ")");
-                
-                // Si el usuario se queda sin roles, podría asignarle otro rol por defecto
-                if (user.getRoles() == null || user.getRoles().isEmpty()) {
-                    logger.info("El usuario " + user.getUsername() + " se ha quedado sin roles. Asignando rol por defecto alternativo.");
-                    
-                    // Podríamos asignar un rol alternativo aquí, como GUEST
-                    // O simplemente llamar al método que asigna el rol por defecto
-                    assignDefaultRoleToUser(user);
-                }
-            }
-            
-            logger.info("Todos los usuarios afectados han sido actualizados correctamente");
-            
+            Role defaultRole = roleRepository.findOrCreateByName(RoleRepository.DEFAULT_ROLE,
+                    RoleRepository.DEFAULT_ROLE_DESCRIPTION);
+            defaultRoleSeen(defaultRole.getIdValue());
+            int affected = roleRepository.removeRoleFromAllUsers(deletedRoleId, defaultRole.getIdValue());
+            logger.info("Se quitó el rol eliminado " + deletedRoleId + " a " + affected + " usuarios");
         } catch (Exception e) {
             logger.severe("Error al actualizar usuarios afectados: " + e.getMessage());
             throw new RuntimeException("Error al actualizar usuarios después de eliminar rol", e);
         }
     }
-
-    // Clase auxiliar para deserializar eventos de Event Grid
-    private static class EventGridEventData {
-        public String id;
-        public String eventType;
-        public String subject;
-        public String eventTime;
-        public Object data;
-        public String dataVersion;
-        public String metadataVersion;
-        public String topic;
-    }
-}
\ No newline at end of file
+}
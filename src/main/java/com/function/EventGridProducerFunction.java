@@ -1,10 +1,9 @@
 package com.function;
 
-import com.azure.core.credential.AzureKeyCredential;
-import com.azure.core.util.BinaryData;
-import com.azure.messaging.eventgrid.EventGridEvent;
-import com.azure.messaging.eventgrid.EventGridPublisherClient;
-import com.azure.messaging.eventgrid.EventGridPublisherClientBuilder;
+import com.function.events.EntityChange;
+import com.function.events.EventPublisher;
+import com.function.events.EventTypes;
+import com.function.json.Json;
 import com.function.model.User;
 import com.google.gson.Gson;
 import com.microsoft.azure.functions.*;
@@ -15,7 +14,7 @@ import java.util.logging.Logger;
 
 public class EventGridProducerFunction {
     private static final Logger logger = Logger.getLogger(EventGridProducerFunction.class.getName());
-    private final Gson gson = new Gson();
+    private final Gson gson = Json.compact();
 
 
     private static final String HARDCODED_TOPIC_ENDPOINT = "https://topicusuariosroles.eastus2-1.eventgrid.azure.net/api/events";
@@ -58,28 +57,26 @@ public class EventGridProducerFunction {
         try {
             // Crear usuario a partir del cuerpo de la solicitud
             User user = gson.fromJson(requestBody, User.class);
+            if (user == null || !user.hasId()) {
+                return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                        .body("El usuario debe tener un id numérico")
+                        .build();
+            }
 
             // AQUÍ IRÍA LA LÓGICA PARA CREAR EL USUARIO EN LA BASE DE DATOS
             // ... código para guardar el usuario ...
 
             logger.info("Usuario creado con éxito, publicando evento a Event Grid");
 
-            // Crear cliente publicador de Event Grid
-            EventGridPublisherClient<EventGridEvent> client = new EventGridPublisherClientBuilder()
-                    .endpoint(topicEndpoint)
-                    .credential(new AzureKeyCredential(topicKey))
-                    .buildEventGridEventPublisherClient();
-            
-            // Crear el evento de usuario creado
-            EventGridEvent event = new EventGridEvent(
-                    "user/created", // Tipo de evento
-                    "UserService", // Asunto
-                    BinaryData.fromObject(user), // Datos convertidos a formato BinaryData
-                    "1.0" // Versión de datos
-            );
+            // Publicador compartido por todas las invocaciones del proceso
+            EventPublisher publisher = EventPublishers.forTopic(topicEndpoint, topicKey);
 
-            // Publicar el evento
-            client.sendEvent(event);
+            // Publicar el evento de usuario creado; como los de la outbox, sólo lleva el ID
+            if (!publisher.publishEvent(EventTypes.USER_CREATED, "UserService", EntityChange.of(user.getIdValue()))) {
+                return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body("Error: no se pudo publicar el evento en Event Grid")
+                        .build();
+            }
 
             logger.info("Evento de usuario creado publicado con éxito en Event Grid");
 
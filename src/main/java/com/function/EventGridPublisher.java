@@ -1,26 +1,81 @@
 package com.function;
 
+import com.function.events.EventBatcher;
+import com.function.events.EventPublisher;
+import com.function.events.EventSpool;
+import com.function.events.PublishResult;
+import com.function.events.PublishStamp;
+import com.function.events.RetryPolicy;
+import com.function.events.SpoolDrainer;
+import com.function.json.Json;
+import com.function.metrics.Counter;
+import com.function.metrics.Metrics;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import java.io.IOException;
+import java.net.InetAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
- * Utilidad para publicar eventos a Azure Event Grid
+ * Publicador de eventos sobre HTTP directo hacia Azure Event Grid
+ * (EVENT_PUBLISHER=http, el transporte por defecto de {@link EventPublishers}).
+ *
+ * Todas las instancias comparten un único HttpClient (HTTP/2 con conexiones
+ * persistentes), de modo que sólo el primer evento de la instancia paga DNS,
+ * TCP y TLS. Para cada topic se reutiliza además el mismo publicador a través
+ * de {@link #forTopic(String, String)}.
+ *
+ * Con EVENT_GRID_BATCHING=true, {@link #publishEventAsync} agrupa los eventos en
+ * lotes (ver {@link EventBatcher}); {@link #publishEvent} siempre envía el
+ * evento solo.
+ *
+ * Los envíos que fallan por errores de red, 408, 429 o 5xx se reintentan según
+ * la {@link RetryPolicy}. Si se agotan los reintentos y el publicador tiene
+ * spool (los de {@link #forTopic}), el lote se guarda en un {@link EventSpool}
+ * local y un {@link SpoolDrainer} lo reenvía cuando el topic se recupera; el
+ * orden entre eventos reenviados y eventos nuevos no está garantizado. Los
+ * lotes que el topic rechaza por su contenido ({@link PublishResult#REJECTED})
+ * no se guardan: reenviarlos volvería a fallar.
+ *
+ * Cada evento lleva en data la marca de publicación ({@link PublishStamp});
+ * en los lotes ya armados la agrega quien los arma.
  */
-public class EventGridPublisher {
+public class EventGridPublisher implements EventPublisher {
     private static final Logger logger = Logger.getLogger(EventGridPublisher.class.getName());
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+    private static final ConcurrentHashMap<String, EventGridPublisher> PUBLISHERS = new ConcurrentHashMap<>();
+
+    private static final Counter RETRIES = Metrics.counter("eventgrid.retry.count");
+    private static final Counter RETRIES_EXHAUSTED = Metrics.counter("eventgrid.retry.exhausted");
+
     private final String topicEndpoint;
     private final String topicKey;
-    private final Gson gson = new Gson();
-    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Gson gson = Json.compact();
+    private final HttpClient httpClient = HTTP_CLIENT;
+    private final EventBatcher batcher;
+    private final RetryPolicy retryPolicy;
+    private final EventSpool spool;
+    private final boolean validEndpoint;
 
     /**
      * Constructor con los datos de conexión al topic de Event Grid
@@ -29,76 +84,310 @@ public class EventGridPublisher {
      * @param topicKey      La clave de acceso al topic
      */
     public EventGridPublisher(String topicEndpoint, String topicKey) {
+        this(topicEndpoint, topicKey, null);
+    }
+
+    /**
+     * Constructor con envío por lotes
+     * 
+     * @param topicEndpoint El endpoint del topic de Event Grid
+     * @param topicKey      La clave de acceso al topic
+     * @param batching      Umbrales de los lotes, o null para enviar cada evento solo
+     */
+    public EventGridPublisher(String topicEndpoint, String topicKey, EventBatcher.Settings batching) {
+        this(topicEndpoint, topicKey, batching, RetryPolicy.fromEnvironment(), null);
+    }
+
+    /**
+     * Constructor completo
+     * 
+     * @param topicEndpoint El endpoint del topic de Event Grid
+     * @param topicKey      La clave de acceso al topic
+     * @param batching      Umbrales de los lotes, o null para enviar cada evento solo
+     * @param retryPolicy   Reintentos de cada envío
+     * @param spool         Spool para los lotes que agotan los reintentos, o null
+     *                      para descartarlos; quien lo pasa se encarga de drenarlo
+     */
+    public EventGridPublisher(String topicEndpoint, String topicKey, EventBatcher.Settings batching,
+            RetryPolicy retryPolicy, EventSpool spool) {
         this.topicEndpoint = topicEndpoint;
         this.topicKey = topicKey;
+        // Se valida una sola vez: con HTTP la validación resuelve el host
+        this.validEndpoint = isValidEndpoint(topicEndpoint);
+        this.retryPolicy = retryPolicy;
+        this.spool = spool;
+        this.batcher = batching != null
+                ? new EventBatcher((body, events) -> deliver(body, "lote de " + events + " eventos", events), batching)
+                : null;
+    }
+
+    /**
+     * Devuelve el publicador compartido para el topic, creándolo la primera vez
+     * 
+     * @param topicEndpoint El endpoint del topic de Event Grid
+     * @param topicKey      La clave de acceso al topic
+     */
+    public static EventGridPublisher forTopic(String topicEndpoint, String topicKey) {
+        return PUBLISHERS.computeIfAbsent(topicEndpoint + '\n' + topicKey, k -> {
+            EventSpool spool = EventSpool.forTopic(topicEndpoint);
+            EventGridPublisher publisher = new EventGridPublisher(topicEndpoint, topicKey,
+                    EventBatcher.Settings.fromEnvironment(), RetryPolicy.fromEnvironment(), spool);
+            if (spool != null) {
+                // El drenador hace un solo intento por lote y espera él mismo si falla
+                new SpoolDrainer(spool, (body, events) -> publisher.send(body, "lote del spool", RetryPolicy.none()),
+                        SpoolDrainer.rateFromEnvironment()).start();
+            }
+            return publisher;
+        });
     }
 
     /**
-     * Publica un evento en Event Grid
+     * Publica un evento en Event Grid y espera la respuesta.
+     *
+     * Si el publicador tiene spool se hace un solo intento: si falla por una
+     * causa transitoria el evento se guarda en el spool y el {@link SpoolDrainer}
+     * se encarga de los reintentos, así que el llamador no espera toda la
+     * {@link RetryPolicy}. Sin spool se reintenta según la política.
      * 
      * @param eventType  El tipo de evento (ej: user/created)
      * @param subject    El asunto del evento (ej: users/123)
      * @param data       El objeto de datos que se serializará a JSON
-     * @return           true si el evento se publicó con éxito, false en caso contrario
-     */    public boolean publishEvent(String eventType, String subject, Object data) {
+     * @return           true si el evento se publicó con éxito o quedó guardado
+     *                   en el spool para reenviarlo, false en caso contrario
+     */
+    @Override
+    public boolean publishEvent(String eventType, String subject, Object data) {
         logger.info("Intentando publicar evento: " + eventType + ", subject: " + subject);
 
         try {
-            // Crear el array de eventos (Event Grid acepta arrays de eventos)
-            JsonObject[] events = new JsonObject[1];
-            JsonObject event = new JsonObject();
-            
-            // Crear el evento con los campos requeridos por Event Grid
             String eventId = UUID.randomUUID().toString();
-            event.addProperty("id", eventId);
-            event.addProperty("eventType", eventType);
-            event.addProperty("subject", subject);
-            event.addProperty("eventTime", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-            event.addProperty("dataVersion", "1.0");
-            event.add("data", gson.toJsonTree(data));
-            events[0] = event;
-            
-            // Convertir el array de eventos a JSON
-            String jsonEvents = gson.toJson(events);
-            logger.info("Evento JSON: " + jsonEvents);
-            
-            // Verificar que el endpoint esté correctamente formateado
-            if (!topicEndpoint.startsWith("https://")) {
-                logger.severe("URL de Event Grid inválida: " + topicEndpoint);
+            byte[] body = buildBody(eventId, eventType, subject, data);
+            if (!validEndpoint) {
                 return false;
             }
-            
-            logger.info("Enviando petición HTTP POST a: " + topicEndpoint);
-            
-            // Crear la petición HTTP POST
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(topicEndpoint))
-                    .header("Content-Type", "application/json")
-                    .header("aeg-sas-key", topicKey)
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonEvents))
-                    .build();
-            
-            // Enviar la petición y obtener la respuesta
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            // Verificar si la petición fue exitosa (código 200)
-            boolean success = (response.statusCode() >= 200 && response.statusCode() < 300);
-            
-            if (success) {
-                logger.info("Evento ID " + eventId + " publicado con éxito. Código: " + response.statusCode());
-            } else {
-                logger.severe("Error al publicar evento. Código: " + response.statusCode() + " Respuesta: " + response.body());
+            String description = "evento " + eventId;
+            if (spool == null) {
+                return deliver(body, description, 1).join();
             }
-            
-            return success;
-        } catch (IOException | InterruptedException e) {
-            logger.severe("Error al publicar evento: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            PublishResult result = send(body, description, RetryPolicy.none()).join();
+            return result.isPublished() || (result == PublishResult.RETRYABLE && spool(body, description, 1));
         } catch (Exception e) {
             logger.severe("Error inesperado al publicar evento: " + e.getMessage());
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Publica un evento en Event Grid sin bloquear al llamador
+     * 
+     * @param eventType  El tipo de evento (ej: user/created)
+     * @param subject    El asunto del evento (ej: users/123)
+     * @param data       El objeto de datos que se serializará a JSON
+     * @return           future que se completa con true si el evento se publicó
+     *                   con éxito y con false en caso contrario; nunca falla
+     */
+    @Override
+    public CompletableFuture<Boolean> publishEventAsync(String eventType, String subject, Object data) {
+        logger.info("Publicando evento en segundo plano: " + eventType + ", subject: " + subject);
+
+        String eventId = UUID.randomUUID().toString();
+        if (!validEndpoint) {
+            return CompletableFuture.completedFuture(false);
+        }
+        try {
+            if (batcher != null) {
+                return batcher.submit(gson.toJson(buildEvent(eventId, eventType, subject, data))
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            return deliver(buildBody(eventId, eventType, subject, data), "evento " + eventId, 1);
+        } catch (Exception e) {
+            logger.severe("Error inesperado al preparar evento: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+    }
+
+    /**
+     * Publica un lote de eventos ya armado ({@code [evento,evento,...]}) y espera
+     * la respuesta. Se reintenta pero nunca se guarda en el spool: el llamador
+     * (la outbox) conserva los eventos hasta que se publiquen.
+     * 
+     * @param body   El arreglo JSON de eventos
+     * @param events Cantidad de eventos del lote, para el log
+     * @return       true si Event Grid aceptó el lote
+     */
+    @Override
+    public boolean publishBatch(byte[] body, int events) {
+        return publishBatchResult(body, events).isPublished();
+    }
+
+    /**
+     * Como {@link #publishBatch}, pero distingue los rechazos del contenido del
+     * lote (ver {@link PublishResult}) de las fallas transitorias
+     */
+    @Override
+    public PublishResult publishBatchResult(byte[] body, int events) {
+        if (!validEndpoint) {
+            return PublishResult.RETRYABLE;
+        }
+        try {
+            // Quien arma el lote agrega la marca de publicación; los reintentos la conservan
+            return send(body, "lote de " + events + " eventos", retryPolicy).join();
+        } catch (Exception e) {
+            logger.severe("Error al publicar lote de " + events + " eventos: " + e.getMessage());
+            return PublishResult.RETRYABLE;
+        }
+    }
+
+    /**
+     * Envía de inmediato los eventos pendientes del lote en curso, si hay
+     */
+    @Override
+    public CompletableFuture<Void> flush() {
+        return batcher != null ? batcher.flush() : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Arreglo JSON con un único evento
+     */
+    private byte[] buildBody(String eventId, String eventType, String subject, Object data) {
+        // Event Grid acepta arrays de eventos
+        JsonArray events = new JsonArray(1);
+        events.add(buildEvent(eventId, eventType, subject, data));
+        String jsonEvents = gson.toJson(events);
+        logger.fine("Evento JSON: " + jsonEvents);
+        return jsonEvents.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Crea el evento con los campos requeridos por Event Grid
+     */
+    private JsonObject buildEvent(String eventId, String eventType, String subject, Object data) {
+        JsonObject event = new JsonObject();
+        event.addProperty("id", eventId);
+        event.addProperty("eventType", eventType);
+        event.addProperty("subject", subject);
+        event.addProperty("eventTime", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        event.addProperty("dataVersion", "1.0");
+        JsonElement content = gson.toJsonTree(data);
+        PublishStamp.stamp(content);
+        event.add("data", content);
+        return event;
+    }
+
+    /**
+     * Envía con reintentos y, si se agotan por una falla transitoria, guarda el
+     * cuerpo en el spool
+     *
+     * @return future con true sólo si el topic aceptó el lote
+     */
+    private CompletableFuture<Boolean> deliver(byte[] body, String description, int events) {
+        return send(body, description, retryPolicy).thenApply(result -> {
+            if (result == PublishResult.RETRYABLE && spool != null) {
+                spool(body, description, events);
+            }
+            return result.isPublished();
+        });
+    }
+
+    /**
+     * Guarda el cuerpo en el spool para que el {@link SpoolDrainer} lo reenvíe
+     */
+    private boolean spool(byte[] body, String description, int events) {
+        if (spool == null || !spool.append(body, events)) {
+            return false;
+        }
+        logger.warning("Se guardó en el spool " + description + " para reenviarlo más tarde");
+        return true;
+    }
+
+    /**
+     * Envía el cuerpo al topic, reintentando según la política
+     */
+    private CompletableFuture<PublishResult> send(byte[] body, String description, RetryPolicy policy) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(topicEndpoint))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("aeg-sas-key", topicKey)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return attempt(request, description, policy, 1);
+    }
+
+    private CompletableFuture<PublishResult> attempt(HttpRequest request, String description, RetryPolicy policy,
+            int attempt) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error == null && isSuccess(response)) {
+                        handleResponse(description, response);
+                        return CompletableFuture.completedFuture(PublishResult.PUBLISHED);
+                    }
+
+                    boolean retry = error != null ? policy.shouldRetry(attempt)
+                            : policy.shouldRetry(attempt, response.statusCode());
+                    if (!retry) {
+                        if (error != null) {
+                            logger.severe("Error al publicar " + description + ": " + error.getMessage());
+                        } else {
+                            handleResponse(description, response);
+                        }
+                        if (attempt > 1) {
+                            RETRIES_EXHAUSTED.increment();
+                        }
+                        return CompletableFuture.completedFuture(error != null
+                                ? PublishResult.RETRYABLE
+                                : PublishResult.fromStatus(response.statusCode()));
+                    }
+
+                    String retryAfter = response != null
+                            ? response.headers().firstValue("Retry-After").orElse(null)
+                            : null;
+                    long delay = policy.delayMillis(attempt, retryAfter);
+                    RETRIES.increment();
+                    logger.warning("Falló el intento " + attempt + " de publicar " + description + " ("
+                            + (error != null ? error.getMessage() : "código " + response.statusCode())
+                            + "), se reintenta en " + delay + " ms");
+
+                    Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(ignored -> attempt(request, description, policy, attempt + 1));
+                })
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * El endpoint debe ser HTTPS; se admite HTTP sólo hacia la propia máquina
+     * (emuladores o stubs locales)
+     */
+    private static boolean isValidEndpoint(String topicEndpoint) {
+        if (topicEndpoint.startsWith("https://")) {
+            return true;
+        }
+        if (topicEndpoint.startsWith("http://")) {
+            try {
+                String host = URI.create(topicEndpoint).getHost();
+                if (host != null && InetAddress.getByName(host).isLoopbackAddress()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // Se informa abajo como URL inválida
+            }
+        }
+        logger.severe("URL de Event Grid inválida: " + topicEndpoint);
+        return false;
+    }
+
+    private static boolean isSuccess(HttpResponse<String> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+
+    private static void handleResponse(String description, HttpResponse<String> response) {
+        if (isSuccess(response)) {
+            logger.info("Se publicó con éxito " + description + ". Código: " + response.statusCode());
+        } else {
+            logger.severe("Error al publicar " + description + ". Código: " + response.statusCode()
+                    + " Respuesta: " + response.body());
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.function;
+
+import com.function.events.CoalescingEventPublisher;
+import com.function.events.EventPublisher;
+import com.function.events.InMemoryEventPublisher;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Crea y comparte los publicadores de eventos del proceso.
+ *
+ * El transporte se elige con EVENT_PUBLISHER:
+ * http   - {@link EventGridPublisher}, HTTP directo con lotes, reintentos y
+ *          spool (por defecto)
+ * sdk    - {@link SdkEventGridPublisher}, cliente del SDK de Azure
+ * memory - {@link InMemoryEventPublisher}, sin red, para pruebas locales
+ *
+ * Con EVENT_COALESCE_WINDOW_MS mayor que 0 el publicador se envuelve en un
+ * {@link CoalescingEventPublisher}, que une los user/updated del mismo usuario
+ * dentro de esa ventana.
+ *
+ * Hay un solo publicador por transporte y topic en cada proceso, así que las
+ * invocaciones reutilizan sus conexiones.
+ */
+public final class EventPublishers {
+    private static final Logger logger = Logger.getLogger(EventPublishers.class.getName());
+
+    static final String PUBLISHER_ENV = "EVENT_PUBLISHER";
+    static final String HTTP = "http";
+    static final String SDK = "sdk";
+    static final String MEMORY = "memory";
+
+    private static final ConcurrentHashMap<String, EventPublisher> PUBLISHERS = new ConcurrentHashMap<>();
+
+    private EventPublishers() {
+    }
+
+    /**
+     * Devuelve el publicador compartido para el topic con el transporte
+     * configurado, creándolo la primera vez
+     *
+     * @param topicEndpoint El endpoint del topic de Event Grid
+     * @param topicKey      La clave de acceso al topic
+     */
+    public static EventPublisher forTopic(String topicEndpoint, String topicKey) {
+        return forTopic(transportFromEnvironment(), topicEndpoint, topicKey);
+    }
+
+    static EventPublisher forTopic(String transport, String topicEndpoint, String topicKey) {
+        return PUBLISHERS.computeIfAbsent(transport + '\n' + topicEndpoint + '\n' + topicKey, k -> {
+            EventPublisher publisher = create(transport, topicEndpoint, topicKey);
+            long window = CoalescingEventPublisher.windowFromEnvironment();
+            logger.info("Publicador de eventos '" + transport + "' para " + topicEndpoint
+                    + (window > 0 ? ", uniendo user/updated en " + window + " ms" : ""));
+            return window > 0 ? new CoalescingEventPublisher(publisher, window) : publisher;
+        });
+    }
+
+    private static EventPublisher create(String transport, String topicEndpoint, String topicKey) {
+        switch (transport) {
+            case SDK:
+                return new SdkEventGridPublisher(topicEndpoint, topicKey);
+            case MEMORY:
+                return new InMemoryEventPublisher();
+            default:
+                return EventGridPublisher.forTopic(topicEndpoint, topicKey);
+        }
+    }
+
+    static String transportFromEnvironment() {
+        String value = System.getenv(PUBLISHER_ENV);
+        if (value == null || value.isBlank()) {
+            return HTTP;
+        }
+        String transport = value.trim().toLowerCase(Locale.ROOT);
+        if (!transport.equals(HTTP) && !transport.equals(SDK) && !transport.equals(MEMORY)) {
+            logger.warning(PUBLISHER_ENV + " inválido (" + value + "), se usa " + HTTP);
+            return HTTP;
+        }
+        return transport;
+    }
+}
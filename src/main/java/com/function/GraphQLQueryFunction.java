@@ -2,8 +2,9 @@ package com.function;
 
 import com.function.graphql.GraphQLProvider;
 import com.function.graphql.GraphQLRequest;
+import com.function.http.HttpResponses;
+import com.function.json.Json;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.microsoft.azure.functions.ExecutionContext;
 import com.microsoft.azure.functions.HttpMethod;
 import com.microsoft.azure.functions.HttpRequestMessage;
@@ -28,7 +29,7 @@ public class GraphQLQueryFunction {
 
     public GraphQLQueryFunction() {
         this.graphQLProvider = new GraphQLProvider();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = Json.compact();
     }
 
     @FunctionName("graphql")
@@ -73,10 +74,7 @@ public class GraphQLQueryFunction {
             }
             responseMap.put("data", executionResult.getData());
             
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(responseMap))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.OK, responseMap);
         } catch (Exception e) {
             logger.severe("Error procesando solicitud GraphQL: " + e.getMessage());
             
@@ -85,10 +83,7 @@ public class GraphQLQueryFunction {
             error.put("message", "Error interno del servidor: " + e.getMessage());
             errorResponse.put("errors", new Object[]{error});
             
-            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(errorResponse))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.INTERNAL_SERVER_ERROR, errorResponse);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.function;
+
+import com.function.metrics.MetricsExporter;
+import com.microsoft.applicationinsights.TelemetryClient;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.util.logging.Logger;
+
+/**
+ * Envía cada minuto las métricas de la instancia a Application Insights como
+ * métricas personalizadas (customMetrics), con los percentiles de los
+ * histogramas calculados sobre el último minuto (ver {@link MetricsExporter}).
+ *
+ * Sobre ellas se definen las alertas, por ejemplo la demora de extremo a
+ * extremo de la asignación del rol por defecto:
+ * customMetrics | where name == "consumer.lag.user_created.ms.p99"
+ * Cada instancia envía sus propios valores; la alerta debe tomar el máximo
+ * entre instancias.
+ */
+public class MetricsExportFunction {
+    private static final Logger logger = Logger.getLogger(MetricsExportFunction.class.getName());
+
+    private static final MetricsExporter EXPORTER = new MetricsExporter();
+    private static final TelemetryClient TELEMETRY = new TelemetryClient();
+
+    @FunctionName("exportMetrics")
+    public void run(
+            @TimerTrigger(name = "timer", schedule = "0 * * * * *") String timerInfo,
+            final ExecutionContext context) {
+
+        try {
+            int sent = EXPORTER.export(TELEMETRY::trackMetric);
+            TELEMETRY.flush();
+            logger.fine("Métricas enviadas a Application Insights: " + sent);
+        } catch (Exception e) {
+            logger.severe("Error al enviar métricas a Application Insights: " + e.getMessage());
+        }
+    }
+}
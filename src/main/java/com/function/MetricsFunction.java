@@ -0,0 +1,24 @@
+package com.function;
+
+import com.function.http.HttpResponses;
+import com.function.metrics.Metrics;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.util.Optional;
+
+/**
+ * Expone las métricas de la instancia (publicación de eventos, colas, etc.)
+ */
+public class MetricsFunction {
+
+    @FunctionName("getMetrics")
+    public HttpResponseMessage run(
+            @HttpTrigger(name = "req", methods = {HttpMethod.GET},
+                      authLevel = AuthorizationLevel.FUNCTION,
+                      route = "metrics") HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        return HttpResponses.json(request, HttpStatus.OK, Metrics.snapshot());
+    }
+}
@@ -9,6 +9,25 @@ import java.util.logging.Logger;
 public class OracleDBConnection {
     private static final Logger logger = Logger.getLogger(OracleDBConnection.class.getName());
 
+    /**
+     * Origen de las conexiones que entrega {@link #getConnection()}
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    // Oracle salvo en las pruebas, que usan una base embebida
+    private static volatile ConnectionSource source = OracleDBConnection::connectToOracle;
+
+    /**
+     * Reemplaza el origen de las conexiones; lo usan las pruebas para trabajar
+     * sobre una base embebida. Con null se vuelve a conectar a Oracle.
+     */
+    public static void setConnectionSource(ConnectionSource connectionSource) {
+        source = connectionSource != null ? connectionSource : OracleDBConnection::connectToOracle;
+    }
+
     public static boolean testConnection() {
         try {
             logger.info("Iniciando prueba de conexión a Oracle...");
@@ -39,6 +58,10 @@ public class OracleDBConnection {
     }
 
     public static Connection getConnection() throws SQLException {
+        return source.getConnection();
+    }
+
+    private static Connection connectToOracle() throws SQLException {
         String tnsName = System.getenv("ORACLE_TNS_NAME");
         String user = System.getenv("ORACLE_USER");
         String password = System.getenv("ORACLE_PASSWORD");
@@ -0,0 +1,55 @@
+package com.function;
+
+import com.function.events.EventPublisher;
+import com.function.events.OutboxRelay;
+import com.function.repository.OutboxRepository;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Vacía periódicamente la tabla OUTBOX publicando sus eventos en Event Grid.
+ *
+ * Configuración:
+ * EVENT_GRID_TOPIC_ENDPOINT / EVENT_GRID_TOPIC_KEY - topic de destino
+ * OUTBOX_RELAY_* - límites del relay (ver {@link OutboxRelay.Settings#fromEnvironment()})
+ * EVENT_PUBLISHER - transporte de publicación (ver {@link EventPublishers})
+ */
+public class OutboxRelayFunction {
+    private static final Logger logger = Logger.getLogger(OutboxRelayFunction.class.getName());
+
+    private static final String EVENT_GRID_TOPIC_ENV = "EVENT_GRID_TOPIC_ENDPOINT";
+    private static final String EVENT_GRID_KEY_ENV = "EVENT_GRID_TOPIC_KEY";
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    @FunctionName("relayOutbox")
+    public void run(
+            @TimerTrigger(name = "timer", schedule = "*/10 * * * * *") String timerInfo,
+            final ExecutionContext context) {
+
+        Map<String, String> env = System.getenv();
+        String topicEndpoint = env.getOrDefault(EVENT_GRID_TOPIC_ENV, "");
+        String topicKey = env.getOrDefault(EVENT_GRID_KEY_ENV, "");
+
+        if (topicEndpoint.isEmpty() || topicKey.isEmpty()) {
+            logger.warning("No se encontraron las variables de entorno para Event Grid. " +
+                           "Configure " + EVENT_GRID_TOPIC_ENV + " y " + EVENT_GRID_KEY_ENV);
+            return;
+        }
+
+        EventPublisher publisher = EventPublishers.forTopic(topicEndpoint, topicKey);
+        OutboxRelay relay = new OutboxRelay(new OutboxRepository(), publisher::publishBatchResult,
+                OutboxRelay.Settings.fromEnvironment());
+
+        try {
+            int published = relay.relay(MAX_BATCHES_PER_RUN);
+            if (published > 0) {
+                logger.info("Eventos de la outbox publicados: " + published);
+            }
+        } catch (Exception e) {
+            logger.severe("Error al publicar eventos de la outbox: " + e.getMessage());
+        }
+    }
+}
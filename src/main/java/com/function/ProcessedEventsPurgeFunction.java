@@ -0,0 +1,28 @@
+package com.function;
+
+import com.function.events.EventDeduplicator;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.util.logging.Logger;
+
+/**
+ * Borra cada hora los registros de PROCESSED_EVENTS que quedaron fuera de la
+ * ventana de deduplicación (ver {@link EventDeduplicator}).
+ */
+public class ProcessedEventsPurgeFunction {
+    private static final Logger logger = Logger.getLogger(ProcessedEventsPurgeFunction.class.getName());
+
+    @FunctionName("purgeProcessedEvents")
+    public void run(
+            @TimerTrigger(name = "timer", schedule = "0 0 * * * *") String timerInfo,
+            final ExecutionContext context) {
+
+        try {
+            int purged = EventDeduplicator.shared().purge();
+            logger.info("Registros de eventos procesados purgados: " + purged);
+        } catch (Exception e) {
+            logger.severe("Error al purgar eventos procesados: " + e.getMessage());
+        }
+    }
+}
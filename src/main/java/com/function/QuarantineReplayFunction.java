@@ -0,0 +1,152 @@
+package com.function;
+
+import com.function.config.EnvSettings;
+import com.function.events.EventQuarantine;
+import com.function.events.QuarantineReplayer;
+import com.function.http.HttpResponses;
+import com.function.model.QuarantinedEvent;
+import com.function.repository.QuarantineRepository;
+import com.microsoft.azure.functions.*;
+import com.microsoft.azure.functions.annotation.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Consulta y reproducción de los eventos retenidos en la cuarentena (ver
+ * {@link EventQuarantine}).
+ *
+ * GET  /api/events/quarantine?limit=100
+ *      lista los eventos en cuarentena, los más antiguos primero
+ * POST /api/events/quarantine/replay?ids=a,b&limit=100&rate=10&concurrency=4
+ *      reproduce los eventos indicados en ids, o los más antiguos hasta limit
+ *      si no se indican, con los mismos handlers que processUserEvents
+ *
+ * Configuración (valores por defecto de rate y concurrency):
+ * QUARANTINE_REPLAY_PER_SECOND  - eventos despachados por segundo (10 por defecto)
+ * QUARANTINE_REPLAY_CONCURRENCY - eventos en proceso a la vez (4 por defecto)
+ */
+public class QuarantineReplayFunction {
+    private static final Logger logger = Logger.getLogger(QuarantineReplayFunction.class.getName());
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    private final QuarantineRepository repository = EventQuarantine.shared().getRepository();
+
+    @FunctionName("listQuarantinedEvents")
+    public HttpResponseMessage list(
+            @HttpTrigger(name = "req", methods = {HttpMethod.GET},
+                      authLevel = AuthorizationLevel.FUNCTION,
+                      route = "events/quarantine") HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        Map<String, String> query = query(request);
+        try {
+            int limit = (int) bounded(query.get("limit"), DEFAULT_LIMIT, 1, MAX_LIMIT);
+            List<Map<String, Object>> events = new ArrayList<>();
+            for (QuarantinedEvent event : repository.findAll(limit)) {
+                events.add(describe(event));
+            }
+            return HttpResponses.json(request, HttpStatus.OK, events);
+        } catch (NumberFormatException e) {
+            return badRequest(request, "Parámetro inválido: " + e.getMessage());
+        } catch (SQLException | IllegalStateException e) {
+            logger.severe("Error al listar eventos en cuarentena: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al listar eventos en cuarentena: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    @FunctionName("replayQuarantinedEvents")
+    public HttpResponseMessage replay(
+            @HttpTrigger(name = "req", methods = {HttpMethod.POST},
+                      authLevel = AuthorizationLevel.FUNCTION,
+                      route = "events/quarantine/replay") HttpRequestMessage<Optional<String>> request,
+            final ExecutionContext context) {
+
+        Map<String, String> query = query(request);
+        int limit;
+        double rate;
+        int concurrency;
+        try {
+            limit = (int) bounded(query.get("limit"), DEFAULT_LIMIT, 1, MAX_LIMIT);
+            rate = bounded(query.get("rate"), EnvSettings.doubleValue("QUARANTINE_REPLAY_PER_SECOND", 10), 0, 1000);
+            concurrency = (int) bounded(query.get("concurrency"),
+                    EnvSettings.doubleValue("QUARANTINE_REPLAY_CONCURRENCY", 4), 1, 32);
+        } catch (NumberFormatException e) {
+            return badRequest(request, "Parámetro inválido: " + e.getMessage());
+        }
+
+        try {
+            List<QuarantinedEvent> events = selected(query.get("ids"), limit);
+            logger.info("Reproduciendo " + events.size() + " eventos en cuarentena a " + rate
+                    + " eventos/s con concurrencia " + concurrency);
+
+            EventGridConsumerFunction consumer = new EventGridConsumerFunction();
+            // Por el pipeline, como los eventos recibidos: se respeta el orden por usuario
+            QuarantineReplayer replayer = new QuarantineReplayer(repository, consumer::dispatch);
+            QuarantineReplayer.Result result = replayer.replay(events, rate, concurrency);
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("selected", events.size());
+            response.put("replayed", result.getReplayed());
+            response.put("failed", result.getFailed());
+            return HttpResponses.json(request, HttpStatus.OK, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return request.createResponseBuilder(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("Reproducción interrumpida")
+                    .build();
+        } catch (SQLException | IllegalStateException e) {
+            logger.severe("Error al reproducir eventos en cuarentena: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al reproducir eventos en cuarentena: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    private List<QuarantinedEvent> selected(String ids, int limit) throws SQLException {
+        if (ids == null || ids.isBlank()) {
+            return repository.findAll(limit);
+        }
+        List<String> eventIds = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            if (!id.isBlank() && eventIds.size() < limit) {
+                eventIds.add(id.trim());
+            }
+        }
+        return repository.findByIds(eventIds);
+    }
+
+    private static Map<String, Object> describe(QuarantinedEvent event) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", event.getEventId());
+        result.put("eventType", event.getEventType());
+        result.put("subject", event.getSubject());
+        result.put("reason", event.getReason());
+        result.put("attempts", event.getAttempts());
+        result.put("firstFailedAt", String.valueOf(event.getFirstFailedAt()));
+        result.put("lastFailedAt", String.valueOf(event.getLastFailedAt()));
+        return result;
+    }
+
+    private static Map<String, String> query(HttpRequestMessage<?> request) {
+        return request.getQueryParameters() != null ? request.getQueryParameters() : Map.of();
+    }
+
+    private static double bounded(String value, double defaultValue, double min, double max) {
+        double parsed = value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.trim());
+        return Math.max(min, Math.min(max, parsed));
+    }
+
+    private static HttpResponseMessage badRequest(HttpRequestMessage<?> request, String message) {
+        return request.createResponseBuilder(HttpStatus.BAD_REQUEST).body(message).build();
+    }
+}
@@ -1,25 +1,33 @@
 package com.function;
 
+import com.function.cache.ResponseCaches;
+import com.function.cache.SerializedResponseCache.CachedResponse;
+import com.function.http.HttpResponses;
+import com.function.index.RoleMembershipIndex;
+import com.function.json.Json;
 import com.function.model.Role;
 import com.function.repository.RoleRepository;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.*;
 
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.logging.Logger;
 
 public class RoleFunction {
     private static final Logger logger = Logger.getLogger(RoleFunction.class.getName());
+    private static final int DEFAULT_MEMBERS_LIMIT = 1000;
+    private static final int MAX_MEMBERS_LIMIT = 10000;
     private final RoleRepository roleRepository;
     private final Gson gson;
 
     public RoleFunction() {
         this.roleRepository = new RoleRepository();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = Json.compact();
     }
 
     @FunctionName("getRoleById")
@@ -33,13 +41,17 @@ public class RoleFunction {
 
         try {
             Long roleId = Long.parseLong(id);
+
+            CachedResponse cached = ResponseCaches.ROLES.get(roleId.toString());
+            if (cached != null) {
+                return HttpResponses.cached(request, HttpStatus.OK, cached);
+            }
+
+            long cacheVersion = ResponseCaches.ROLES.version();
             Optional<Role> role = roleRepository.findById(roleId);
 
             if (role.isPresent()) {
-                return request.createResponseBuilder(HttpStatus.OK)
-                        .header("Content-Type", "application/json")
-                        .body(gson.toJson(role.get()))
-                        .build();
+                return HttpResponses.cached(request, HttpStatus.OK, ResponseCaches.ROLES.put(cacheVersion, role.get()));
             } else {
                 return request.createResponseBuilder(HttpStatus.NOT_FOUND)
                         .body("Rol con ID " + id + " no encontrado")
@@ -66,11 +78,14 @@ public class RoleFunction {
         logger.info("Obteniendo todos los roles");
 
         try {
+            CachedResponse cached = ResponseCaches.ROLES.getList();
+            if (cached != null) {
+                return HttpResponses.cached(request, HttpStatus.OK, cached);
+            }
+
+            long cacheVersion = ResponseCaches.ROLES.version();
             List<Role> roles = roleRepository.findAll();
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(roles))
-                    .build();
+            return HttpResponses.cached(request, HttpStatus.OK, ResponseCaches.ROLES.putList(cacheVersion, roles));
         } catch (SQLException e) {
             logger.severe("Error al obtener roles: " + e.getMessage());
             return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -96,16 +111,14 @@ public class RoleFunction {
 
         try {
             Role role = gson.fromJson(requestBody, Role.class);
-            if (role.getId() != null) {
-                role.setId(null); // Ensure ID is null for new role
+            if (role.hasId()) {
+                role.setIdValue(Role.NO_ID); // Ensure ID is null for new role
             }
 
             Role savedRole = roleRepository.save(role);
+            ResponseCaches.ROLES.invalidate(savedRole.getId());
 
-            return request.createResponseBuilder(HttpStatus.CREATED)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(savedRole))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.CREATED, savedRole);
         } catch (Exception e) {
             logger.severe("Error al crear rol: " + e.getMessage());
             return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -133,7 +146,7 @@ public class RoleFunction {
         try {
             Long roleId = Long.parseLong(id);
             Role roleToUpdate = gson.fromJson(requestBody, Role.class);
-            roleToUpdate.setId(String.valueOf(roleId));
+            roleToUpdate.setIdValue(roleId);
 
             // Check if role exists
             if (!roleRepository.findById(roleId).isPresent()) {
@@ -143,11 +156,9 @@ public class RoleFunction {
             }
 
             Role updatedRole = roleRepository.save(roleToUpdate);
+            ResponseCaches.ROLES.invalidate(updatedRole.getId());
 
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(updatedRole))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.OK, updatedRole);
         } catch (NumberFormatException e) {
             return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
                     .body("ID inválido: " + id)
@@ -174,6 +185,7 @@ public class RoleFunction {
             boolean deleted = roleRepository.deleteById(roleId);
 
             if (deleted) {
+                ResponseCaches.ROLES.invalidate(roleId.toString());
                 return request.createResponseBuilder(HttpStatus.OK)
                         .body("Rol con ID " + id + " eliminado")
                         .build();
@@ -207,10 +219,7 @@ public class RoleFunction {
             Long userIdLong = Long.parseLong(userId);
             List<Role> roles = roleRepository.findRolesByUserId(userIdLong);
 
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(roles))
-                    .build();
+            return HttpResponses.cached(request, HttpStatus.OK, CachedResponse.of(Json.toBytes(roles)));
         } catch (NumberFormatException e) {
             return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
                     .body("ID de usuario inválido: " + userId)
@@ -284,4 +293,84 @@ public class RoleFunction {
                     .build();
         }
     }
+
+    /**
+     * Usuarios con un rol, resueltos desde el índice en memoria de USER_ROLES.
+     * Con ?active=true se filtran los usuarios activos, con ?count=true sólo se
+     * devuelve la cantidad y con ?limit=N se acota la lista (1000 por defecto).
+     */
+    @FunctionName("getRoleMembers")
+    public HttpResponseMessage getRoleMembers(
+            @HttpTrigger(name = "req", methods = {
+                    HttpMethod.GET }, authLevel = AuthorizationLevel.ANONYMOUS, route = "roles/{roleId}/members") HttpRequestMessage<Optional<String>> request,
+            @BindingName("roleId") String roleId,
+            final ExecutionContext context) {
+
+        try {
+            long roleIdLong = Long.parseLong(roleId);
+            Map<String, String> query = request.getQueryParameters() != null
+                    ? request.getQueryParameters() : Map.of();
+            boolean activeOnly = "true".equalsIgnoreCase(query.get("active"));
+            RoleMembershipIndex index = RoleMembershipIndex.shared();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("roleId", roleId);
+            if ("true".equalsIgnoreCase(query.get("count"))) {
+                result.put("count", index.countMembers(roleIdLong, activeOnly));
+                return HttpResponses.json(request, HttpStatus.OK, result);
+            }
+
+            String limitParam = query.get("limit");
+            int limit = limitParam != null ? Integer.parseInt(limitParam) : DEFAULT_MEMBERS_LIMIT;
+            limit = Math.max(0, Math.min(limit, MAX_MEMBERS_LIMIT));
+
+            long[] members = index.members(roleIdLong, activeOnly, limit);
+            String[] userIds = new String[members.length];
+            for (int i = 0; i < members.length; i++) {
+                userIds[i] = Long.toString(members[i]);
+            }
+            result.put("userIds", userIds);
+            return HttpResponses.json(request, HttpStatus.OK, result);
+        } catch (NumberFormatException e) {
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .body("Parámetro inválido: " + e.getMessage())
+                    .build();
+        } catch (SQLException e) {
+            logger.severe("Error al consultar miembros del rol: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al consultar miembros del rol: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Indica si un usuario tiene un rol, sin consultar la base de datos
+     */
+    @FunctionName("checkRoleMember")
+    public HttpResponseMessage checkRoleMember(
+            @HttpTrigger(name = "req", methods = {
+                    HttpMethod.GET }, authLevel = AuthorizationLevel.ANONYMOUS, route = "roles/{roleId}/members/{userId}") HttpRequestMessage<Optional<String>> request,
+            @BindingName("roleId") String roleId,
+            @BindingName("userId") String userId,
+            final ExecutionContext context) {
+
+        try {
+            boolean member = RoleMembershipIndex.shared().isMember(Long.parseLong(userId), Long.parseLong(roleId));
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("roleId", roleId);
+            result.put("userId", userId);
+            result.put("member", member);
+            return HttpResponses.json(request, HttpStatus.OK, result);
+        } catch (NumberFormatException e) {
+            return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
+                    .body("ID inválido")
+                    .build();
+        } catch (SQLException e) {
+            logger.severe("Error al consultar membresía del rol: " + e.getMessage());
+            return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error al consultar membresía del rol: " + e.getMessage())
+                    .build();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.function;
+
+import com.azure.core.credential.AzureKeyCredential;
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.util.BinaryData;
+import com.azure.messaging.eventgrid.EventGridEvent;
+import com.azure.messaging.eventgrid.EventGridPublisherAsyncClient;
+import com.azure.messaging.eventgrid.EventGridPublisherClientBuilder;
+import com.function.events.EventPublisher;
+import com.function.events.PublishResult;
+import com.function.events.PublishStamp;
+import com.function.json.Json;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Publicador de eventos sobre el SDK de Azure Event Grid
+ * (EVENT_PUBLISHER=sdk).
+ *
+ * Cada publicador tiene un único cliente asíncrono del SDK, con su propio pool
+ * de conexiones, que se crea una vez por topic y proceso (ver
+ * {@link EventPublishers}). Los reintentos son los de la política por defecto
+ * del SDK; a diferencia de {@link EventGridPublisher} no hay envío por lotes ni
+ * spool local.
+ *
+ * Los datos se serializan con Gson, igual que en el publicador HTTP, para que
+ * los consumidores reciban el mismo JSON, con la marca de publicación
+ * ({@link PublishStamp}), con cualquiera de los dos.
+ */
+public class SdkEventGridPublisher implements EventPublisher {
+    private static final Logger logger = Logger.getLogger(SdkEventGridPublisher.class.getName());
+
+    private final EventGridPublisherAsyncClient<EventGridEvent> client;
+    private final Gson gson = Json.compact();
+
+    /**
+     * @param topicEndpoint El endpoint del topic de Event Grid
+     * @param topicKey      La clave de acceso al topic
+     */
+    public SdkEventGridPublisher(String topicEndpoint, String topicKey) {
+        this(new EventGridPublisherClientBuilder()
+                .endpoint(topicEndpoint)
+                .credential(new AzureKeyCredential(topicKey))
+                .buildEventGridEventPublisherAsyncClient());
+    }
+
+    /**
+     * @param client Cliente del SDK ya configurado
+     */
+    public SdkEventGridPublisher(EventGridPublisherAsyncClient<EventGridEvent> client) {
+        this.client = client;
+    }
+
+    @Override
+    public boolean publishEvent(String eventType, String subject, Object data) {
+        logger.info("Intentando publicar evento: " + eventType + ", subject: " + subject);
+        return publishEventAsync(eventType, subject, data).join();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> publishEventAsync(String eventType, String subject, Object data) {
+        EventGridEvent event;
+        try {
+            JsonElement content = gson.toJsonTree(data);
+            PublishStamp.stamp(content);
+            event = new EventGridEvent(subject, eventType, BinaryData.fromString(gson.toJson(content)), "1.0");
+        } catch (RuntimeException e) {
+            logger.severe("Error inesperado al preparar evento: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+        return send(client.sendEvent(event), "evento " + event.getId());
+    }
+
+    @Override
+    public boolean publishBatch(byte[] body, int events) {
+        return publishBatchResult(body, events).isPublished();
+    }
+
+    @Override
+    public PublishResult publishBatchResult(byte[] body, int events) {
+        List<EventGridEvent> batch;
+        try {
+            // Conserva el ID de cada evento, que es el que usa la deduplicación
+            batch = EventGridEvent.fromString(new String(body, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            logger.severe("Lote de " + events + " eventos inválido: " + e.getMessage());
+            return PublishResult.REJECTED;
+        }
+        String description = "lote de " + events + " eventos";
+        return client.sendEvents(batch).toFuture().handle((ignored, error) -> {
+            if (error == null) {
+                logger.info("Se publicó con éxito " + description);
+                return PublishResult.PUBLISHED;
+            }
+            logger.severe("Error al publicar " + description + ": " + error.getMessage());
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            // Sin respuesta del topic (red, timeout) la falla es transitoria
+            return cause instanceof HttpResponseException response && response.getResponse() != null
+                    ? PublishResult.fromStatus(response.getResponse().getStatusCode())
+                    : PublishResult.RETRYABLE;
+        }).join();
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static CompletableFuture<Boolean> send(Mono<Void> request, String description) {
+        return request.toFuture().handle((ignored, error) -> {
+            if (error != null) {
+                logger.severe("Error al publicar " + description + ": " + error.getMessage());
+                return false;
+            }
+            logger.info("Se publicó con éxito " + description);
+            return true;
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.function;
 
+import com.function.events.EventPublisher;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.*;
 import java.util.Optional;
@@ -58,7 +59,7 @@ public class TestEventGridFunction {
         // Intentar publicar evento
         response.append("2. Intento de publicación:\n");
         try {
-            EventGridPublisher publisher = new EventGridPublisher(topicEndpoint, topicKey);
+            EventPublisher publisher = EventPublishers.forTopic(topicEndpoint, topicKey);
             boolean success = publisher.publishEvent(TEST_EVENT_TYPE, "test/event", testData);
             
             if (success) {
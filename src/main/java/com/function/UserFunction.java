@@ -1,9 +1,12 @@
 package com.function;
 
+import com.function.cache.ResponseCaches;
+import com.function.cache.SerializedResponseCache.CachedResponse;
+import com.function.http.HttpResponses;
+import com.function.json.Json;
 import com.function.model.User;
 import com.function.repository.UserRepository;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.microsoft.azure.functions.*;
 import com.microsoft.azure.functions.annotation.*;
 
@@ -11,21 +14,15 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
-import java.util.Map;
 
 public class UserFunction {
     private static final Logger logger = Logger.getLogger(UserFunction.class.getName());
     private final UserRepository userRepository;
     private final Gson gson;
-    
-    // Configuración para Event Grid
-    private static final String EVENT_GRID_TOPIC_ENV = "EVENT_GRID_TOPIC_ENDPOINT";
-    private static final String EVENT_GRID_KEY_ENV = "EVENT_GRID_TOPIC_KEY";
-    private static final String USER_CREATED_EVENT_TYPE = "user/created";
 
     public UserFunction() {
         this.userRepository = new UserRepository();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.gson = Json.compact();
     }
 
     @FunctionName("getUserById")
@@ -39,13 +36,17 @@ public class UserFunction {
 
         try {
             Long userId = Long.parseLong(id);
+
+            CachedResponse cached = ResponseCaches.USERS.get(userId.toString());
+            if (cached != null) {
+                return HttpResponses.cached(request, HttpStatus.OK, cached);
+            }
+
+            long cacheVersion = ResponseCaches.USERS.version();
             Optional<User> user = userRepository.findById(userId);
 
             if (user.isPresent()) {
-                return request.createResponseBuilder(HttpStatus.OK)
-                        .header("Content-Type", "application/json")
-                        .body(gson.toJson(user.get()))
-                        .build();
+                return HttpResponses.cached(request, HttpStatus.OK, ResponseCaches.USERS.put(cacheVersion, user.get()));
             } else {
                 return request.createResponseBuilder(HttpStatus.NOT_FOUND)
                         .body("Usuario con ID " + id + " no encontrado")
@@ -72,11 +73,14 @@ public class UserFunction {
         logger.info("Obteniendo todos los usuarios");
 
         try {
+            CachedResponse cached = ResponseCaches.USERS.getList();
+            if (cached != null) {
+                return HttpResponses.cached(request, HttpStatus.OK, cached);
+            }
+
+            long cacheVersion = ResponseCaches.USERS.version();
             List<User> users = userRepository.findAll();
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(users))
-                    .build();
+            return HttpResponses.cached(request, HttpStatus.OK, ResponseCaches.USERS.putList(cacheVersion, users));
         } catch (SQLException e) {
             logger.severe("Error al obtener usuarios: " + e.getMessage());
             return request.createResponseBuilder(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -112,39 +116,19 @@ public class UserFunction {
             logger.info("Datos recibidos para creación de usuario: " + requestBody);
             User user = gson.fromJson(requestBody, User.class);
             
-            if (user.getId() != null) {
-                user.setId(null); // Ensure ID is null for new user
+            if (user.hasId()) {
+                user.setIdValue(User.NO_ID); // Ensure ID is null for new user
             }
 
             logger.info("Guardando usuario en la base de datos: " + user.getUsername());
             User savedUser = userRepository.save(user);
+            ResponseCaches.USERS.invalidate(savedUser.getId());
             logger.info("Usuario guardado con ID: " + savedUser.getId());
 
-            // Publicar evento de usuario creado a Event Grid
-            boolean eventPublished = false;
-            try {
-                eventPublished = publishUserCreatedEvent(savedUser);
-                if (!eventPublished) {
-                    logger.warning("No se pudo publicar el evento de usuario creado a Event Grid");
-                }
-            } catch (Exception e) {
-                logger.warning("Error al publicar evento de usuario creado: " + e.getMessage());
-                // Continuamos aunque falle la publicación del evento
-            }
+            // El evento user/created quedó en la outbox en la misma transacción;
+            // lo publica la función relayOutbox
 
-            // Preparar mensaje de respuesta
-            StringBuilder responseMessage = new StringBuilder();
-            responseMessage.append("Usuario creado exitosamente con ID: ").append(savedUser.getId());
-            if (eventPublished) {
-                responseMessage.append(". Evento publicado a Event Grid para asignación de rol.");
-            } else {
-                responseMessage.append(". ADVERTENCIA: No se pudo publicar el evento para asignación de rol.");
-            }
-
-            return request.createResponseBuilder(HttpStatus.CREATED)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(savedUser))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.CREATED, savedUser);
         } catch (Exception e) {
             logger.severe("Error al crear usuario: " + e.getMessage());
             e.printStackTrace();
@@ -173,7 +157,7 @@ public class UserFunction {
         try {
             Long userId = Long.parseLong(id);
             User userToUpdate = gson.fromJson(requestBody, User.class);
-            userToUpdate.setId(userId.toString());
+            userToUpdate.setIdValue(userId);
 
             // Check if user exists
             if (!userRepository.findById(userId).isPresent()) {
@@ -183,11 +167,9 @@ public class UserFunction {
             }
 
             User updatedUser = userRepository.save(userToUpdate);
+            ResponseCaches.USERS.invalidate(updatedUser.getId());
 
-            return request.createResponseBuilder(HttpStatus.OK)
-                    .header("Content-Type", "application/json")
-                    .body(gson.toJson(updatedUser))
-                    .build();
+            return HttpResponses.json(request, HttpStatus.OK, updatedUser);
         } catch (NumberFormatException e) {
             return request.createResponseBuilder(HttpStatus.BAD_REQUEST)
                     .body("ID inválido: " + id)
@@ -214,6 +196,7 @@ public class UserFunction {
             boolean deleted = userRepository.deleteById(userId);
 
             if (deleted) {
+                ResponseCaches.USERS.invalidate(userId.toString());
                 return request.createResponseBuilder(HttpStatus.OK)
                         .body("Usuario con ID " + id + " eliminado")
                         .build();
@@ -233,44 +216,4 @@ public class UserFunction {
                     .build();
         }
     }
-    
-    /**
-     * Publica un evento de usuario creado en Event Grid
-     * 
-     * @param user El usuario creado
-     * @return true si el evento se publicó con éxito, false en caso contrario
-     */
-    private boolean publishUserCreatedEvent(User user) {
-        Map<String, String> env = System.getenv();
-        String topicEndpoint = env.getOrDefault(EVENT_GRID_TOPIC_ENV, "");
-        String topicKey = env.getOrDefault(EVENT_GRID_KEY_ENV, "");
-        
-        if (topicEndpoint.isEmpty() || topicKey.isEmpty()) {
-            logger.warning("No se encontraron las variables de entorno para Event Grid. " +
-                           "Configure " + EVENT_GRID_TOPIC_ENV + " y " + EVENT_GRID_KEY_ENV);
-            return false;
-        }
-        
-        try {
-            // Crear el cliente de Event Grid con la configuración
-            EventGridPublisher publisher = new EventGridPublisher(topicEndpoint, topicKey);
-            
-            // El asunto del evento será "users/{id}"
-            String subject = "users/" + user.getId();
-            
-            // Publicar el evento con el tipo, asunto y los datos del usuario
-            boolean success = publisher.publishEvent(USER_CREATED_EVENT_TYPE, subject, user);
-            
-            if (success) {
-                logger.info("Evento de usuario creado publicado con éxito para el usuario: " + user.getUsername());
-            } else {
-                logger.warning("No se pudo publicar el evento de usuario creado para: " + user.getUsername());
-            }
-            
-            return success;
-        } catch (Exception e) {
-            logger.severe("Error al publicar evento de usuario creado: " + e.getMessage());
-            return false;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.function.cache;
+
+import com.function.model.Role;
+import com.function.model.User;
+import com.function.json.Json;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches de respuestas compartidas por todas las funciones de la instancia.
+ *
+ * Las funciones HTTP y GraphQL que modifican usuarios o roles deben invalidar
+ * aquí la entidad afectada.
+ */
+public final class ResponseCaches {
+    private static final String TTL_ENV = "RESPONSE_CACHE_TTL_SECONDS";
+    private static final long DEFAULT_TTL_SECONDS = 30;
+
+    public static final SerializedResponseCache<User> USERS =
+            new SerializedResponseCache<>("users", Json.compact(), User::getId, ttlSeconds(), TimeUnit.SECONDS);
+
+    public static final SerializedResponseCache<Role> ROLES =
+            new SerializedResponseCache<>("roles", Json.compact(), Role::getId, ttlSeconds(), TimeUnit.SECONDS);
+
+    private ResponseCaches() {
+    }
+
+    private static long ttlSeconds() {
+        String value = System.getenv(TTL_ENV);
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_TTL_SECONDS;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return DEFAULT_TTL_SECONDS;
+        }
+    }
+}
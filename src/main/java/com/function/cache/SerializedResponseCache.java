@@ -0,0 +1,298 @@
+package com.function.cache;
+
+import com.function.http.MediaFormat;
+import com.function.http.ResponseCompression;
+import com.function.json.BinaryFormats;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Cache de respuestas ya serializadas.
+ *
+ * Guarda por entidad el fragmento JSON en bytes (y su versión gzip, calculada
+ * la primera vez que se pide) y, por versión de la colección, la respuesta de
+ * lista completa. La lista se arma concatenando los fragmentos cacheados, de
+ * modo que un acierto no hace reflexión ni construye Strings.
+ *
+ * Cualquier escritura sobre una entidad debe llamar a {@link #invalidate(String)},
+ * lo que descarta su fragmento y avanza la versión de la colección. Como cada
+ * instancia del Function App tiene su propia cache, las entradas expiran además
+ * por TTL para acotar la desactualización frente a escrituras hechas en otras
+ * instancias.
+ */
+public class SerializedResponseCache<T> {
+    private static final Logger logger = Logger.getLogger(SerializedResponseCache.class.getName());
+
+    private final String name;
+    private final Gson gson;
+    private final Function<T, String> idExtractor;
+    private final long ttlNanos;
+
+    private final ConcurrentHashMap<String, CachedResponse> fragments = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile CachedResponse list;
+
+    public SerializedResponseCache(String name, Gson gson, Function<T, String> idExtractor, long ttl, TimeUnit unit) {
+        this.name = name;
+        this.gson = gson;
+        this.idExtractor = idExtractor;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Versión actual de la colección. Se debe leer antes de consultar la base de
+     * datos y pasarla a {@link #put(long, Object)} o {@link #putList(long, List)}.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Devuelve el fragmento cacheado de una entidad, o null si no existe o expiró
+     */
+    public CachedResponse get(String id) {
+        CachedResponse fragment = fragments.get(id);
+        if (fragment == null) {
+            return null;
+        }
+        if (fragment.isExpired(ttlNanos)) {
+            fragments.remove(id, fragment);
+            return null;
+        }
+        return fragment;
+    }
+
+    /**
+     * Serializa la entidad y guarda su fragmento, salvo que la colección haya
+     * cambiado desde {@code expectedVersion} (la entidad leída podría estar vieja).
+     *
+     * La versión se compara dentro de {@code compute}, con la entrada de la
+     * entidad bloqueada. Como {@link #invalidate(String)} avanza la versión
+     * antes de quitar el fragmento, un fragmento viejo que pase la comparación
+     * justo antes de la invalidación queda guardado antes de que ésta lo quite,
+     * nunca después.
+     */
+    public CachedResponse put(long expectedVersion, T entity) {
+        String id = idExtractor.apply(entity);
+        CachedResponse fragment = new CachedResponse(serialize(entity), expectedVersion);
+        if (id != null) {
+            fragments.compute(id, (key, current) -> version.get() == expectedVersion ? fragment : current);
+        }
+        return fragment;
+    }
+
+    /**
+     * Devuelve la lista cacheada si corresponde a la versión actual de la colección
+     */
+    public CachedResponse getList() {
+        CachedResponse current = list;
+        if (current == null || current.getVersion() != version.get() || current.isExpired(ttlNanos)) {
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * Arma la respuesta de lista concatenando los fragmentos de cada entidad,
+     * serializando sólo las que no estén en cache. La lista sólo se guarda si la
+     * colección no cambió desde {@code expectedVersion}; si cambió, se devuelve
+     * igual pero no queda cacheada.
+     */
+    public CachedResponse putList(long expectedVersion, List<T> entities) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, entities.size() * 128));
+        out.write('[');
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            String id = idExtractor.apply(entity);
+            CachedResponse fragment = id != null ? get(id) : null;
+            if (fragment == null) {
+                fragment = put(expectedVersion, entity);
+            }
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(fragment.getJson());
+        }
+        out.write(']');
+
+        CachedResponse assembled = new CachedResponse(out.toByteArray(), expectedVersion);
+        if (version.get() == expectedVersion) {
+            list = assembled;
+        }
+        return assembled;
+    }
+
+    /**
+     * Descarta el fragmento de una entidad y avanza la versión de la colección
+     */
+    public void invalidate(String id) {
+        // Primero la versión: así ningún put que empiece después guarda datos viejos
+        version.incrementAndGet();
+        if (id != null) {
+            fragments.remove(id);
+        }
+        list = null;
+    }
+
+    /**
+     * Descarta todo el contenido de la cache
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        fragments.clear();
+        list = null;
+        logger.info("Cache de respuestas '" + name + "' invalidada por completo");
+    }
+
+    private byte[] serialize(T entity) {
+        return gson.toJson(entity).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Respuesta serializada e inmutable. La versión gzip, las representaciones
+     * binarias y el ETag se calculan una sola vez, la primera vez que se necesitan.
+     */
+    public static final class CachedResponse {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        private final byte[] json;
+        private final long version;
+        private final long createdAt;
+        private volatile byte[] gzip;
+        private volatile byte[] cbor;
+        private volatile byte[] cborGzip;
+        private volatile byte[] smile;
+        private volatile byte[] smileGzip;
+        private volatile String etag;
+
+        CachedResponse(byte[] json, long version) {
+            this.json = json;
+            this.version = version;
+            this.createdAt = System.nanoTime();
+        }
+
+        /**
+         * Envuelve un cuerpo ya serializado que no se guarda en ninguna cache, para
+         * poder responderlo con ETag y gzip igual que una entrada cacheada.
+         */
+        public static CachedResponse of(byte[] json) {
+            return new CachedResponse(json, -1);
+        }
+
+        public byte[] getJson() {
+            return json;
+        }
+
+        public byte[] getGzip() {
+            byte[] compressed = gzip;
+            if (compressed == null) {
+                compressed = ResponseCompression.gzip(json);
+                gzip = compressed;
+            }
+            return compressed;
+        }
+
+        /**
+         * Cuerpo en la representación pedida
+         */
+        public byte[] getBody(MediaFormat format) {
+            switch (format) {
+                case CBOR:
+                    return getCbor();
+                case SMILE:
+                    return getSmile();
+                default:
+                    return json;
+            }
+        }
+
+        /**
+         * Cuerpo comprimido con gzip en la representación pedida
+         */
+        public byte[] getGzip(MediaFormat format) {
+            switch (format) {
+                case CBOR:
+                    byte[] compressedCbor = cborGzip;
+                    if (compressedCbor == null) {
+                        compressedCbor = ResponseCompression.gzip(getCbor());
+                        cborGzip = compressedCbor;
+                    }
+                    return compressedCbor;
+                case SMILE:
+                    byte[] compressedSmile = smileGzip;
+                    if (compressedSmile == null) {
+                        compressedSmile = ResponseCompression.gzip(getSmile());
+                        smileGzip = compressedSmile;
+                    }
+                    return compressedSmile;
+                default:
+                    return getGzip();
+            }
+        }
+
+        public byte[] getCbor() {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                encoded = BinaryFormats.jsonToCbor(json);
+                cbor = encoded;
+            }
+            return encoded;
+        }
+
+        public byte[] getSmile() {
+            byte[] encoded = smile;
+            if (encoded == null) {
+                encoded = BinaryFormats.jsonToSmile(json);
+                smile = encoded;
+            }
+            return encoded;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * ETag fuerte derivado del hash del contenido. Al depender sólo de los
+         * bytes, todas las instancias generan el mismo ETag para la misma respuesta.
+         */
+        public String getETag() {
+            String tag = etag;
+            if (tag == null) {
+                tag = contentHash(json);
+                etag = tag;
+            }
+            return tag;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - createdAt > ttlNanos;
+        }
+
+        private static String contentHash(byte[] data) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+                char[] chars = new char[34];
+                chars[0] = '"';
+                for (int i = 0; i < 16; i++) {
+                    chars[1 + i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                    chars[2 + i * 2] = HEX[digest[i] & 0xF];
+                }
+                chars[33] = '"';
+                return new String(chars);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.function.config;
+
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Configuración numérica desde variables de entorno. Si la variable no está
+ * definida o está vacía se usa el valor por defecto; si no es un número,
+ * también, con un aviso en el log.
+ */
+public final class EnvSettings {
+    private static final Logger logger = Logger.getLogger(EnvSettings.class.getName());
+
+    private EnvSettings() {
+    }
+
+    public static long longValue(String name, long defaultValue) {
+        return value(name, defaultValue, Long::parseLong);
+    }
+
+    public static int intValue(String name, int defaultValue) {
+        return value(name, defaultValue, Integer::parseInt);
+    }
+
+    public static double doubleValue(String name, double defaultValue) {
+        return value(name, defaultValue, Double::parseDouble);
+    }
+
+    private static <T> T value(String name, T defaultValue, Function<String, T> parser) {
+        String value = System.getenv(name);
+        if (value != null && !value.isEmpty()) {
+            try {
+                return parser.apply(value.trim());
+            } catch (NumberFormatException e) {
+                logger.warning(name + " inválido, se usa el valor por defecto: " + value);
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,316 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.json.Json;
+import com.function.metrics.Counter;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Une los user/updated del mismo usuario que se publican dentro de una ventana
+ * de tiempo antes de pasarlos al publicador real.
+ *
+ * De cada grupo se publica un solo evento con la versión más reciente y la
+ * unión de las máscaras de cambios (ver {@link EntityChange#merge}); el
+ * consumidor lee de todas formas el estado actual del usuario. Los demás tipos
+ * de evento pasan sin cambios.
+ *
+ * {@link #publishEventAsync} retiene el primer user/updated de cada subject
+ * durante la ventana y le une los que llegan mientras tanto; todos reciben el
+ * resultado del evento unido. {@link #publishEvent} no espera: publica en el
+ * momento, unido a lo que hubiera pendiente para el subject.
+ * {@link #publishBatch} une dentro del lote los user/updated del mismo subject
+ * cuyo eventTime cae dentro de la ventana del primero del grupo; el evento
+ * unido conserva la posición del primero y el ID y el eventTime del último,
+ * así que un lote reenviado produce los mismos IDs. Un evento de otro tipo con
+ * el mismo subject cierra el grupo, para no alterar el orden entre ellos.
+ *
+ * Métricas (prefijo eventgrid.coalesce): eventos recibidos y publicados, la
+ * reducción en porcentaje y los eventos unidos en cada evento publicado.
+ */
+public class CoalescingEventPublisher implements EventPublisher {
+    private static final Logger logger = Logger.getLogger(CoalescingEventPublisher.class.getName());
+
+    private static final String WINDOW_ENV = "EVENT_COALESCE_WINDOW_MS";
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "eventgrid-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Counter RECEIVED = Metrics.counter("eventgrid.coalesce.received");
+    private static final Counter PUBLISHED = Metrics.counter("eventgrid.coalesce.published");
+    private static final Histogram MERGED = Metrics.histogram("eventgrid.coalesce.merged");
+
+    static {
+        Metrics.gauge("eventgrid.coalesce.reduction.pct", () -> {
+            long received = RECEIVED.get();
+            return received > 0 ? 100 - PUBLISHED.get() * 100 / received : 0;
+        });
+    }
+
+    private final EventPublisher delegate;
+    private final long windowMillis;
+    private final Gson gson = Json.compact();
+
+    // user/updated retenidos por subject, en orden de llegada
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    /**
+     * Grupo de user/updated del mismo subject que espera el fin de la ventana
+     */
+    private static final class Pending {
+        EntityChange change;
+        int events = 1;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Pending(EntityChange change) {
+            this.change = change;
+        }
+    }
+
+    /**
+     * Grupo de user/updated del mismo subject dentro de un lote
+     */
+    private static final class Group {
+        final int index;
+        final OffsetDateTime start;
+        EntityChange change;
+        int events = 1;
+
+        Group(int index, OffsetDateTime start, EntityChange change) {
+            this.index = index;
+            this.start = start;
+            this.change = change;
+        }
+    }
+
+    /**
+     * @param delegate     Publicador al que se pasan los eventos ya unidos
+     * @param windowMillis Ventana en la que se unen los user/updated del mismo subject
+     */
+    public CoalescingEventPublisher(EventPublisher delegate, long windowMillis) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Ventana configurada en EVENT_COALESCE_WINDOW_MS; 0 (por defecto) deshabilita
+     * la unión de eventos
+     */
+    public static long windowFromEnvironment() {
+        return Math.max(0, EnvSettings.longValue(WINDOW_ENV, 0));
+    }
+
+    @Override
+    public boolean publishEvent(String eventType, String subject, Object data) {
+        Pending group = null;
+        if (isCoalescible(eventType, data)) {
+            RECEIVED.increment();
+            synchronized (pending) {
+                group = pending.remove(subject);
+            }
+            if (group != null) {
+                data = group.change.merge((EntityChange) data);
+            }
+            published(group != null ? group.events + 1 : 1);
+        }
+
+        boolean success = delegate.publishEvent(eventType, subject, data);
+        if (group != null) {
+            group.result.complete(success);
+        }
+        return success;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> publishEventAsync(String eventType, String subject, Object data) {
+        if (!isCoalescible(eventType, data)) {
+            return delegate.publishEventAsync(eventType, subject, data);
+        }
+
+        RECEIVED.increment();
+        EntityChange change = (EntityChange) data;
+        synchronized (pending) {
+            Pending group = pending.get(subject);
+            if (group != null) {
+                group.change = group.change.merge(change);
+                group.events++;
+                return group.result;
+            }
+            group = new Pending(change);
+            pending.put(subject, group);
+            SCHEDULER.schedule(() -> release(subject), windowMillis, TimeUnit.MILLISECONDS);
+            return group.result;
+        }
+    }
+
+    @Override
+    public boolean publishBatch(byte[] body, int events) {
+        return publishBatchResult(body, events).isPublished();
+    }
+
+    @Override
+    public PublishResult publishBatchResult(byte[] body, int events) {
+        byte[] coalesced;
+        int remaining;
+        try {
+            JsonArray batch = gson.fromJson(new String(body, StandardCharsets.UTF_8), JsonArray.class);
+            JsonArray merged = batch != null ? coalesce(batch) : new JsonArray();
+            if (batch == null || merged.size() == batch.size()) {
+                coalesced = body;
+            } else {
+                coalesced = gson.toJson(merged).getBytes(StandardCharsets.UTF_8);
+                logger.info("Lote de " + events + " eventos reducido a " + merged.size());
+            }
+            remaining = merged.size();
+        } catch (JsonParseException | IllegalStateException e) {
+            // Que el publicador real informe el lote inválido
+            coalesced = body;
+            remaining = events;
+        }
+        return delegate.publishBatchResult(coalesced, remaining);
+    }
+
+    /**
+     * Publica de inmediato los user/updated retenidos y vacía el publicador real
+     */
+    @Override
+    public CompletableFuture<Void> flush() {
+        List<String> subjects;
+        synchronized (pending) {
+            subjects = new ArrayList<>(pending.keySet());
+        }
+        List<CompletableFuture<Boolean>> results = new ArrayList<>(subjects.size());
+        for (String subject : subjects) {
+            results.add(release(subject));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenCompose(ignored -> delegate.flush());
+    }
+
+    /**
+     * Publica el grupo retenido del subject, si sigue pendiente
+     */
+    private CompletableFuture<Boolean> release(String subject) {
+        Pending group;
+        synchronized (pending) {
+            group = pending.remove(subject);
+        }
+        if (group == null) {
+            return CompletableFuture.completedFuture(true);
+        }
+        published(group.events);
+        delegate.publishEventAsync(EventTypes.USER_UPDATED, subject, group.change)
+                .whenComplete((success, error) -> group.result.complete(error == null && success));
+        return group.result;
+    }
+
+    /**
+     * Une los user/updated del lote por subject y ventana de tiempo
+     */
+    JsonArray coalesce(JsonArray batch) {
+        List<JsonObject> out = new ArrayList<>(batch.size());
+        List<Group> groups = new ArrayList<>();
+        Map<String, Group> open = new HashMap<>();
+
+        for (JsonElement element : batch) {
+            JsonObject event = element.getAsJsonObject();
+            String subject = string(event, "subject");
+            EntityChange change = null;
+            OffsetDateTime time = null;
+            if (EventTypes.USER_UPDATED.equals(string(event, "eventType")) && subject != null) {
+                change = change(event.get("data"));
+                time = time(event);
+            }
+            if (change == null || time == null) {
+                if (subject != null) {
+                    open.remove(subject);
+                }
+                out.add(event);
+                continue;
+            }
+
+            RECEIVED.increment();
+            Group group = open.get(subject);
+            if (group != null && Duration.between(group.start, time).toMillis() <= windowMillis) {
+                group.change = group.change.merge(change);
+                group.events++;
+                JsonObject latest = event.deepCopy();
+                latest.add("data", gson.toJsonTree(group.change));
+                out.set(group.index, latest);
+                continue;
+            }
+            group = new Group(out.size(), time, change);
+            open.put(subject, group);
+            groups.add(group);
+            out.add(event);
+        }
+
+        for (Group group : groups) {
+            published(group.events);
+        }
+        JsonArray result = new JsonArray(out.size());
+        out.forEach(result::add);
+        return result;
+    }
+
+    private static void published(int events) {
+        PUBLISHED.increment();
+        MERGED.record(events);
+    }
+
+    private static boolean isCoalescible(String eventType, Object data) {
+        return EventTypes.USER_UPDATED.equals(eventType) && data instanceof EntityChange;
+    }
+
+    private EntityChange change(JsonElement data) {
+        if (data == null || !data.isJsonObject()) {
+            return null;
+        }
+        try {
+            EntityChange change = gson.fromJson(data, EntityChange.class);
+            return change != null && change.hasId() ? change : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static OffsetDateTime time(JsonObject event) {
+        String value = string(event, "eventTime");
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String string(JsonObject event, String name) {
+        JsonElement value = event.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
+}
@@ -0,0 +1,134 @@
+package com.function.events;
+
+import com.function.model.User;
+
+import java.util.Objects;
+
+/**
+ * Contenido compacto de los eventos de usuarios y roles: sólo identifica la
+ * entidad que cambió, cuándo y qué campos cambiaron. El consumidor que
+ * necesite la entidad completa la lee de la caché o de la base de datos, que
+ * siempre tiene la versión más reciente.
+ *
+ * En JSON: {"id":42,"changedAt":1718000000000,"mask":3}. changedAt es el
+ * instante del cambio en milisegundos según el reloj de la instancia que lo
+ * hizo. Es sólo informativo: entre instancias los relojes difieren y pueden
+ * ajustarse, así que no crece necesariamente con cada cambio y no sirve para
+ * ordenar cambios ni para descartar los viejos. Los eventos con el nombre
+ * anterior del campo ("version") se leen igual; los anteriores a este formato,
+ * que traen la entidad completa, se leen como un cambio de todos los campos
+ * con changedAt 0.
+ *
+ * Los publicadores agregan además la marca de publicación (publishedAt y
+ * sequence, ver {@link PublishStamp}); vale 0 en los eventos sin marca.
+ */
+public final class EntityChange {
+    public static final long NO_ID = 0L;
+
+    // Campos de un usuario en la máscara de cambios
+    public static final int USERNAME = 1;
+    public static final int EMAIL = 1 << 1;
+    public static final int FIRST_NAME = 1 << 2;
+    public static final int LAST_NAME = 1 << 3;
+    public static final int ACTIVE = 1 << 4;
+
+    /** Todos los campos: alta, baja o evento sin máscara */
+    public static final int ALL = -1;
+
+    private final long id;
+    private final long changedAt;
+    private final int changeMask;
+    private final long publishedAt;
+    private final long sequence;
+
+    public EntityChange(long id, long changedAt, int changeMask) {
+        this(id, changedAt, changeMask, 0, 0);
+    }
+
+    public EntityChange(long id, long changedAt, int changeMask, long publishedAt, long sequence) {
+        this.id = id;
+        this.changedAt = changedAt;
+        this.changeMask = changeMask;
+        this.publishedAt = publishedAt;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Cambio de todos los campos de la entidad, en este instante
+     */
+    public static EntityChange of(long id) {
+        return new EntityChange(id, System.currentTimeMillis(), ALL);
+    }
+
+    /**
+     * Cambio de un usuario, con la máscara de los campos que difieren
+     */
+    public static EntityChange of(User before, User after) {
+        int mask = 0;
+        if (!Objects.equals(before.getUsername(), after.getUsername())) {
+            mask |= USERNAME;
+        }
+        if (!Objects.equals(before.getEmail(), after.getEmail())) {
+            mask |= EMAIL;
+        }
+        if (!Objects.equals(before.getFirstName(), after.getFirstName())) {
+            mask |= FIRST_NAME;
+        }
+        if (!Objects.equals(before.getLastName(), after.getLastName())) {
+            mask |= LAST_NAME;
+        }
+        if (before.isActive() != after.isActive()) {
+            mask |= ACTIVE;
+        }
+        return new EntityChange(after.getIdValue(), System.currentTimeMillis(), mask);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean hasId() {
+        return id != NO_ID;
+    }
+
+    /** Instante del cambio en milisegundos, o 0 si el evento no lo trae; no es una versión */
+    public long getChangedAt() {
+        return changedAt;
+    }
+
+    public int getChangeMask() {
+        return changeMask;
+    }
+
+    /** Instante de la publicación en milisegundos, o 0 si el evento no tiene marca */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    /** Número de secuencia del publicador, o 0 si el evento no tiene marca */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Indica si cambió alguno de los campos
+     */
+    public boolean changed(int fields) {
+        return (changeMask & fields) != 0;
+    }
+
+    /**
+     * Une este cambio con otro de la misma entidad: queda el instante más
+     * reciente, la unión de los campos que cambiaron y la marca de publicación
+     * del otro, que es el más reciente
+     */
+    public EntityChange merge(EntityChange other) {
+        return new EntityChange(id, Math.max(changedAt, other.changedAt), changeMask | other.changeMask,
+                other.publishedAt, other.sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityChange{id=" + id + ", changedAt=" + changedAt + ", mask=" + changeMask + '}';
+    }
+}
@@ -0,0 +1,246 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Agrupa eventos ya serializados y los envía como un único arreglo JSON.
+ *
+ * El lote se envía en cuanto se cumple la primera de tres condiciones: llega a
+ * la cantidad máxima de eventos, el próximo evento haría superar el tamaño
+ * máximo, o pasó el tiempo de espera desde que entró el primer evento. Event
+ * Grid acepta o rechaza cada lote completo, así que el resultado del envío se
+ * propaga a todos los eventos del lote.
+ *
+ * Métricas (prefijo eventgrid.batch): flushes por motivo, eventos y bytes por
+ * lote, latencia del envío, lotes fallidos y eventos rechazados por tamaño.
+ */
+public class EventBatcher implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(EventBatcher.class.getName());
+
+    private static final String BATCHING_ENV = "EVENT_GRID_BATCHING";
+    private static final String MAX_EVENTS_ENV = "EVENT_GRID_BATCH_MAX_EVENTS";
+    private static final String MAX_BYTES_ENV = "EVENT_GRID_BATCH_MAX_BYTES";
+    private static final String LINGER_ENV = "EVENT_GRID_BATCH_LINGER_MS";
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "eventgrid-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Counter FLUSH_COUNT = Metrics.counter("eventgrid.batch.flush.count");
+    private static final Counter FLUSH_BYTES = Metrics.counter("eventgrid.batch.flush.bytes");
+    private static final Counter FLUSH_LINGER = Metrics.counter("eventgrid.batch.flush.linger");
+    private static final Counter FLUSH_EXPLICIT = Metrics.counter("eventgrid.batch.flush.explicit");
+    private static final Counter FAILED_BATCHES = Metrics.counter("eventgrid.batch.failed");
+    private static final Counter FAILED_EVENTS = Metrics.counter("eventgrid.batch.failed.events");
+    private static final Counter REJECTED_EVENTS = Metrics.counter("eventgrid.batch.rejected.events");
+    private static final Histogram BATCH_EVENTS = Metrics.histogram("eventgrid.batch.events");
+    private static final Histogram BATCH_BYTES = Metrics.histogram("eventgrid.batch.bytes");
+    private static final Histogram SEND_MILLIS = Metrics.histogram("eventgrid.batch.send.ms");
+
+    /**
+     * Envía el cuerpo de un lote ({@code [evento,evento,...]}) al topic
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<Boolean> send(byte[] body, int events);
+    }
+
+    private final Sender sender;
+    private final Settings settings;
+
+    private final Object lock = new Object();
+    private List<byte[]> events = new ArrayList<>();
+    private List<CompletableFuture<Boolean>> results = new ArrayList<>();
+    private int bytes;
+    private ScheduledFuture<?> lingerTask;
+
+    public EventBatcher(Sender sender, Settings settings) {
+        this.sender = sender;
+        this.settings = settings;
+    }
+
+    /**
+     * Agrega un evento serializado al lote en curso
+     *
+     * @return future que se completa con el resultado del envío del lote
+     */
+    public CompletableFuture<Boolean> submit(byte[] event) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (event.length + 2 > settings.maxBytes) {
+            logger.warning("Evento de " + event.length + " bytes supera el tamaño máximo de lote");
+            REJECTED_EVENTS.increment();
+            result.complete(false);
+            return result;
+        }
+
+        Batch full = null;
+        Batch overflow = null;
+        synchronized (lock) {
+            // El cuerpo ocupa la suma de los eventos, una coma entre cada uno y '[' ']'
+            if (!events.isEmpty() && bytes + event.length + 2 > settings.maxBytes) {
+                overflow = takeBatch();
+            }
+            events.add(event);
+            results.add(result);
+            bytes += event.length + 1;
+            if (events.size() >= settings.maxEvents) {
+                full = takeBatch();
+            } else if (events.size() == 1) {
+                lingerTask = SCHEDULER.schedule(this::flushOnLinger, settings.lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (overflow != null) {
+            FLUSH_BYTES.increment();
+            send(overflow);
+        }
+        if (full != null) {
+            FLUSH_COUNT.increment();
+            send(full);
+        }
+        return result;
+    }
+
+    /**
+     * Envía de inmediato el lote en curso, si hay eventos
+     */
+    public CompletableFuture<Void> flush() {
+        Batch batch;
+        synchronized (lock) {
+            batch = events.isEmpty() ? null : takeBatch();
+        }
+        if (batch == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        FLUSH_EXPLICIT.increment();
+        return send(batch);
+    }
+
+    @Override
+    public void close() {
+        flush().join();
+    }
+
+    private void flushOnLinger() {
+        Batch batch;
+        synchronized (lock) {
+            batch = events.isEmpty() ? null : takeBatch();
+        }
+        if (batch != null) {
+            FLUSH_LINGER.increment();
+            send(batch);
+        }
+    }
+
+    private Batch takeBatch() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+        Batch batch = new Batch(events, results, bytes);
+        events = new ArrayList<>();
+        results = new ArrayList<>();
+        bytes = 0;
+        return batch;
+    }
+
+    private CompletableFuture<Void> send(Batch batch) {
+        byte[] body = batch.body();
+        int count = batch.events.size();
+        BATCH_EVENTS.record(count);
+        BATCH_BYTES.record(body.length);
+        long start = System.nanoTime();
+
+        CompletableFuture<Boolean> sent;
+        try {
+            sent = sender.send(body, count);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.exceptionally(e -> {
+            logger.severe("Error al enviar lote de " + count + " eventos: " + e.getMessage());
+            return false;
+        }).thenAccept(success -> {
+            SEND_MILLIS.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (!success) {
+                FAILED_BATCHES.increment();
+                FAILED_EVENTS.add(count);
+            }
+            for (CompletableFuture<Boolean> result : batch.results) {
+                result.complete(success);
+            }
+        });
+    }
+
+    private static final class Batch {
+        final List<byte[]> events;
+        final List<CompletableFuture<Boolean>> results;
+        final int bytes;
+
+        Batch(List<byte[]> events, List<CompletableFuture<Boolean>> results, int bytes) {
+            this.events = events;
+            this.results = results;
+            this.bytes = bytes;
+        }
+
+        byte[] body() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes + 2);
+            out.write('[');
+            for (int i = 0; i < events.size(); i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.writeBytes(events.get(i));
+            }
+            out.write(']');
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Umbrales de envío de los lotes
+     */
+    public static final class Settings {
+        final int maxEvents;
+        final int maxBytes;
+        final long lingerMillis;
+
+        public Settings(int maxEvents, int maxBytes, long lingerMillis) {
+            this.maxEvents = Math.max(1, maxEvents);
+            this.maxBytes = maxBytes;
+            this.lingerMillis = Math.max(0, lingerMillis);
+        }
+
+        /**
+         * Configuración desde variables de entorno, o null si el envío por lotes
+         * no está habilitado (EVENT_GRID_BATCHING=true).
+         *
+         * EVENT_GRID_BATCH_MAX_EVENTS - eventos por lote (100 por defecto)
+         * EVENT_GRID_BATCH_MAX_BYTES  - tamaño máximo del lote (1 MB, el límite de Event Grid)
+         * EVENT_GRID_BATCH_LINGER_MS  - espera máxima desde el primer evento (50 ms por defecto)
+         */
+        public static Settings fromEnvironment() {
+            if (!"true".equalsIgnoreCase(System.getenv(BATCHING_ENV))) {
+                return null;
+            }
+            return new Settings(
+                    EnvSettings.intValue(MAX_EVENTS_ENV, 100),
+                    EnvSettings.intValue(MAX_BYTES_ENV, 1024 * 1024),
+                    EnvSettings.longValue(LINGER_ENV, 50));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Metrics;
+import com.function.repository.ProcessedEventRepository;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Descarta los eventos que ya se procesaron, por ID de evento.
+ *
+ * Event Grid entrega al menos una vez, así que un mismo evento puede llegar
+ * varias veces, a la misma instancia o a otra. Primero se consulta una ventana
+ * en memoria, acotada en tiempo y en cantidad de IDs, y los que no están ahí se
+ * buscan en la tabla PROCESSED_EVENTS, que comparten todas las instancias.
+ *
+ * Los eventos se registran como procesados recién después de procesarlos con
+ * éxito ({@link #markProcessed}); si el procesamiento falla, la reentrega se
+ * procesa de nuevo. Entre la consulta y el registro otra instancia puede
+ * procesar el mismo evento, por eso las escrituras de los consumidores siguen
+ * siendo idempotentes.
+ *
+ * Configuración:
+ * EVENT_DEDUP_WINDOW_MINUTES - ventana de deduplicación (1440, las 24 horas de reintentos de Event Grid)
+ * EVENT_DEDUP_MAX_ENTRIES    - IDs recordados en memoria (100000 por defecto)
+ */
+public class EventDeduplicator {
+    private static final Logger logger = Logger.getLogger(EventDeduplicator.class.getName());
+
+    private static final String WINDOW_ENV = "EVENT_DEDUP_WINDOW_MINUTES";
+    private static final String MAX_ENTRIES_ENV = "EVENT_DEDUP_MAX_ENTRIES";
+
+    private static final Counter MEMORY_HITS = Metrics.counter("consumer.dedup.memory.hits");
+    private static final Counter DB_HITS = Metrics.counter("consumer.dedup.db.hits");
+    private static final Counter BATCH_HITS = Metrics.counter("consumer.dedup.batch.hits");
+
+    private static final EventDeduplicator SHARED = new EventDeduplicator(new ProcessedEventRepository(),
+            Duration.ofMinutes(EnvSettings.longValue(WINDOW_ENV, 1440)), EnvSettings.intValue(MAX_ENTRIES_ENV, 100_000));
+
+    private final ProcessedEventRepository repository;
+    private final long windowMillis;
+    private final int maxEntries;
+
+    // IDs procesados con el instante en que se registraron, en orden de registro
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+    public EventDeduplicator(ProcessedEventRepository repository, Duration window, int maxEntries) {
+        this.repository = repository;
+        this.windowMillis = window.toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * Deduplicador compartido por los consumidores de la instancia
+     */
+    public static EventDeduplicator shared() {
+        return SHARED;
+    }
+
+    public Duration getWindow() {
+        return Duration.ofMillis(windowMillis);
+    }
+
+    /**
+     * Devuelve los eventos que no se procesaron todavía, en el orden recibido.
+     * Un ID repetido dentro del mismo lote se conserva sólo la primera vez. Los
+     * eventos sin ID no se pueden deduplicar y se conservan.
+     */
+    public List<EventGridEventData> filterNew(List<EventGridEventData> events) throws SQLException {
+        List<EventGridEventData> candidates = new ArrayList<>(events.size());
+        List<String> unknown = new ArrayList<>(events.size());
+        Set<String> inBatch = new HashSet<>();
+        long now = System.currentTimeMillis();
+
+        synchronized (seen) {
+            expire(now);
+            for (EventGridEventData event : events) {
+                if (event == null || event.id == null) {
+                    candidates.add(event);
+                    continue;
+                }
+                if (!inBatch.add(event.id)) {
+                    BATCH_HITS.increment();
+                    logger.info("Evento " + event.id + " repetido en el mismo lote, se descarta");
+                    continue;
+                }
+                if (seen.containsKey(event.id)) {
+                    MEMORY_HITS.increment();
+                    logger.info("Evento " + event.id + " ya procesado, se descarta");
+                    continue;
+                }
+                candidates.add(event);
+                unknown.add(event.id);
+            }
+        }
+
+        Set<String> processed = repository.findProcessed(unknown);
+        if (processed.isEmpty()) {
+            return candidates;
+        }
+
+        List<EventGridEventData> fresh = new ArrayList<>(candidates.size());
+        synchronized (seen) {
+            for (EventGridEventData event : candidates) {
+                if (event != null && event.id != null && processed.contains(event.id)) {
+                    DB_HITS.increment();
+                    logger.info("Evento " + event.id + " ya procesado por otra instancia, se descarta");
+                    remember(event.id, now);
+                } else {
+                    fresh.add(event);
+                }
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Indica si el evento ya se procesó
+     */
+    public boolean isDuplicate(EventGridEventData event) throws SQLException {
+        return filterNew(List.of(event)).isEmpty();
+    }
+
+    /**
+     * Registra los eventos como procesados, en memoria y en la base de datos
+     */
+    public void markProcessed(List<EventGridEventData> events) throws SQLException {
+        Map<String, String> types = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        synchronized (seen) {
+            for (EventGridEventData event : events) {
+                if (event != null && event.id != null) {
+                    remember(event.id, now);
+                    types.put(event.id, event.eventType);
+                }
+            }
+        }
+        repository.markProcessed(types);
+    }
+
+    /**
+     * Borra de la base de datos los registros fuera de la ventana
+     */
+    public int purge() throws SQLException {
+        return repository.purgeOlderThan(getWindow());
+    }
+
+    private void remember(String eventId, long now) {
+        seen.remove(eventId);
+        seen.put(eventId, now);
+        if (seen.size() > maxEntries) {
+            Iterator<String> oldest = seen.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Long> it = seen.values().iterator();
+        while (it.hasNext() && now - it.next() > windowMillis) {
+            it.remove();
+        }
+    }
+}
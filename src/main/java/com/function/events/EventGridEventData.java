@@ -0,0 +1,24 @@
+package com.function.events;
+
+/**
+ * Sobre de un evento con el esquema de Event Grid, tal como llega al consumidor.
+ *
+ * {@code data} se decodifica al leer el sobre según {@code eventType} (ver
+ * EventGridEventDataTypeAdapter): {@link EntityChange} para user/created,
+ * user/updated y role/deleted y el árbol JSON para la validación de
+ * suscripciones. Para los
+ * tipos desconocidos el contenido se descarta y {@code data} queda en null; si
+ * el contenido no es válido para el tipo, {@code data} queda en null y
+ * {@code dataError} describe el problema.
+ */
+public class EventGridEventData {
+    public String id;
+    public String eventType;
+    public String subject;
+    public String eventTime;
+    public Object data;
+    public String dataError;
+    public String dataVersion;
+    public String metadataVersion;
+    public String topic;
+}
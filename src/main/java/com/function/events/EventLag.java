@@ -0,0 +1,78 @@
+package com.function.events;
+
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Demoras de extremo a extremo de los eventos procesados por los
+ * consumidores, por tipo de evento:
+ *
+ * consumer.lag.&lt;tipo&gt;.ms       - desde la publicación (publishedAt de la
+ *                                  {@link PublishStamp}) hasta el fin del
+ *                                  procesamiento
+ * consumer.event_lag.&lt;tipo&gt;.ms - desde el eventTime, que en los eventos de
+ *                                  la outbox es el commit del cambio, hasta el
+ *                                  fin del procesamiento
+ *
+ * con el tipo escrito con guion bajo (user_created). Sólo se registran los
+ * tipos que procesan los consumidores y los eventos con marca o eventTime
+ * válidos. Las demoras dependen de que los relojes de las instancias estén
+ * sincronizados; una demora negativa se registra como 0.
+ */
+public final class EventLag {
+    private static final Map<String, Histogram> PUBLISH_LAG = histograms("consumer.lag.");
+    private static final Map<String, Histogram> EVENT_LAG = histograms("consumer.event_lag.");
+
+    private EventLag() {
+    }
+
+    /**
+     * Registra las demoras de los eventos recién procesados
+     */
+    public static void record(List<EventGridEventData> events) {
+        long now = System.currentTimeMillis();
+        for (EventGridEventData event : events) {
+            record(event, now);
+        }
+    }
+
+    /**
+     * Registra las demoras de un evento recién procesado
+     */
+    public static void record(EventGridEventData event) {
+        record(event, System.currentTimeMillis());
+    }
+
+    private static void record(EventGridEventData event, long now) {
+        if (event == null || event.eventType == null) {
+            return;
+        }
+        Histogram publishLag = PUBLISH_LAG.get(event.eventType);
+        if (publishLag == null) {
+            return;
+        }
+        if (event.data instanceof EntityChange change && change.getPublishedAt() > 0) {
+            publishLag.record(now - change.getPublishedAt());
+        }
+        if (event.eventTime != null) {
+            try {
+                long eventTime = OffsetDateTime.parse(event.eventTime).toInstant().toEpochMilli();
+                EVENT_LAG.get(event.eventType).record(now - eventTime);
+            } catch (DateTimeParseException e) {
+                // Sin eventTime válido sólo queda la demora desde la publicación
+            }
+        }
+    }
+
+    private static Map<String, Histogram> histograms(String prefix) {
+        return Map.of(
+                EventTypes.USER_CREATED, Metrics.histogram(prefix + "user_created.ms"),
+                EventTypes.USER_UPDATED, Metrics.histogram(prefix + "user_updated.ms"),
+                EventTypes.ROLE_DELETED, Metrics.histogram(prefix + "role_deleted.ms"));
+    }
+}
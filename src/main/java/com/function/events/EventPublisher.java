@@ -0,0 +1,62 @@
+package com.function.events;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publicador de eventos hacia un topic de Event Grid, independiente del
+ * transporte.
+ *
+ * Hay una implementación sobre HTTP directo ({@code EventGridPublisher}), otra
+ * sobre el SDK de Azure ({@code SdkEventGridPublisher}) y otra en memoria para
+ * pruebas ({@link InMemoryEventPublisher}); {@code EventPublishers.forTopic}
+ * elige una según EVENT_PUBLISHER y la comparte en todo el proceso.
+ *
+ * Ningún método lanza excepciones por fallas de publicación: el resultado se
+ * informa con true/false, o con un {@link PublishResult}.
+ */
+public interface EventPublisher {
+
+    /**
+     * Publica un evento y espera la respuesta
+     *
+     * @param eventType El tipo de evento (ej: user/created)
+     * @param subject   El asunto del evento (ej: users/123)
+     * @param data      El objeto de datos que se serializará a JSON
+     * @return          true si el evento se publicó con éxito
+     */
+    boolean publishEvent(String eventType, String subject, Object data);
+
+    /**
+     * Publica un evento sin bloquear al llamador
+     *
+     * @return future que se completa con true si el evento se publicó con éxito
+     *         y con false en caso contrario; nunca falla
+     */
+    CompletableFuture<Boolean> publishEventAsync(String eventType, String subject, Object data);
+
+    /**
+     * Publica un lote ya armado ({@code [evento,evento,...]}) y espera la
+     * respuesta. El llamador conserva los eventos hasta que se publiquen y,
+     * al armar el lote, agrega la marca de publicación ({@link PublishStamp}):
+     * el publicador envía el cuerpo tal cual.
+     *
+     * @param body   El arreglo JSON de eventos
+     * @param events Cantidad de eventos del lote, para el log
+     * @return       true si el topic aceptó el lote
+     */
+    boolean publishBatch(byte[] body, int events);
+
+    /**
+     * Como {@link #publishBatch}, pero distingue un rechazo definitivo del topic
+     * (ver {@link PublishResult}) de una falla transitoria. Los transportes que
+     * no pueden distinguirlos informan toda falla como transitoria.
+     */
+    default PublishResult publishBatchResult(byte[] body, int events) {
+        return publishBatch(body, events) ? PublishResult.PUBLISHED : PublishResult.RETRYABLE;
+    }
+
+    /**
+     * Envía de inmediato los eventos que el publicador tenga pendientes, si hay
+     */
+    CompletableFuture<Void> flush();
+}
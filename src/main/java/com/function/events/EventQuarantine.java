@@ -0,0 +1,124 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Metrics;
+import com.function.repository.QuarantineRepository;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Captura los eventos que el consumidor no puede procesar.
+ *
+ * Cada fallo se registra en la tabla QUARANTINED_EVENTS con el evento completo,
+ * el motivo y la cantidad de intentos, que comparten todas las instancias.
+ * Mientras los intentos no lleguen al máximo el consumidor relanza la excepción
+ * y Event Grid reintenta; al llegar al máximo, o si el fallo es permanente
+ * (datos inválidos), el evento queda retenido en la cuarentena y el consumidor
+ * termina sin error para que Event Grid deje de reintentarlo. Los eventos
+ * retenidos se reproducen con la función replayQuarantinedEvents.
+ *
+ * Si un reintento termina con éxito en la misma instancia que registró el
+ * fallo, el evento se saca de la cuarentena. Las filas que dejan los reintentos
+ * exitosos en otra instancia son inofensivas: al reproducirlas, el
+ * {@link EventDeduplicator} las reconoce como procesadas y se borran.
+ *
+ * Configuración:
+ * EVENT_QUARANTINE_MAX_ATTEMPTS - fallos antes de retener el evento (5 por defecto)
+ */
+public class EventQuarantine {
+    private static final Logger logger = Logger.getLogger(EventQuarantine.class.getName());
+
+    private static final String MAX_ATTEMPTS_ENV = "EVENT_QUARANTINE_MAX_ATTEMPTS";
+
+    // IDs con fallos registrados por esta instancia; se vacía si crece demasiado
+    private static final int MAX_TRACKED = 10_000;
+
+    private static final Counter FAILURES = Metrics.counter("consumer.quarantine.failures");
+    private static final Counter HELD = Metrics.counter("consumer.quarantine.held");
+
+    private static final EventQuarantine SHARED = new EventQuarantine(new QuarantineRepository(),
+            EnvSettings.intValue(MAX_ATTEMPTS_ENV, 5));
+
+    private final QuarantineRepository repository;
+    private final int maxAttempts;
+    private final Set<String> failedHere = ConcurrentHashMap.newKeySet();
+
+    public EventQuarantine(QuarantineRepository repository, int maxAttempts) {
+        this.repository = repository;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Cuarentena compartida por los consumidores de la instancia
+     */
+    public static EventQuarantine shared() {
+        return SHARED;
+    }
+
+    public QuarantineRepository getRepository() {
+        return repository;
+    }
+
+    /**
+     * Registra un fallo al procesar el evento
+     *
+     * @param payload   evento completo en JSON, tal como llegó
+     * @param event     evento decodificado, o null si no se pudo decodificar
+     * @param reason    motivo del fallo
+     * @param permanent true si reintentar no puede cambiar el resultado
+     * @return true si el evento quedó retenido en la cuarentena y no debe
+     *         reintentarse; false si Event Grid debe seguir reintentando, lo
+     *         que incluye el caso en que no se pudo registrar el fallo
+     */
+    public boolean recordFailure(String payload, EventGridEventData event, String reason, boolean permanent) {
+        String eventId = event != null && event.id != null ? event.id : "sin-id-" + UUID.randomUUID();
+        String eventType = event != null ? event.eventType : null;
+        String subject = event != null ? event.subject : null;
+        FAILURES.increment();
+
+        int attempts;
+        try {
+            attempts = repository.recordFailure(eventId, eventType, subject, payload, reason);
+        } catch (SQLException | IllegalStateException e) {
+            logger.severe("No se pudo registrar el fallo del evento " + eventId + " en la cuarentena: " + e.getMessage());
+            return false;
+        }
+        track(eventId);
+
+        if (permanent || attempts >= maxAttempts) {
+            HELD.increment();
+            logger.warning("Evento " + eventId + " retenido en cuarentena tras " + attempts + " intentos: " + reason);
+            return true;
+        }
+        logger.info("Fallo " + attempts + " de " + maxAttempts + " del evento " + eventId + " registrado en la cuarentena");
+        return false;
+    }
+
+    /**
+     * Saca el evento de la cuarentena si esta instancia había registrado un
+     * fallo suyo; se llama después de procesarlo con éxito
+     */
+    public void resolved(EventGridEventData event) {
+        if (event == null || event.id == null || !failedHere.remove(event.id)) {
+            return;
+        }
+        try {
+            repository.delete(event.id);
+            logger.info("Evento " + event.id + " procesado en un reintento, se saca de la cuarentena");
+        } catch (SQLException | IllegalStateException e) {
+            logger.warning("No se pudo sacar el evento " + event.id + " de la cuarentena: " + e.getMessage());
+        }
+    }
+
+    private void track(String eventId) {
+        if (failedHere.size() >= MAX_TRACKED) {
+            failedHere.clear();
+        }
+        failedHere.add(eventId);
+    }
+}
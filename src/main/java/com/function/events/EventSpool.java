@@ -0,0 +1,364 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+/**
+ * Spool local, en un archivo mapeado en memoria, para los lotes de eventos que
+ * no se pudieron publicar después de agotar los reintentos.
+ *
+ * Los lotes se agregan siempre al final y se consumen desde el principio (ver
+ * {@link SpoolDrainer}). El archivo tiene tamaño fijo y se usa como un buffer
+ * circular: cuando no queda lugar al final, el lote se escribe al inicio si los
+ * lotes ya consumidos dejaron lugar ahí, y se marca el salto en la posición
+ * donde terminaba el anterior. Si no hay lugar, el lote se descarta y se cuenta
+ * en eventgrid.spool.dropped. Los lotes que no se pueden publicar nunca se
+ * apartan con {@link #deadLetter(String)} en un archivo .dead junto al spool.
+ *
+ * Formato: una cabecera con la posición de escritura, la de lectura y la
+ * cantidad de lotes, y luego registros [largo, eventos, instante, cuerpo]. Los
+ * registros nunca se mueven: cada lote se escribe en lugar libre y la cabecera
+ * se escribe y se fuerza a disco después, así que la cabecera en disco siempre
+ * apunta a registros intactos y tras un reinicio (o una caída en cualquier
+ * punto) el spool retoma los lotes confirmados.
+ *
+ * Configuración:
+ * EVENT_GRID_SPOOL_DIR   - directorio del spool (java.io.tmpdir por defecto)
+ * EVENT_GRID_SPOOL_BYTES - tamaño del archivo (64 MB por defecto)
+ */
+public class EventSpool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(EventSpool.class.getName());
+
+    private static final String DIR_ENV = "EVENT_GRID_SPOOL_DIR";
+    private static final String BYTES_ENV = "EVENT_GRID_SPOOL_BYTES";
+
+    private static final int MAGIC = 0x45475350; // "EGSP"
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final int WRITE_POS = 8;
+    private static final int READ_POS = 16;
+    private static final int COUNT = 24;
+    // Largo de registro que indica que el siguiente está al inicio del archivo
+    private static final int WRAP = -1;
+
+    private static final Counter APPENDED = Metrics.counter("eventgrid.spool.appended");
+    private static final Counter DROPPED = Metrics.counter("eventgrid.spool.dropped");
+    private static final Counter DEAD_LETTERED = Metrics.counter("eventgrid.spool.dead_lettered");
+
+    private final Path path;
+    private final String name;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private int writePos;
+    private int readPos;
+    private int count;
+    // Bytes de los registros pendientes; se recalcula al abrir
+    private long pendingBytes;
+
+    /**
+     * Lote leído del spool
+     */
+    public static final class Entry {
+        private final byte[] body;
+        private final int events;
+        private final long spooledAt;
+
+        Entry(byte[] body, int events, long spooledAt) {
+            this.body = body;
+            this.events = events;
+            this.spooledAt = spooledAt;
+        }
+
+        /** Arreglo JSON con los eventos del lote */
+        public byte[] getBody() {
+            return body;
+        }
+
+        public int getEvents() {
+            return events;
+        }
+
+        /** Instante (epoch ms) en que el lote entró al spool */
+        public long getSpooledAt() {
+            return spooledAt;
+        }
+    }
+
+    /**
+     * Abre el spool, creando el archivo si no existe. Si el archivo existe y es
+     * un spool válido se retoman sus lotes pendientes.
+     */
+    public EventSpool(Path path, int capacity) throws IOException {
+        this(path, capacity, path.getFileName().toString().replace(".spool", ""));
+    }
+
+    /**
+     * @param name Nombre del spool en las métricas (eventgrid.spool.&lt;nombre&gt;.*)
+     */
+    public EventSpool(Path path, int capacity, String name) throws IOException {
+        if (capacity <= HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Capacidad de spool demasiado chica: " + capacity);
+        }
+        this.path = path;
+        this.name = name;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        if (buffer.getInt(0) == MAGIC && isValidHeader()) {
+            writePos = (int) buffer.getLong(WRITE_POS);
+            readPos = (int) buffer.getLong(READ_POS);
+            count = (int) buffer.getLong(COUNT);
+            pendingBytes = measure();
+            if (count > 0) {
+                logger.info("Spool " + path + " con " + count + " lotes pendientes");
+            }
+        } else {
+            buffer.putInt(0, MAGIC);
+            reset();
+        }
+    }
+
+    /**
+     * Spool para el topic, en EVENT_GRID_SPOOL_DIR, o null si no se puede abrir
+     */
+    public static EventSpool forTopic(String topicEndpoint) {
+        String dir = System.getenv(DIR_ENV);
+        Path base = Paths.get(dir != null && !dir.isEmpty() ? dir : System.getProperty("java.io.tmpdir"));
+        Path file = base.resolve("eventgrid-" + Integer.toHexString(topicEndpoint.hashCode()) + ".spool");
+        try {
+            Files.createDirectories(base);
+            return new EventSpool(file, EnvSettings.intValue(BYTES_ENV, 64 * 1024 * 1024), topicName(topicEndpoint));
+        } catch (IOException | RuntimeException e) {
+            logger.severe("No se pudo abrir el spool de eventos " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Agrega un lote al final del spool
+     *
+     * @return true si el lote quedó guardado, false si no hay lugar
+     */
+    public synchronized boolean append(byte[] body, int events) {
+        int needed = RECORD_HEADER_BYTES + body.length;
+        int at = freePosition(needed);
+        if (at < 0) {
+            logger.severe("Spool de eventos lleno, se descarta lote de " + events + " eventos");
+            DROPPED.add(events);
+            return false;
+        }
+
+        buffer.putInt(at, body.length);
+        buffer.putInt(at + 4, events);
+        buffer.putLong(at + 8, System.currentTimeMillis());
+        buffer.put(at + RECORD_HEADER_BYTES, body);
+        if (at != writePos && writePos + 4 <= capacity) {
+            // El lector salta al inicio al encontrar la marca
+            buffer.putInt(writePos, WRAP);
+        }
+        buffer.force();
+
+        writePos = at + needed;
+        count++;
+        pendingBytes += needed;
+        writeHeader();
+        APPENDED.add(events);
+        return true;
+    }
+
+    /**
+     * Primer lote pendiente, sin quitarlo del spool, o null si está vacío
+     */
+    public synchronized Entry peek() {
+        if (count == 0) {
+            return null;
+        }
+        int length = buffer.getInt(readPos);
+        byte[] body = new byte[length];
+        buffer.get(readPos + RECORD_HEADER_BYTES, body);
+        return new Entry(body, buffer.getInt(readPos + 4), buffer.getLong(readPos + 8));
+    }
+
+    /**
+     * Quita el primer lote pendiente, una vez publicado
+     */
+    public synchronized void remove() {
+        if (count == 0) {
+            return;
+        }
+        int size = RECORD_HEADER_BYTES + buffer.getInt(readPos);
+        readPos = recordAt(readPos + size);
+        pendingBytes -= size;
+        count--;
+        if (count == 0) {
+            reset();
+        } else {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Aparta el primer lote pendiente, que no se puede publicar, agregándolo como
+     * una línea al archivo .dead junto al spool, y lo quita del spool. Si no se
+     * puede escribir el archivo, el lote se descarta.
+     */
+    public synchronized void deadLetter(String reason) {
+        Entry entry = peek();
+        if (entry == null) {
+            return;
+        }
+        Path deadLetters = path.resolveSibling(path.getFileName() + ".dead");
+        try {
+            Files.write(deadLetters, entry.getBody(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Files.write(deadLetters, new byte[] { '\n' }, StandardOpenOption.APPEND);
+            DEAD_LETTERED.add(entry.getEvents());
+            logger.severe("Lote de " + entry.getEvents() + " eventos apartado en " + deadLetters + ": " + reason);
+        } catch (IOException e) {
+            DROPPED.add(entry.getEvents());
+            logger.severe("No se pudo apartar en " + deadLetters + ", se descarta lote de " + entry.getEvents()
+                    + " eventos (" + reason + "): " + e.getMessage());
+        }
+        remove();
+    }
+
+    /**
+     * Cantidad de lotes pendientes
+     */
+    public synchronized int depth() {
+        return count;
+    }
+
+    /**
+     * Bytes ocupados por los lotes pendientes
+     */
+    public synchronized long bytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Antigüedad en ms del lote pendiente más viejo, o 0 si está vacío
+     */
+    public synchronized long oldestAgeMillis() {
+        return count == 0 ? 0 : Math.max(0, System.currentTimeMillis() - buffer.getLong(readPos + 8));
+    }
+
+    /**
+     * Nombre del spool en las métricas
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            buffer.force();
+        }
+        channel.close();
+    }
+
+    /**
+     * Posición donde cabe un registro de {@code needed} bytes sin pisar lotes
+     * pendientes: a continuación del último o, si no cabe al final del archivo,
+     * al inicio. -1 si no hay lugar.
+     */
+    private int freePosition(int needed) {
+        boolean wrapped = writePos < readPos || (writePos == readPos && count > 0);
+        if (!wrapped) {
+            if (writePos + needed <= capacity) {
+                return writePos;
+            }
+            return HEADER_BYTES + needed <= readPos ? HEADER_BYTES : -1;
+        }
+        return writePos + needed <= readPos ? writePos : -1;
+    }
+
+    /**
+     * Posición del registro que empieza en {@code pos}, siguiendo la marca de
+     * salto al inicio del archivo
+     */
+    private int recordAt(int pos) {
+        if (pos + RECORD_HEADER_BYTES > capacity || buffer.getInt(pos) == WRAP) {
+            return HEADER_BYTES;
+        }
+        return pos;
+    }
+
+    /**
+     * Bytes de los registros pendientes, recorriéndolos desde la posición de lectura
+     */
+    private long measure() {
+        long total = 0;
+        int pos = readPos;
+        for (int i = 0; i < count; i++) {
+            int size = RECORD_HEADER_BYTES + buffer.getInt(pos);
+            total += size;
+            pos = recordAt(pos + size);
+        }
+        return total;
+    }
+
+    private void reset() {
+        writePos = HEADER_BYTES;
+        readPos = HEADER_BYTES;
+        count = 0;
+        pendingBytes = 0;
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        buffer.putLong(WRITE_POS, writePos);
+        buffer.putLong(READ_POS, readPos);
+        buffer.putLong(COUNT, count);
+        buffer.force();
+    }
+
+    private boolean isValidHeader() {
+        long write = buffer.getLong(WRITE_POS);
+        long read = buffer.getLong(READ_POS);
+        long pending = buffer.getLong(COUNT);
+        return read >= HEADER_BYTES && read <= capacity && write >= HEADER_BYTES && write <= capacity
+                && pending >= 0 && (pending > 0 || read == write);
+    }
+
+    /**
+     * Nombre del topic para las métricas: la primera etiqueta del host
+     * (https://&lt;topic&gt;.&lt;región&gt;.eventgrid.azure.net/...), o el host y el
+     * puerto si es una dirección IP o localhost
+     */
+    static String topicName(String topicEndpoint) {
+        try {
+            URI uri = URI.create(topicEndpoint);
+            String host = uri.getHost();
+            if (host == null) {
+                return "topic";
+            }
+            if (Character.isDigit(host.charAt(0)) || host.equals("localhost")) {
+                return (host + "_" + uri.getPort()).replaceAll("[^A-Za-z0-9_-]", "_");
+            }
+            int dot = host.indexOf('.');
+            return (dot > 0 ? host.substring(0, dot) : host).toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return "topic";
+        }
+    }
+}
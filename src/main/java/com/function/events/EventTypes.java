@@ -0,0 +1,16 @@
+package com.function.events;
+
+/**
+ * Tipos de evento que se publican en Event Grid
+ */
+public final class EventTypes {
+    public static final String USER_CREATED = "user/created";
+    public static final String USER_UPDATED = "user/updated";
+    public static final String ROLE_DELETED = "role/deleted";
+
+    /** Evento que envía Event Grid al crear una suscripción webhook */
+    public static final String SUBSCRIPTION_VALIDATION = "Microsoft.EventGrid.SubscriptionValidationEvent";
+
+    private EventTypes() {
+    }
+}
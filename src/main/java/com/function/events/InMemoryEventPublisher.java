@@ -0,0 +1,110 @@
+package com.function.events;
+
+import com.function.json.Json;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Publicador que guarda los eventos en memoria en lugar de enviarlos, para
+ * pruebas y desarrollo local (EVENT_PUBLISHER=memory).
+ *
+ * Los eventos se guardan decodificados igual que los leería el consumidor, así
+ * que una prueba puede pasarlos directamente a {@link UserEventBatchProcessor}.
+ * Con {@link #setAvailable(boolean)} se simula una caída del topic.
+ */
+public class InMemoryEventPublisher implements EventPublisher {
+    private static final Logger logger = Logger.getLogger(InMemoryEventPublisher.class.getName());
+
+    private final Gson gson = Json.compact();
+    private final List<EventGridEventData> events = new ArrayList<>();
+    private volatile boolean available = true;
+
+    @Override
+    public boolean publishEvent(String eventType, String subject, Object data) {
+        if (!available) {
+            return false;
+        }
+        JsonObject event = new JsonObject();
+        event.addProperty("id", UUID.randomUUID().toString());
+        event.addProperty("eventType", eventType);
+        event.addProperty("subject", subject);
+        event.addProperty("eventTime", OffsetDateTime.now().format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        event.addProperty("dataVersion", "1.0");
+        JsonElement content = gson.toJsonTree(data);
+        PublishStamp.stamp(content);
+        event.add("data", content);
+        record(List.of(gson.fromJson(event, EventGridEventData.class)));
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> publishEventAsync(String eventType, String subject, Object data) {
+        return CompletableFuture.completedFuture(publishEvent(eventType, subject, data));
+    }
+
+    @Override
+    public boolean publishBatch(byte[] body, int events) {
+        return publishBatchResult(body, events).isPublished();
+    }
+
+    @Override
+    public PublishResult publishBatchResult(byte[] body, int events) {
+        if (!available) {
+            return PublishResult.RETRYABLE;
+        }
+        try {
+            EventGridEventData[] parsed = gson.fromJson(new String(body, StandardCharsets.UTF_8),
+                    EventGridEventData[].class);
+            record(parsed != null ? Arrays.asList(parsed) : List.of());
+            return PublishResult.PUBLISHED;
+        } catch (JsonParseException e) {
+            // Event Grid rechaza el lote completo con 400
+            logger.severe("Lote de " + events + " eventos inválido: " + e.getMessage());
+            return PublishResult.REJECTED;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Eventos publicados hasta ahora, en orden de publicación
+     */
+    public synchronized List<EventGridEventData> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * Devuelve los eventos publicados y los quita del publicador
+     */
+    public synchronized List<EventGridEventData> drain() {
+        List<EventGridEventData> drained = new ArrayList<>(events);
+        events.clear();
+        return drained;
+    }
+
+    /**
+     * Con false las publicaciones fallan como si el topic no respondiera
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    private synchronized void record(List<EventGridEventData> published) {
+        events.addAll(published);
+    }
+}
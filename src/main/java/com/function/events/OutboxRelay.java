@@ -0,0 +1,384 @@
+package com.function.events;
+
+import com.function.OracleDBConnection;
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+import com.function.model.OutboxEvent;
+import com.function.repository.OutboxRepository;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Publica en Event Grid los eventos de la tabla OUTBOX.
+ *
+ * Cada lote se publica en dos transacciones cortas: en la primera se reservan
+ * hasta batchSize eventos con SELECT ... FOR UPDATE SKIP LOCKED y LEASED_UNTIL,
+ * y se confirma; después se publican, sin bloqueos ni conexión tomados; en la
+ * segunda se borran los publicados y se registra el resultado del resto.
+ * Varias instancias pueden ejecutar el relay a la vez: cada una reserva filas
+ * distintas, y si una se cae sus filas vuelven a estar libres al vencer la
+ * reserva.
+ *
+ * Los eventos reservados se envían en orden de inserción, en arreglos que no
+ * superan maxBatchBytes (Event Grid rechaza con 413 los pedidos de más de 1 MB).
+ * Según el {@link PublishResult}:
+ *
+ * - rechazo del contenido (400, 413): el arreglo se parte en mitades para
+ *   aislar los eventos rechazados, que pasan a OUTBOX_DEAD_LETTER; los demás
+ *   se publican
+ * - cualquier otra falla: los eventos suman un intento y no se vuelven a tomar
+ *   hasta pasada una espera exponencial (10 s a 10 min); al llegar a
+ *   maxAttempts pasan a OUTBOX_DEAD_LETTER. El relay se detiene hasta la
+ *   próxima ejecución y los eventos que no llegó a enviar se liberan sin
+ *   contar un intento
+ *
+ * Así un evento que Event Grid no acepta nunca deja de bloquear la outbox.
+ *
+ * El ID de cada evento se genera al escribir la outbox, así que un evento que
+ * se reenvía tras un fallo parcial llega con el mismo ID.
+ */
+public class OutboxRelay {
+    private static final Logger logger = Logger.getLogger(OutboxRelay.class.getName());
+
+    private static final long RETRY_BASE_MILLIS = 10_000;
+    private static final long RETRY_MAX_MILLIS = 600_000;
+    // Nombres de los campos del sobre, ID, eventTime, dataVersion y la marca de publicación
+    private static final int ENVELOPE_BYTES = 256;
+
+    private static final Counter PUBLISHED = Metrics.counter("outbox.relay.published");
+    private static final Counter FAILED = Metrics.counter("outbox.relay.failed");
+    private static final Counter DEAD_LETTERED = Metrics.counter("outbox.relay.dead_lettered");
+    private static final Histogram LAG_MILLIS = Metrics.histogram("outbox.relay.lag.ms");
+
+    /**
+     * Publica un lote ya armado ({@code [evento,evento,...]})
+     */
+    @FunctionalInterface
+    public interface BatchPublisher {
+        PublishResult publish(byte[] body, int events);
+    }
+
+    /**
+     * Límites del relay
+     */
+    public static final class Settings {
+        final int batchSize;
+        final int maxBatchBytes;
+        final int maxAttempts;
+        final long leaseMillis;
+
+        /**
+         * @param batchSize     eventos reservados por lote
+         * @param maxBatchBytes tamaño máximo de cada arreglo enviado
+         * @param maxAttempts   intentos fallidos antes de apartar un evento
+         * @param leaseMillis   duración de la reserva; debe cubrir la publicación
+         *                      con todos sus reintentos
+         */
+        public Settings(int batchSize, int maxBatchBytes, int maxAttempts, long leaseMillis) {
+            this.batchSize = Math.max(1, batchSize);
+            this.maxBatchBytes = Math.max(1, maxBatchBytes);
+            this.maxAttempts = Math.max(1, maxAttempts);
+            this.leaseMillis = Math.max(1, leaseMillis);
+        }
+
+        /**
+         * Configuración desde variables de entorno:
+         *
+         * OUTBOX_RELAY_BATCH_SIZE     - eventos por lote (100 por defecto)
+         * OUTBOX_RELAY_MAX_BYTES      - tamaño máximo de cada envío (1 MB, el límite de Event Grid)
+         * OUTBOX_RELAY_MAX_ATTEMPTS   - intentos fallidos antes de apartar un evento (12 por defecto,
+         *                               alrededor de una hora de reintentos)
+         * OUTBOX_RELAY_LEASE_SECONDS  - duración de la reserva (120 s por defecto)
+         */
+        public static Settings fromEnvironment() {
+            return new Settings(
+                    EnvSettings.intValue("OUTBOX_RELAY_BATCH_SIZE", 100),
+                    EnvSettings.intValue("OUTBOX_RELAY_MAX_BYTES", 1024 * 1024),
+                    EnvSettings.intValue("OUTBOX_RELAY_MAX_ATTEMPTS", 12),
+                    EnvSettings.longValue("OUTBOX_RELAY_LEASE_SECONDS", 120) * 1000);
+        }
+    }
+
+    /**
+     * Eventos de un lote agrupados por resultado
+     */
+    private static final class Outcome {
+        final List<OutboxEvent> published = new ArrayList<>();
+        final List<OutboxEvent> rejected = new ArrayList<>();
+        final List<OutboxEvent> failed = new ArrayList<>();
+        final List<OutboxEvent> notSent = new ArrayList<>();
+    }
+
+    private final OutboxRepository outboxRepository;
+    private final BatchPublisher publisher;
+    private final Settings settings;
+
+    public OutboxRelay(OutboxRepository outboxRepository, BatchPublisher publisher, Settings settings) {
+        this.outboxRepository = outboxRepository;
+        this.publisher = publisher;
+        this.settings = settings;
+    }
+
+    /**
+     * Publica lotes hasta vaciar la outbox, hasta que un envío falle de forma
+     * transitoria o hasta {@code maxBatches} lotes
+     *
+     * @return cantidad de eventos publicados
+     */
+    public int relay(int maxBatches) throws SQLException {
+        int published = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            List<OutboxEvent> events = claim();
+            if (events.isEmpty()) {
+                break;
+            }
+            Outcome outcome = publish(events);
+            complete(outcome);
+            published += outcome.published.size();
+            if (!outcome.failed.isEmpty() || events.size() < settings.batchSize) {
+                break;
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Primera transacción: reserva el lote y confirma
+     */
+    private List<OutboxEvent> claim() throws SQLException {
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<OutboxEvent> events = outboxRepository.claimBatch(conn, settings.batchSize,
+                        OffsetDateTime.now().plus(Duration.ofMillis(settings.leaseMillis)));
+                conn.commit();
+                return events;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Publica los eventos reservados, fuera de toda transacción
+     */
+    private Outcome publish(List<OutboxEvent> events) {
+        Outcome outcome = new Outcome();
+        List<List<OutboxEvent>> chunks = split(events, settings.maxBatchBytes);
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!outcome.failed.isEmpty()) {
+                // El topic no responde: no tiene sentido seguir enviando en esta ejecución
+                outcome.notSent.addAll(chunks.get(i));
+                continue;
+            }
+            publishChunk(chunks.get(i), outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Envía un arreglo; si el topic lo rechaza y tiene más de un evento, envía
+     * cada mitad por separado para aislar los eventos rechazados
+     */
+    private void publishChunk(List<OutboxEvent> chunk, Outcome outcome) {
+        PublishResult result;
+        try {
+            result = publisher.publish(toEventGridBatch(chunk), chunk.size());
+        } catch (RuntimeException e) {
+            logger.warning("Error al publicar un lote de la outbox: " + e.getMessage());
+            result = PublishResult.RETRYABLE;
+        }
+
+        switch (result) {
+            case PUBLISHED:
+                outcome.published.addAll(chunk);
+                break;
+            case REJECTED:
+                if (chunk.size() == 1) {
+                    outcome.rejected.add(chunk.get(0));
+                    break;
+                }
+                int half = chunk.size() / 2;
+                publishChunk(chunk.subList(0, half), outcome);
+                if (outcome.failed.isEmpty()) {
+                    publishChunk(chunk.subList(half, chunk.size()), outcome);
+                } else {
+                    outcome.notSent.addAll(chunk.subList(half, chunk.size()));
+                }
+                break;
+            default:
+                outcome.failed.addAll(chunk);
+                break;
+        }
+    }
+
+    /**
+     * Segunda transacción: borra los publicados, aparta los rechazados y los que
+     * agotaron los intentos, y registra el intento de los demás
+     */
+    private void complete(Outcome outcome) throws SQLException {
+        List<OutboxEvent> retry = new ArrayList<>();
+        List<OutboxEvent> exhausted = new ArrayList<>();
+        for (OutboxEvent event : outcome.failed) {
+            (event.getAttempts() + 1 >= settings.maxAttempts ? exhausted : retry).add(event);
+        }
+        int attempts = 0;
+        for (OutboxEvent event : retry) {
+            attempts = Math.max(attempts, event.getAttempts() + 1);
+        }
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                if (!outcome.published.isEmpty()) {
+                    outboxRepository.delete(conn, outcome.published);
+                }
+                if (!outcome.rejected.isEmpty()) {
+                    outboxRepository.deadLetter(conn, outcome.rejected, "Event Grid rechazó el evento");
+                }
+                if (!retry.isEmpty()) {
+                    outboxRepository.markFailed(conn, retry, "Event Grid no aceptó el lote",
+                            OffsetDateTime.now().plus(Duration.ofMillis(retryDelayMillis(attempts))));
+                }
+                if (!exhausted.isEmpty()) {
+                    outboxRepository.markFailed(conn, exhausted, "Event Grid no aceptó el lote", null);
+                    outboxRepository.deadLetter(conn, exhausted,
+                            "Sin publicar tras " + settings.maxAttempts + " intentos");
+                }
+                if (!outcome.notSent.isEmpty()) {
+                    outboxRepository.release(conn, outcome.notSent);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                // Las filas conservan la reserva y se reintentan cuando vence
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        if (!outcome.failed.isEmpty()) {
+            FAILED.add(outcome.failed.size());
+            logger.warning("No se pudo publicar " + outcome.failed.size() + " eventos de la outbox; "
+                    + outcome.notSent.size() + " quedan sin enviar hasta la próxima ejecución");
+        }
+        int deadLettered = outcome.rejected.size() + exhausted.size();
+        if (deadLettered > 0) {
+            DEAD_LETTERED.add(deadLettered);
+            logger.severe(deadLettered + " eventos de la outbox pasaron a OUTBOX_DEAD_LETTER ("
+                    + outcome.rejected.size() + " rechazados por Event Grid)");
+        }
+        PUBLISHED.add(outcome.published.size());
+        OffsetDateTime now = OffsetDateTime.now();
+        for (OutboxEvent event : outcome.published) {
+            if (event.getCreatedAt() != null) {
+                LAG_MILLIS.record(Duration.between(event.getCreatedAt(), now).toMillis());
+            }
+        }
+    }
+
+    /**
+     * Espera antes de volver a tomar un evento tras su intento fallido número
+     * {@code attempts}
+     */
+    static long retryDelayMillis(int attempts) {
+        return Math.min(RETRY_MAX_MILLIS, RETRY_BASE_MILLIS << Math.min(Math.max(attempts - 1, 0), 20));
+    }
+
+    /**
+     * Parte los eventos, en orden, en grupos cuyo arreglo no supera
+     * {@code maxBytes}. Un evento que por sí solo supera el límite va en un grupo
+     * propio, para que su rechazo no afecte a los demás.
+     */
+    static List<List<OutboxEvent>> split(List<OutboxEvent> events, int maxBytes) {
+        List<List<OutboxEvent>> chunks = new ArrayList<>();
+        List<OutboxEvent> current = new ArrayList<>();
+        long currentBytes = 2;
+        for (OutboxEvent event : events) {
+            long size = estimatedSize(event) + 1;
+            if (!current.isEmpty() && currentBytes + size > maxBytes) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                currentBytes = 2;
+            }
+            current.add(event);
+            currentBytes += size;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    /**
+     * Tamaño en bytes del evento dentro del arreglo, sin serializarlo: el
+     * payload es la parte variable; el sobre se acota con un margen fijo
+     */
+    private static long estimatedSize(OutboxEvent event) {
+        return utf8Length(event.getPayload()) + utf8Length(event.getSubject()) + utf8Length(event.getEventType())
+                + ENVELOPE_BYTES;
+    }
+
+    private static long utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Arma el arreglo de eventos en el esquema de Event Grid; el payload ya es
+     * JSON y se copia sin volver a parsearlo
+     */
+    static byte[] toEventGridBatch(List<OutboxEvent> events) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(events.size() * 512);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            for (OutboxEvent event : events) {
+                writer.beginObject();
+                writer.name("id").value(event.getEventId());
+                writer.name("eventType").value(event.getEventType());
+                writer.name("subject").value(event.getSubject());
+                OffsetDateTime createdAt = event.getCreatedAt() != null ? event.getCreatedAt() : OffsetDateTime.now();
+                writer.name("eventTime").value(createdAt.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+                writer.name("dataVersion").value("1.0");
+                // La marca de publicación se agrega al escribir el lote, sin parsear el contenido
+                writer.name("data").jsonValue(PublishStamp.stamp(event.getPayload()));
+                writer.endObject();
+            }
+            writer.endArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
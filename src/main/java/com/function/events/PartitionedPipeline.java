@@ -0,0 +1,183 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Metrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Reparte los eventos del consumidor en carriles por clave, para procesarlos en
+ * paralelo sin perder el orden de los eventos de una misma clave.
+ *
+ * Los eventos de usuarios van al carril que corresponde al ID del usuario; un
+ * carril es un único hilo, así que los eventos de un mismo usuario se procesan
+ * en el orden en que llegaron, también entre invocaciones concurrentes de la
+ * misma instancia. Los role/deleted, que pueden tocar miles de usuarios, van a
+ * un carril propio para que no demoren a los eventos de usuarios.
+ *
+ * Configuración:
+ * CONSUMER_LANES - carriles de eventos de usuarios (por defecto, la cantidad de procesadores)
+ */
+public class PartitionedPipeline {
+    private static final Logger logger = Logger.getLogger(PartitionedPipeline.class.getName());
+
+    private static final String LANES_ENV = "CONSUMER_LANES";
+
+    private static final PartitionedPipeline SHARED = new PartitionedPipeline(
+            EnvSettings.intValue(LANES_ENV, Runtime.getRuntime().availableProcessors())).registerGauges();
+
+    /**
+     * Trabajo de un carril sobre su parte del lote, en el orden recibido
+     */
+    public interface LaneTask<R> {
+        R run(List<EventGridEventData> events) throws SQLException;
+    }
+
+    private final ThreadPoolExecutor[] lanes;
+    private final ThreadPoolExecutor fanOutLane;
+
+    public PartitionedPipeline(int lanes) {
+        this.lanes = new ThreadPoolExecutor[Math.max(1, lanes)];
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = lane("consumer-lane-" + i);
+        }
+        this.fanOutLane = lane("consumer-lane-fanout");
+    }
+
+    /**
+     * Pipeline compartido por los consumidores de la instancia
+     */
+    public static PartitionedPipeline shared() {
+        return SHARED;
+    }
+
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * Reparte los eventos en carriles, ejecuta {@code task} una vez por carril
+     * con sus eventos y espera a que terminen todos.
+     *
+     * @return el resultado de cada carril que recibió eventos
+     * @throws SQLException la primera excepción de un carril, una vez que
+     *         terminaron todos; las RuntimeException se relanzan tal cual
+     */
+    public <R> List<R> dispatch(List<EventGridEventData> events, LaneTask<R> task) throws SQLException {
+        List<List<EventGridEventData>> byLane = new ArrayList<>(lanes.length + 1);
+        for (int i = 0; i <= lanes.length; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (EventGridEventData event : events) {
+            byLane.get(laneOf(event)).add(event);
+        }
+
+        List<Future<R>> pending = new ArrayList<>(byLane.size());
+        for (int i = 0; i < byLane.size(); i++) {
+            List<EventGridEventData> laneEvents = byLane.get(i);
+            if (!laneEvents.isEmpty()) {
+                ThreadPoolExecutor executor = i < lanes.length ? lanes[i] : fanOutLane;
+                pending.add(executor.submit(() -> task.run(laneEvents)));
+            }
+        }
+
+        List<R> results = new ArrayList<>(pending.size());
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<R> future : pending) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                // No se abandona un carril a medias: se espera igual y se restaura la interrupción
+                interrupted = true;
+                try {
+                    results.add(awaitUninterruptibly(future));
+                } catch (ExecutionException cause) {
+                    if (failure == null) {
+                        failure = cause.getCause();
+                    }
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure instanceof SQLException sqlException) {
+            throw sqlException;
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Error en un carril del consumidor", failure);
+        }
+        return results;
+    }
+
+    /**
+     * Índice del carril del evento; el último índice es el carril de role/deleted
+     */
+    int laneOf(EventGridEventData event) {
+        if (event == null) {
+            return 0;
+        }
+        if (EventTypes.ROLE_DELETED.equals(event.eventType)) {
+            return lanes.length;
+        }
+        long key;
+        if (event.data instanceof EntityChange change && change.hasId()) {
+            key = change.getId();
+        } else {
+            // Sin clave de usuario el orden no importa: se reparte por ID de evento
+            key = event.id != null ? event.id.hashCode() : 0;
+        }
+        return Math.floorMod(Long.hashCode(key), lanes.length);
+    }
+
+    private PartitionedPipeline registerGauges() {
+        Metrics.gauge("consumer.pipeline.queued", () -> {
+            long queued = 0;
+            for (ThreadPoolExecutor lane : lanes) {
+                queued += lane.getQueue().size();
+            }
+            return queued;
+        });
+        Metrics.gauge("consumer.pipeline.fanout.queued", () -> fanOutLane.getQueue().size());
+        logger.info("Pipeline del consumidor con " + lanes.length + " carriles de usuarios y uno de role/deleted");
+        return this;
+    }
+
+    private static <R> R awaitUninterruptibly(Future<R> future) throws ExecutionException {
+        while (true) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                // Seguir esperando
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor lane(String name) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
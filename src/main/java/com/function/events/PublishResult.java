@@ -0,0 +1,42 @@
+package com.function.events;
+
+/**
+ * Resultado de enviar un lote al topic.
+ *
+ * Los rechazos por el contenido del lote (400, 413, 415 y 422) se separan del
+ * resto de las fallas: reenviar el mismo cuerpo volvería a fallar, así que quien
+ * lo envió debe apartarlo en lugar de reintentarlo. Las demás fallas (red, 408,
+ * 429, 5xx, pero también 401, 403 o 404, que indican una clave o un endpoint
+ * mal configurados y afectan a todos los lotes por igual) se informan como
+ * transitorias: el mismo lote puede publicarse cuando se corrija la causa.
+ */
+public enum PublishResult {
+    /** El topic aceptó el lote */
+    PUBLISHED,
+    /** Falla que no depende del contenido: el mismo lote puede publicarse más tarde */
+    RETRYABLE,
+    /** El topic rechazó el contenido del lote y lo volvería a rechazar */
+    REJECTED;
+
+    /**
+     * Resultado de una respuesta HTTP del topic
+     */
+    public static PublishResult fromStatus(int statusCode) {
+        if (statusCode >= 200 && statusCode < 300) {
+            return PUBLISHED;
+        }
+        switch (statusCode) {
+            case 400:
+            case 413:
+            case 415:
+            case 422:
+                return REJECTED;
+            default:
+                return RETRYABLE;
+        }
+    }
+
+    public boolean isPublished() {
+        return this == PUBLISHED;
+    }
+}
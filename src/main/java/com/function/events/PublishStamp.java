@@ -0,0 +1,55 @@
+package com.function.events;
+
+import com.google.gson.JsonElement;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marca de publicación que los publicadores agregan al contenido de cada
+ * evento: el instante del envío en milisegundos (publishedAt) y un número de
+ * secuencia que crece con cada evento publicado por el proceso (sequence).
+ *
+ * Con la marca, el consumidor mide la demora desde la publicación hasta el
+ * procesamiento de cada evento (ver {@link EventLag}). Va dentro de data, que
+ * Event Grid entrega sin tocar, y no en el sobre, cuyo esquema es fijo. La
+ * secuencia es por proceso: eventos de instancias distintas pueden repetirla.
+ */
+public final class PublishStamp {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private PublishStamp() {
+    }
+
+    /**
+     * Agrega la marca al contenido del evento, si es un objeto JSON
+     */
+    public static void stamp(JsonElement data) {
+        if (data != null && data.isJsonObject()) {
+            data.getAsJsonObject().addProperty("publishedAt", System.currentTimeMillis());
+            data.getAsJsonObject().addProperty("sequence", SEQUENCE.incrementAndGet());
+        }
+    }
+
+    /**
+     * Agrega la marca a un contenido ya serializado, sin volver a parsearlo: la
+     * inserta antes de la llave que cierra el objeto. Si el contenido no es un
+     * objeto JSON lo devuelve sin cambios, para que el topic lo rechace
+     */
+    public static String stamp(String data) {
+        int end = data.length();
+        while (end > 0 && Character.isWhitespace(data.charAt(end - 1))) {
+            end--;
+        }
+        int open = 0;
+        while (open < end && Character.isWhitespace(data.charAt(open))) {
+            open++;
+        }
+        if (end - open < 2 || data.charAt(open) != '{' || data.charAt(end - 1) != '}') {
+            return data;
+        }
+        boolean empty = data.substring(open + 1, end - 1).isBlank();
+        return data.substring(0, end - 1) + (empty ? "" : ",")
+                + "\"publishedAt\":" + System.currentTimeMillis()
+                + ",\"sequence\":" + SEQUENCE.incrementAndGet() + "}";
+    }
+}
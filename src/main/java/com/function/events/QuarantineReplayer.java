@@ -0,0 +1,146 @@
+package com.function.events;
+
+import com.function.json.Json;
+import com.function.metrics.Counter;
+import com.function.metrics.Metrics;
+import com.function.model.QuarantinedEvent;
+import com.function.repository.QuarantineRepository;
+import com.google.gson.Gson;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Reproduce eventos en cuarentena con los mismos handlers del consumidor, a un
+ * ritmo y con una concurrencia acotados para no saturar la base de datos.
+ *
+ * Los eventos se despachan en orden, uno cada 1/eventsPerSecond segundos, y
+ * nunca hay más de {@code concurrency} en proceso a la vez. Cada evento
+ * reproducido con éxito se saca de la cuarentena; cada fallo suma un intento y
+ * actualiza el motivo, y el evento sigue en la cuarentena.
+ */
+public class QuarantineReplayer {
+    private static final Logger logger = Logger.getLogger(QuarantineReplayer.class.getName());
+
+    private static final Counter REPLAYED = Metrics.counter("consumer.quarantine.replayed");
+    private static final Counter REPLAY_FAILED = Metrics.counter("consumer.quarantine.replay.failed");
+
+    /**
+     * Procesa un evento reproducido; una excepción cuenta como fallo
+     */
+    public interface Handler {
+        void handle(EventGridEventData event) throws Exception;
+    }
+
+    /**
+     * Resultado de una reproducción
+     */
+    public static final class Result {
+        private final AtomicInteger replayed = new AtomicInteger();
+        private final Map<String, String> failed = Collections.synchronizedMap(new LinkedHashMap<>());
+
+        /** Eventos procesados y sacados de la cuarentena */
+        public int getReplayed() {
+            return replayed.get();
+        }
+
+        /** Motivo del fallo por ID, de los eventos que siguen en cuarentena */
+        public Map<String, String> getFailed() {
+            return failed;
+        }
+    }
+
+    private final Gson gson = Json.compact();
+    private final QuarantineRepository repository;
+    private final Handler handler;
+
+    public QuarantineReplayer(QuarantineRepository repository, Handler handler) {
+        this.repository = repository;
+        this.handler = handler;
+    }
+
+    /**
+     * Reproduce los eventos y espera a que terminen todos
+     *
+     * @param eventsPerSecond eventos despachados por segundo; 0 o menos, sin límite
+     * @param concurrency     eventos en proceso a la vez como máximo
+     */
+    public Result replay(List<QuarantinedEvent> events, double eventsPerSecond, int concurrency)
+            throws InterruptedException {
+        int workers = Math.max(1, concurrency);
+        long intervalNanos = eventsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / eventsPerSecond) : 0;
+        Result result = new Result();
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "quarantine-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(workers);
+        try {
+            long next = System.nanoTime();
+            for (QuarantinedEvent event : events) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                inFlight.acquire();
+                // Si la concurrencia frenó el despacho no se recupera el tiempo perdido en ráfaga
+                next = Math.max(next, System.nanoTime()) + intervalNanos;
+
+                pool.execute(() -> {
+                    try {
+                        replayOne(event, result);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(workers);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        logger.info("Reproducción de " + events.size() + " eventos en cuarentena: " + result.getReplayed()
+                + " procesados, " + result.getFailed().size() + " fallidos");
+        return result;
+    }
+
+    private void replayOne(QuarantinedEvent quarantined, Result result) {
+        String eventId = quarantined.getEventId();
+        try {
+            EventGridEventData event = gson.fromJson(quarantined.getPayload(), EventGridEventData.class);
+            handler.handle(event);
+        } catch (Exception e) {
+            String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            result.failed.put(eventId, reason);
+            REPLAY_FAILED.increment();
+            logger.warning("Falló la reproducción del evento " + eventId + ": " + reason);
+            try {
+                repository.recordFailure(eventId, quarantined.getEventType(), quarantined.getSubject(),
+                        quarantined.getPayload(), reason);
+            } catch (SQLException | IllegalStateException recordError) {
+                logger.severe("No se pudo registrar el fallo del evento " + eventId + ": " + recordError.getMessage());
+            }
+            return;
+        }
+
+        result.replayed.incrementAndGet();
+        REPLAYED.increment();
+        try {
+            repository.delete(eventId);
+        } catch (SQLException | IllegalStateException e) {
+            // El evento ya quedó registrado como procesado; reproducirlo de nuevo lo descarta
+            logger.warning("No se pudo sacar el evento " + eventId + " de la cuarentena: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Política de reintentos para las publicaciones a Event Grid: backoff
+ * exponencial con jitter completo (espera aleatoria entre 0 y base·2^intento,
+ * acotada al máximo), de modo que las instancias que fallan a la vez no
+ * reintenten todas al mismo tiempo.
+ *
+ * Se reintenta ante errores de red, 408, 429 y 5xx. Si la respuesta trae
+ * Retry-After (en segundos o como fecha HTTP) se espera al menos ese tiempo,
+ * también acotado al máximo.
+ */
+public final class RetryPolicy {
+    private static final Logger logger = Logger.getLogger(RetryPolicy.class.getName());
+
+    private static final String MAX_ATTEMPTS_ENV = "EVENT_GRID_RETRY_MAX_ATTEMPTS";
+    private static final String BASE_DELAY_ENV = "EVENT_GRID_RETRY_BASE_MS";
+    private static final String MAX_DELAY_ENV = "EVENT_GRID_RETRY_MAX_MS";
+
+    private static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts     intentos en total, incluido el primero
+     * @param baseDelayMillis espera base del primer reintento
+     * @param maxDelayMillis  espera máxima entre intentos
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = Math.max(0, baseDelayMillis);
+        this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+    }
+
+    /**
+     * Un único intento, sin reintentos
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Configuración desde variables de entorno:
+     *
+     * EVENT_GRID_RETRY_MAX_ATTEMPTS - intentos en total (4 por defecto)
+     * EVENT_GRID_RETRY_BASE_MS      - espera base (200 ms por defecto)
+     * EVENT_GRID_RETRY_MAX_MS       - espera máxima entre intentos (10 s por defecto)
+     */
+    public static RetryPolicy fromEnvironment() {
+        return new RetryPolicy(
+                EnvSettings.intValue(MAX_ATTEMPTS_ENV, 4),
+                EnvSettings.longValue(BASE_DELAY_ENV, 200),
+                EnvSettings.longValue(MAX_DELAY_ENV, 10_000));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Indica si conviene reintentar después del intento {@code attempt} (desde 1)
+     * que terminó con el código de estado dado
+     */
+    public boolean shouldRetry(int attempt, int statusCode) {
+        return attempt < maxAttempts && isRetryable(statusCode);
+    }
+
+    /**
+     * Indica si conviene reintentar después de un error de red en el intento
+     * {@code attempt} (desde 1)
+     */
+    public boolean shouldRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * Espera antes del próximo intento
+     *
+     * @param attempt    intento que acaba de fallar (desde 1)
+     * @param retryAfter valor de la cabecera Retry-After, o null
+     */
+    public long delayMillis(int attempt, String retryAfter) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        long delay = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+        long requested = retryAfterMillis(retryAfter);
+        return Math.min(maxDelayMillis, Math.max(delay, requested));
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Milisegundos pedidos por Retry-After, o 0 si no hay cabecera o no se entiende
+     */
+    static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Puede venir como fecha HTTP
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException e) {
+            logger.fine("Retry-After no reconocido: " + value);
+            return 0;
+        }
+    }
+}
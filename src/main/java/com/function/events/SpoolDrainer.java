@@ -0,0 +1,185 @@
+package com.function.events;
+
+import com.function.config.EnvSettings;
+import com.function.metrics.Counter;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Reenvía en segundo plano los lotes guardados en un {@link EventSpool}.
+ *
+ * Cada segundo envía lotes en orden hasta completar el cupo de eventos por
+ * segundo, para no saturar el topic cuando se recupera. Si un envío falla por
+ * una causa transitoria el lote queda en el spool y el drenador espera cada vez
+ * más (hasta un minuto) antes de volver a probar. Un lote que el topic rechaza
+ * ({@link PublishResult#REJECTED}), o que falla en todos los intentos, se aparta
+ * con {@link EventSpool#deadLetter} para que no frene a los que vienen detrás.
+ *
+ * Métricas: eventgrid.spool.&lt;topic&gt;.depth, eventgrid.spool.&lt;topic&gt;.bytes
+ * y eventgrid.spool.&lt;topic&gt;.oldest.ms (gauges, con el nombre del spool),
+ * eventgrid.spool.replayed y eventgrid.spool.replay.failed (contadores) y
+ * eventgrid.spool.replay.lag.ms (histograma del tiempo que pasó cada lote en el
+ * spool).
+ *
+ * Configuración:
+ * EVENT_GRID_SPOOL_REPLAY_PER_SECOND - eventos reenviados por segundo (100 por defecto)
+ * EVENT_GRID_SPOOL_MAX_ATTEMPTS      - intentos por lote antes de apartarlo (30 por defecto)
+ */
+public class SpoolDrainer implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(SpoolDrainer.class.getName());
+
+    private static final String RATE_ENV = "EVENT_GRID_SPOOL_REPLAY_PER_SECOND";
+    private static final String MAX_ATTEMPTS_ENV = "EVENT_GRID_SPOOL_MAX_ATTEMPTS";
+    private static final long TICK_MILLIS = 1000;
+    private static final int MAX_BACKOFF_TICKS = 60;
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "eventgrid-spool-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Counter REPLAYED = Metrics.counter("eventgrid.spool.replayed");
+    private static final Counter REPLAY_FAILED = Metrics.counter("eventgrid.spool.replay.failed");
+    private static final Histogram REPLAY_LAG = Metrics.histogram("eventgrid.spool.replay.lag.ms");
+
+    /**
+     * Envía un lote del spool al topic, sin reintentos
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<PublishResult> send(byte[] body, int events);
+    }
+
+    private final EventSpool spool;
+    private final Sender sender;
+    private final int eventsPerSecond;
+    private final int maxAttempts;
+
+    private ScheduledFuture<?> task;
+    private int backoffTicks;
+    private int idleTicks;
+    // Intentos fallidos del primer lote del spool; se pierden al reiniciar
+    private int headAttempts;
+
+    public SpoolDrainer(EventSpool spool, Sender sender, int eventsPerSecond) {
+        this(spool, sender, eventsPerSecond, maxAttemptsFromEnvironment());
+    }
+
+    /**
+     * @param maxAttempts Intentos fallidos por lote antes de apartarlo
+     */
+    public SpoolDrainer(EventSpool spool, Sender sender, int eventsPerSecond, int maxAttempts) {
+        this.spool = spool;
+        this.sender = sender;
+        this.eventsPerSecond = Math.max(1, eventsPerSecond);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Registra las métricas del spool y empieza a drenarlo
+     */
+    public synchronized SpoolDrainer start() {
+        if (task == null) {
+            String prefix = "eventgrid.spool." + spool.getName();
+            Metrics.gauge(prefix + ".depth", spool::depth);
+            Metrics.gauge(prefix + ".bytes", spool::bytes);
+            Metrics.gauge(prefix + ".oldest.ms", spool::oldestAgeMillis);
+            task = SCHEDULER.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Reenvía lotes hasta completar el cupo del segundo
+     *
+     * @return cantidad de eventos reenviados
+     */
+    public synchronized int drainOnce() {
+        int sent = 0;
+        while (sent < eventsPerSecond) {
+            EventSpool.Entry entry = spool.peek();
+            if (entry == null) {
+                break;
+            }
+
+            PublishResult result;
+            try {
+                result = sender.send(entry.getBody(), entry.getEvents()).join();
+            } catch (RuntimeException e) {
+                logger.warning("Error al reenviar lote del spool: " + e.getMessage());
+                result = PublishResult.RETRYABLE;
+            }
+            if (result == PublishResult.REJECTED) {
+                REPLAY_FAILED.increment();
+                spool.deadLetter("rechazado por el topic");
+                headAttempts = 0;
+                continue;
+            }
+            if (result != PublishResult.PUBLISHED) {
+                REPLAY_FAILED.increment();
+                if (++headAttempts >= maxAttempts) {
+                    // Se aparta para no frenar a los lotes que vienen detrás
+                    spool.deadLetter(headAttempts + " intentos fallidos");
+                    headAttempts = 0;
+                }
+                backoffTicks = Math.min(MAX_BACKOFF_TICKS, Math.max(1, backoffTicks * 2));
+                idleTicks = backoffTicks;
+                logger.warning("No se pudo reenviar lote del spool, se reintenta en " + backoffTicks + " s");
+                break;
+            }
+
+            spool.remove();
+            headAttempts = 0;
+            backoffTicks = 0;
+            sent += entry.getEvents();
+            REPLAYED.add(entry.getEvents());
+            REPLAY_LAG.record(System.currentTimeMillis() - entry.getSpooledAt());
+        }
+        if (sent > 0) {
+            logger.info("Reenviados " + sent + " eventos del spool, quedan " + spool.depth() + " lotes");
+        }
+        return sent;
+    }
+
+    private synchronized void tick() {
+        if (idleTicks > 0) {
+            idleTicks--;
+            return;
+        }
+        try {
+            drainOnce();
+        } catch (RuntimeException e) {
+            logger.severe("Error inesperado al drenar el spool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Eventos por segundo desde EVENT_GRID_SPOOL_REPLAY_PER_SECOND
+     */
+    public static int rateFromEnvironment() {
+        return EnvSettings.intValue(RATE_ENV, 100);
+    }
+
+    /**
+     * Intentos por lote desde EVENT_GRID_SPOOL_MAX_ATTEMPTS
+     */
+    public static int maxAttemptsFromEnvironment() {
+        return EnvSettings.intValue(MAX_ATTEMPTS_ENV, 30);
+    }
+}
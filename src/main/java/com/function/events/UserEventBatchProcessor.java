@@ -0,0 +1,244 @@
+package com.function.events;
+
+import com.function.cache.ResponseCaches;
+import com.function.metrics.Counter;
+import com.function.metrics.Histogram;
+import com.function.metrics.Metrics;
+import com.function.model.Role;
+import com.function.repository.RoleRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Procesa un lote de eventos de usuarios y roles con el menor número de idas a
+ * la base de datos.
+ *
+ * Los eventos se agrupan por tipo; el rol por defecto se resuelve una sola vez
+ * por lote y las asignaciones a usuarios creados se escriben en un único lote
+ * JDBC. Cada role/deleted se aplica con dos sentencias sobre el conjunto de
+ * usuarios del rol, sin recorrerlos uno por uno.
+ *
+ * Con un {@link PartitionedPipeline} el lote se reparte en carriles por
+ * usuario, con los role/deleted en un carril propio, y cada carril se procesa
+ * en paralelo como un lote aparte; el rol por defecto se sigue resolviendo una
+ * sola vez por lote.
+ *
+ * Cada evento se aísla de los demás: los eventos con datos inválidos o cuya
+ * asignación falla se informan en el resultado sin afectar al resto del lote.
+ * Los errores de conexión o de la base de datos que no son de una fila en
+ * particular se propagan, para que Event Grid reenvíe el lote completo; como
+ * las asignaciones son idempotentes, reprocesar un lote es seguro.
+ */
+public class UserEventBatchProcessor {
+    private static final Logger logger = Logger.getLogger(UserEventBatchProcessor.class.getName());
+
+    private static final Counter PROCESSED = Metrics.counter("consumer.batch.processed");
+    private static final Counter SKIPPED = Metrics.counter("consumer.batch.skipped");
+    private static final Counter FAILED = Metrics.counter("consumer.batch.failed");
+    private static final Histogram BATCH_EVENTS = Metrics.histogram("consumer.batch.events");
+
+    // ID del rol por defecto visto por última vez en la instancia
+    private static volatile long knownDefaultRoleId;
+
+    private final RoleRepository roleRepository;
+    private final PartitionedPipeline pipeline;
+
+    /**
+     * Resultado del procesamiento de un lote
+     */
+    public static final class Result {
+        private int processed;
+        private final List<String> skipped = new ArrayList<>();
+        private final List<String> failed = new ArrayList<>();
+
+        private void merge(Result other) {
+            processed += other.processed;
+            skipped.addAll(other.skipped);
+            failed.addAll(other.failed);
+        }
+
+        /** Eventos aplicados */
+        public int getProcessed() {
+            return processed;
+        }
+
+        /** IDs de los eventos descartados por datos inválidos o tipo desconocido */
+        public List<String> getSkipped() {
+            return skipped;
+        }
+
+        /** IDs de los eventos cuya escritura falló */
+        public List<String> getFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Rol por defecto resuelto a lo sumo una vez por lote, aunque lo pidan
+     * varios carriles a la vez
+     */
+    private final class DefaultRole {
+        private Role role;
+
+        synchronized Role get() throws SQLException {
+            if (role == null) {
+                role = roleRepository.findOrCreateByName(RoleRepository.DEFAULT_ROLE,
+                        RoleRepository.DEFAULT_ROLE_DESCRIPTION);
+                // Si el rol se acaba de crear, la lista de roles cacheada quedó vieja
+                if (knownDefaultRoleId != role.getIdValue()) {
+                    ResponseCaches.ROLES.invalidate(role.getId());
+                    knownDefaultRoleId = role.getIdValue();
+                }
+            }
+            return role;
+        }
+    }
+
+    public UserEventBatchProcessor(RoleRepository roleRepository) {
+        this(roleRepository, null);
+    }
+
+    /**
+     * @param pipeline carriles en los que se reparte el lote, o null para
+     *                 procesarlo entero en el hilo que llama
+     */
+    public UserEventBatchProcessor(RoleRepository roleRepository, PartitionedPipeline pipeline) {
+        this.roleRepository = roleRepository;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Procesa el lote completo
+     *
+     * @throws SQLException si falla la base de datos de forma no atribuible a un evento
+     */
+    public Result process(List<EventGridEventData> events) throws SQLException {
+        BATCH_EVENTS.record(events.size());
+        DefaultRole defaultRole = new DefaultRole();
+
+        Result result;
+        if (pipeline == null) {
+            result = processLane(events, defaultRole);
+        } else {
+            result = new Result();
+            for (Result lane : pipeline.dispatch(events, laneEvents -> processLane(laneEvents, defaultRole))) {
+                result.merge(lane);
+            }
+        }
+
+        PROCESSED.add(result.processed);
+        SKIPPED.add(result.skipped.size());
+        FAILED.add(result.failed.size());
+        logger.info("Lote de " + events.size() + " eventos: " + result.processed + " procesados, "
+                + result.skipped.size() + " descartados, " + result.failed.size() + " fallidos");
+        return result;
+    }
+
+    private Result processLane(List<EventGridEventData> events, DefaultRole defaultRole) throws SQLException {
+        Result result = new Result();
+
+        Map<String, List<EventGridEventData>> byType = new LinkedHashMap<>();
+        for (EventGridEventData event : events) {
+            if (event == null || event.eventType == null) {
+                skip(result, event, "evento sin tipo");
+                continue;
+            }
+            byType.computeIfAbsent(event.eventType, type -> new ArrayList<>()).add(event);
+        }
+
+        // Usuarios que deben recibir el rol por defecto, con los eventos que lo pidieron
+        Map<Long, List<EventGridEventData>> needDefaultRole = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<EventGridEventData>> group : byType.entrySet()) {
+            switch (group.getKey()) {
+                case EventTypes.USER_CREATED:
+                    collectCreatedUsers(group.getValue(), needDefaultRole, result);
+                    break;
+                case EventTypes.USER_UPDATED:
+                    // Sin acciones para usuarios actualizados
+                    result.processed += group.getValue().size();
+                    break;
+                case EventTypes.ROLE_DELETED:
+                    removeDeletedRoles(group.getValue(), defaultRole, result);
+                    break;
+                default:
+                    for (EventGridEventData event : group.getValue()) {
+                        skip(result, event, "tipo no procesado: " + event.eventType);
+                    }
+            }
+        }
+
+        assignDefaultRole(needDefaultRole, defaultRole, result);
+        return result;
+    }
+
+    private void collectCreatedUsers(List<EventGridEventData> events,
+            Map<Long, List<EventGridEventData>> needDefaultRole, Result result) {
+        for (EventGridEventData event : events) {
+            if (event.dataError != null) {
+                skip(result, event, "datos de usuario inválidos: " + event.dataError);
+                continue;
+            }
+            if (!(event.data instanceof EntityChange created) || !created.hasId()) {
+                skip(result, event, "datos de usuario inválidos");
+                continue;
+            }
+            // Una reentrega del mismo usuario se asigna una vez pero se informa aparte
+            needDefaultRole.computeIfAbsent(created.getId(), id -> new ArrayList<>()).add(event);
+        }
+    }
+
+    private void removeDeletedRoles(List<EventGridEventData> events, DefaultRole defaultRole, Result result)
+            throws SQLException {
+        for (EventGridEventData event : events) {
+            if (event.dataError != null) {
+                skip(result, event, "datos de rol inválidos: " + event.dataError);
+                continue;
+            }
+            if (!(event.data instanceof EntityChange deleted) || !deleted.hasId()) {
+                skip(result, event, "datos de rol inválidos");
+                continue;
+            }
+
+            int affected = roleRepository.removeRoleFromAllUsers(deleted.getId(), defaultRole.get().getIdValue());
+            logger.info("Rol " + deleted.getId() + " removido de " + affected + " usuarios");
+            result.processed++;
+        }
+    }
+
+    /**
+     * Resuelve el rol por defecto una vez y lo asigna en un único lote
+     */
+    private void assignDefaultRole(Map<Long, List<EventGridEventData>> needDefaultRole, DefaultRole defaultRole,
+            Result result) throws SQLException {
+        if (needDefaultRole.isEmpty()) {
+            return;
+        }
+
+        Set<Long> failedUsers = roleRepository.assignRoleToUsers(defaultRole.get().getIdValue(),
+                new ArrayList<>(needDefaultRole.keySet()));
+
+        for (Map.Entry<Long, List<EventGridEventData>> entry : needDefaultRole.entrySet()) {
+            boolean ok = !failedUsers.contains(entry.getKey());
+            for (EventGridEventData event : entry.getValue()) {
+                if (ok) {
+                    result.processed++;
+                } else {
+                    result.failed.add(event.id);
+                }
+            }
+        }
+    }
+
+    private static void skip(Result result, EventGridEventData event, String reason) {
+        String id = event != null ? event.id : null;
+        logger.warning("Evento " + id + " descartado: " + reason);
+        result.skipped.add(id);
+    }
+}
@@ -1,5 +1,6 @@
 package com.function.graphql;
 
+import com.function.cache.ResponseCaches;
 import com.function.repository.UserRepository;
 import com.function.repository.RoleRepository;
 import com.function.model.User;
@@ -178,7 +179,9 @@ public class GraphQLProvider {
                 user.setLastName(lastName);
                 user.setActive(active);
                 
-                return userRepository.save(user);
+                User saved = userRepository.save(user);
+                ResponseCaches.USERS.invalidate(saved.getId());
+                return saved;
             } catch (Exception e) {
                 logger.severe("Error creating user: " + e.getMessage());
                 throw new RuntimeException("Error creating user", e);
@@ -197,14 +200,16 @@ public class GraphQLProvider {
                 boolean active = environment.getArgument("active");
 
                 User user = new User();
-                user.setId(id);
+                user.setIdValue(Long.parseLong(id));
                 user.setUsername(username);
                 user.setEmail(email);
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
                 user.setActive(active);
                 
-                return userRepository.save(user);
+                User saved = userRepository.save(user);
+                ResponseCaches.USERS.invalidate(saved.getId());
+                return saved;
             } catch (Exception e) {
                 logger.severe("Error updating user: " + e.getMessage());
                 throw new RuntimeException("Error updating user", e);
@@ -216,7 +221,9 @@ public class GraphQLProvider {
         return environment -> {
             try {
                 String id = environment.getArgument("id");
-                return userRepository.deleteById(Long.parseLong(id));
+                boolean deleted = userRepository.deleteById(Long.parseLong(id));
+                ResponseCaches.USERS.invalidate(id);
+                return deleted;
             } catch (Exception e) {
                 logger.severe("Error deleting user: " + e.getMessage());
                 throw new RuntimeException("Error deleting user", e);
@@ -234,7 +241,9 @@ public class GraphQLProvider {
                 role.setName(name);
                 role.setDescription(description);
                 
-                return roleRepository.save(role);
+                Role saved = roleRepository.save(role);
+                ResponseCaches.ROLES.invalidate(saved.getId());
+                return saved;
             } catch (Exception e) {
                 logger.severe("Error creating role: " + e.getMessage());
                 throw new RuntimeException("Error creating role", e);
@@ -250,11 +259,13 @@ public class GraphQLProvider {
                 String description = environment.getArgument("description");
 
                 Role role = new Role();
-                role.setId(id);
+                role.setIdValue(Long.parseLong(id));
                 role.setName(name);
                 role.setDescription(description);
                 
-                return roleRepository.save(role);
+                Role saved = roleRepository.save(role);
+                ResponseCaches.ROLES.invalidate(saved.getId());
+                return saved;
             } catch (Exception e) {
                 logger.severe("Error updating role: " + e.getMessage());
                 throw new RuntimeException("Error updating role", e);
@@ -266,7 +277,9 @@ public class GraphQLProvider {
         return environment -> {
             try {
                 String id = environment.getArgument("id");
-                return roleRepository.deleteById(Long.parseLong(id));
+                boolean deleted = roleRepository.deleteById(Long.parseLong(id));
+                ResponseCaches.ROLES.invalidate(id);
+                return deleted;
             } catch (Exception e) {
                 logger.severe("Error deleting role: " + e.getMessage());
                 throw new RuntimeException("Error deleting role", e);
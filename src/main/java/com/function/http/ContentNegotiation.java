@@ -0,0 +1,67 @@
+package com.function.http;
+
+import com.microsoft.azure.functions.HttpRequestMessage;
+
+/**
+ * Elige la representación de la respuesta a partir de la cabecera Accept.
+ * JSON es el valor por defecto; CBOR o Smile sólo se usan cuando el cliente los
+ * prefiere explícitamente.
+ */
+public final class ContentNegotiation {
+
+    private ContentNegotiation() {
+    }
+
+    public static MediaFormat select(HttpRequestMessage<?> request) {
+        String accept = HttpResponses.header(request, "Accept");
+        if (accept == null || accept.isEmpty()) {
+            return MediaFormat.JSON;
+        }
+
+        MediaFormat best = MediaFormat.JSON;
+        double bestQuality = -1;
+        for (String range : accept.split(",")) {
+            String[] parts = range.trim().split(";");
+            MediaFormat format = formatOf(parts[0].trim().toLowerCase());
+            if (format == null) {
+                continue;
+            }
+            double quality = quality(parts);
+            // Ante igual calidad se respeta el orden en que el cliente listó los tipos
+            if (quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return bestQuality > 0 ? best : MediaFormat.JSON;
+    }
+
+    private static MediaFormat formatOf(String mediaRange) {
+        switch (mediaRange) {
+            case "application/cbor":
+                return MediaFormat.CBOR;
+            case "application/x-jackson-smile":
+                return MediaFormat.SMILE;
+            case "application/json":
+            case "application/*":
+            case "*/*":
+                return MediaFormat.JSON;
+            default:
+                return null;
+        }
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
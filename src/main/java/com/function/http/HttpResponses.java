@@ -0,0 +1,179 @@
+package com.function.http;
+
+import com.function.cache.SerializedResponseCache.CachedResponse;
+import com.function.json.Json;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Utilidades para construir respuestas HTTP a partir de cuerpos ya serializados
+ */
+public final class HttpResponses {
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String VARY = "Accept, Accept-Encoding";
+    private static final String GZIP_ETAG_SUFFIX = "-gz";
+
+    private HttpResponses() {
+    }
+
+    /**
+     * Construye la respuesta a partir de una respuesta cacheada, en la
+     * representación que prefiera el cliente (JSON por defecto, o CBOR/Smile
+     * según la cabecera Accept). Si el cuerpo supera el umbral de compresión y el
+     * cliente acepta gzip, se usa la versión comprimida, que se calcula una sola
+     * vez por entrada.
+     *
+     * La respuesta lleva un ETag fuerte por representación y por codificación
+     * (el cuerpo gzip agrega el sufijo "-gz", porque sus bytes son otros); si la
+     * petición trae un If-None-Match que coincide, se responde 304 sin cuerpo. Con
+     * ?pretty=true se reformatea el JSON cacheado, lo que sólo tiene costo
+     * cuando se pide.
+     */
+    public static HttpResponseMessage cached(HttpRequestMessage<?> request, HttpStatus status, CachedResponse cached) {
+        MediaFormat format = ContentNegotiation.select(request);
+        if (format == MediaFormat.JSON && isPrettyRequested(request)) {
+            return json(request, status, JsonParser.parseReader(new InputStreamReader(
+                    new ByteArrayInputStream(cached.getJson()), StandardCharsets.UTF_8)));
+        }
+
+        byte[] body = cached.getBody(format);
+        boolean gzip = ResponseCompression.shouldCompress(request, body.length);
+        String etag = format.etag(cached.getETag());
+        if (gzip) {
+            etag = gzipETag(etag);
+        }
+        if (status == HttpStatus.OK && matchesIfNoneMatch(request, etag)) {
+            return request.createResponseBuilder(HttpStatus.NOT_MODIFIED)
+                    .header("ETag", etag)
+                    .header("Cache-Control", "no-cache")
+                    .header("Vary", VARY)
+                    .build();
+        }
+
+        HttpResponseMessage.Builder builder = request.createResponseBuilder(status)
+                .header("Content-Type", format.getContentType())
+                .header("ETag", etag)
+                .header("Cache-Control", "no-cache")
+                .header("Vary", VARY);
+
+        if (gzip) {
+            return builder.header("Content-Encoding", "gzip")
+                    .body(cached.getGzip(format))
+                    .build();
+        }
+        return builder.body(body).build();
+    }
+
+    /**
+     * Serializa el valor directamente a bytes, en formato compacto salvo que el
+     * cliente pida ?pretty=true, y lo comprime si supera el umbral de compresión.
+     */
+    public static HttpResponseMessage json(HttpRequestMessage<?> request, HttpStatus status, Object value) {
+        byte[] body = Json.toBytes(value, isPrettyRequested(request));
+        HttpResponseMessage.Builder builder = request.createResponseBuilder(status)
+                .header("Content-Type", JSON_CONTENT_TYPE)
+                .header("Vary", "Accept-Encoding");
+
+        if (ResponseCompression.shouldCompress(request, body.length)) {
+            return builder.header("Content-Encoding", "gzip")
+                    .body(ResponseCompression.gzip(body))
+                    .build();
+        }
+        return builder.body(body).build();
+    }
+
+    /**
+     * Indica si el cliente pidió la salida JSON con sangría
+     */
+    public static boolean isPrettyRequested(HttpRequestMessage<?> request) {
+        Map<String, String> query = request.getQueryParameters();
+        return query != null && "true".equalsIgnoreCase(query.get("pretty"));
+    }
+
+    /**
+     * ETag de la versión comprimida con gzip de la representación con el ETag dado
+     */
+    public static String gzipETag(String etag) {
+        return etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + '"';
+    }
+
+    /**
+     * Compara el If-None-Match de la petición con el ETag actual. Como indica el
+     * RFC 9110, para If-None-Match se usa comparación débil (se ignora "W/").
+     * La versión gzip y la sin comprimir de una misma representación tienen el
+     * mismo contenido, así que cualquiera de los dos ETags valida al otro: un
+     * cliente que cambió de Accept-Encoding no vuelve a descargar el cuerpo.
+     */
+    public static boolean matchesIfNoneMatch(HttpRequestMessage<?> request, String etag) {
+        String ifNoneMatch = header(request, "If-None-Match");
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        String identity = withoutGzipSuffix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (withoutGzipSuffix(tag).equals(identity)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String withoutGzipSuffix(String etag) {
+        String suffix = GZIP_ETAG_SUFFIX + '"';
+        if (etag.endsWith(suffix)) {
+            return etag.substring(0, etag.length() - suffix.length()) + '"';
+        }
+        return etag;
+    }
+
+    /**
+     * Indica si el cliente acepta respuestas comprimidas con gzip
+     */
+    public static boolean acceptsGzip(HttpRequestMessage<?> request) {
+        String acceptEncoding = header(request, "Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Busca una cabecera de la petición sin distinguir mayúsculas y minúsculas
+     */
+    public static String header(HttpRequestMessage<?> request, String name) {
+        Map<String, String> headers = request.getHeaders();
+        if (headers == null) {
+            return null;
+        }
+        String value = headers.get(name);
+        if (value != null) {
+            return value;
+        }
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.function.http;
+
+/**
+ * Representaciones que pueden devolver las rutas de usuarios y roles
+ */
+public enum MediaFormat {
+    JSON("application/json", ""),
+    CBOR("application/cbor", "-cbor"),
+    SMILE("application/x-jackson-smile", "-smile");
+
+    private final String contentType;
+    private final String etagSuffix;
+
+    MediaFormat(String contentType, String etagSuffix) {
+        this.contentType = contentType;
+        this.etagSuffix = etagSuffix;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Cada representación necesita su propio ETag fuerte, así que las binarias
+     * agregan un sufijo al ETag del contenido JSON.
+     */
+    public String etag(String jsonETag) {
+        if (etagSuffix.isEmpty()) {
+            return jsonETag;
+        }
+        return jsonETag.substring(0, jsonETag.length() - 1) + etagSuffix + '"';
+    }
+}
@@ -0,0 +1,59 @@
+package com.function.http;
+
+import com.function.config.EnvSettings;
+import com.microsoft.azure.functions.HttpRequestMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresión gzip de las respuestas grandes.
+ *
+ * Sólo se comprime cuando el cliente lo acepta (Accept-Encoding) y el cuerpo
+ * supera el umbral configurado; por debajo de unos pocos KB la compresión no
+ * compensa su costo de CPU. Brotli no está disponible en el JDK, por lo que el
+ * único encoding ofrecido es gzip.
+ *
+ * Configuración:
+ * RESPONSE_COMPRESSION_MIN_BYTES - tamaño mínimo del cuerpo a comprimir (1024 por defecto)
+ * RESPONSE_COMPRESSION_LEVEL     - nivel de compresión de 1 a 9 (6 por defecto)
+ */
+public final class ResponseCompression {
+
+    private static final String MIN_BYTES_ENV = "RESPONSE_COMPRESSION_MIN_BYTES";
+    private static final String LEVEL_ENV = "RESPONSE_COMPRESSION_LEVEL";
+
+    private static final int MIN_BYTES = EnvSettings.intValue(MIN_BYTES_ENV, 1024);
+    private static final int LEVEL = Math.max(Deflater.BEST_SPEED,
+            Math.min(Deflater.BEST_COMPRESSION, EnvSettings.intValue(LEVEL_ENV, 6)));
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * Indica si conviene comprimir un cuerpo de este tamaño para esta petición
+     */
+    public static boolean shouldCompress(HttpRequestMessage<?> request, int bodyLength) {
+        return bodyLength >= MIN_BYTES && HttpResponses.acceptsGzip(request);
+    }
+
+    /**
+     * Comprime con gzip usando el nivel configurado
+     */
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(LEVEL);
+            }
+        }) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al comprimir respuesta", e);
+        }
+        return out.toByteArray();
+    }
+}
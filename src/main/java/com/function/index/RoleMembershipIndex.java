@@ -0,0 +1,445 @@
+package com.function.index;
+
+import com.function.config.EnvSettings;
+import com.function.repository.RoleRepository;
+import com.function.repository.UserRepository;
+
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Índice en memoria de la tabla USER_ROLES.
+ *
+ * Por rol guarda un bitmap comprimido (Roaring) con los IDs de sus usuarios, y
+ * por usuario el arreglo ordenado de sus roles. Además guarda el bitmap de
+ * usuarios activos, para poder filtrar y contar miembros activos sin ir a la
+ * base de datos.
+ *
+ * El índice se carga completo la primera vez que se consulta y se mantiene con
+ * las escrituras que hacen los repositorios (asignar o remover roles, borrar
+ * roles o usuarios, guardar usuarios). Como cada instancia del Function App
+ * tiene su propio índice, se recarga además cada cierto tiempo para incorporar
+ * los cambios hechos en otras instancias.
+ *
+ * Sólo la primera carga (y la siguiente a {@link #invalidate()}) se hace en el
+ * hilo de la consulta. Vencido el TTL, la consulta pide la recarga al hilo
+ * role-index-refresh y responde con el índice actual. Si una carga falla, no se
+ * vuelve a intentar hasta pasados RETRY_SECONDS; mientras tanto las consultas
+ * siguen usando el índice anterior o, si no hay ninguno, fallan sin ir a la
+ * base de datos.
+ *
+ * Configuración:
+ * ROLE_INDEX_TTL_SECONDS - segundos entre recargas completas (300 por defecto)
+ */
+public class RoleMembershipIndex {
+    private static final Logger logger = Logger.getLogger(RoleMembershipIndex.class.getName());
+
+    private static final String TTL_ENV = "ROLE_INDEX_TTL_SECONDS";
+    private static final long RETRY_SECONDS = 30;
+    private static final long[] EMPTY = new long[0];
+
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "role-index-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final RoleMembershipIndex SHARED = new RoleMembershipIndex(builder -> {
+        new RoleRepository().loadMemberships(builder);
+        new UserRepository().loadActiveUserIds(builder);
+    }, EnvSettings.longValue(TTL_ENV, 300), TimeUnit.SECONDS);
+
+    private final Source source;
+    private final long ttlNanos;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private State state;
+    private volatile long loadedAt;
+    private volatile long failedAt;
+    private volatile SQLException lastFailure;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    // Cambios recibidos mientras se carga el índice; se aplican de nuevo sobre la carga
+    private List<Consumer<State>> pending;
+
+    /**
+     * Origen de los datos para construir el índice completo
+     */
+    @FunctionalInterface
+    public interface Source {
+        void load(Builder builder) throws SQLException;
+    }
+
+    public RoleMembershipIndex(Source source, long ttl, TimeUnit unit) {
+        this.source = source;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * Índice compartido por todas las funciones de la instancia
+     */
+    public static RoleMembershipIndex shared() {
+        return SHARED;
+    }
+
+    // Consultas
+
+    /**
+     * Indica si el usuario tiene el rol
+     */
+    public boolean isMember(long userId, long roleId) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[] roles = state.rolesByUser.get(userId);
+            return roles != null && Arrays.binarySearch(roles, roleId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de usuarios con el rol, opcionalmente sólo los activos
+     */
+    public long countMembers(long roleId, boolean activeOnly) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Roaring64NavigableMap members = state.usersByRole.get(roleId);
+            if (members == null) {
+                return 0;
+            }
+            if (!activeOnly) {
+                return members.getLongCardinality();
+            }
+            return intersect(members, state.activeUsers).getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs de los usuarios con el rol en orden ascendente, opcionalmente sólo los
+     * activos, hasta {@code limit} elementos
+     */
+    public long[] members(long roleId, boolean activeOnly, int limit) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Roaring64NavigableMap members = state.usersByRole.get(roleId);
+            if (members == null) {
+                return EMPTY;
+            }
+            if (activeOnly) {
+                members = intersect(members, state.activeUsers);
+            }
+            int size = (int) Math.min(limit, members.getLongCardinality());
+            long[] ids = new long[size];
+            LongIterator it = members.getLongIterator();
+            for (int i = 0; i < size && it.hasNext(); i++) {
+                ids[i] = it.next();
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs de los roles del usuario en orden ascendente
+     */
+    public long[] rolesOf(long userId) throws SQLException {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            long[] roles = state.rolesByUser.get(userId);
+            return roles != null ? roles.clone() : EMPTY;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Mantenimiento incremental
+
+    public void roleAssigned(long userId, long roleId) {
+        apply(state -> state.add(userId, roleId));
+    }
+
+    public void roleRemoved(long userId, long roleId) {
+        apply(state -> state.remove(userId, roleId));
+    }
+
+    public void roleDeleted(long roleId) {
+        apply(state -> state.removeRole(roleId));
+    }
+
+    public void userSaved(long userId, boolean active) {
+        apply(state -> state.setActive(userId, active));
+    }
+
+    public void userDeleted(long userId) {
+        apply(state -> state.removeUser(userId));
+    }
+
+    /**
+     * Descarta el contenido; la próxima consulta recarga el índice completo
+     */
+    public void invalidate() {
+        loadedAt = 0;
+    }
+
+    private void apply(Consumer<State> change) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            }
+            if (state != null) {
+                change.accept(state);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        long loaded = loadedAt;
+        if (loaded != 0) {
+            if (System.nanoTime() - loaded >= ttlNanos) {
+                scheduleRefresh();
+            }
+            return;
+        }
+
+        loadLock.lock();
+        try {
+            if (loadedAt != 0) {
+                return;
+            }
+            if (inRetryDelay()) {
+                if (hasState()) {
+                    return;
+                }
+                throw new SQLException("Índice de roles no disponible, falló la última carga", lastFailure);
+            }
+            reloadOrRecordFailure();
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Pide una recarga en segundo plano, salvo que ya haya una pedida o que la
+     * última carga haya fallado hace poco
+     */
+    private void scheduleRefresh() {
+        if (inRetryDelay() || !refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        REFRESHER.execute(() -> {
+            loadLock.lock();
+            try {
+                if (System.nanoTime() - loadedAt >= ttlNanos) {
+                    reloadOrRecordFailure();
+                }
+            } catch (SQLException | RuntimeException e) {
+                logger.warning("Falló la recarga del índice de roles, se sigue usando el anterior: "
+                        + e.getMessage());
+            } finally {
+                loadLock.unlock();
+                refreshScheduled.set(false);
+            }
+        });
+    }
+
+    private boolean hasState() {
+        lock.readLock().lock();
+        try {
+            return state != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean inRetryDelay() {
+        long failed = failedAt;
+        return failed != 0 && System.nanoTime() - failed < TimeUnit.SECONDS.toNanos(RETRY_SECONDS);
+    }
+
+    // Se llama con loadLock tomado
+    private void reloadOrRecordFailure() throws SQLException {
+        try {
+            reload();
+            failedAt = 0;
+            lastFailure = null;
+        } catch (SQLException e) {
+            lastFailure = e;
+            failedAt = System.nanoTime();
+            throw e;
+        } catch (RuntimeException e) {
+            lastFailure = new SQLException(e.getMessage(), e);
+            failedAt = System.nanoTime();
+            throw e;
+        }
+    }
+
+    private void reload() throws SQLException {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Builder builder = new Builder();
+        try {
+            source.load(builder);
+        } catch (SQLException | RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        builder.state.optimize();
+
+        lock.writeLock().lock();
+        try {
+            for (Consumer<State> change : pending) {
+                change.accept(builder.state);
+            }
+            pending = null;
+            state = builder.state;
+            loadedAt = System.nanoTime();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Índice de roles cargado: " + builder.state.rolesByUser.size() + " usuarios, "
+                + builder.state.usersByRole.size() + " roles en "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private static Roaring64NavigableMap intersect(Roaring64NavigableMap a, Roaring64NavigableMap b) {
+        Roaring64NavigableMap result = new Roaring64NavigableMap();
+        result.or(a);
+        result.and(b);
+        return result;
+    }
+
+    /**
+     * Recibe las filas de USER_ROLES y los IDs de usuarios activos durante una carga
+     */
+    public static final class Builder {
+        private final State state = new State();
+
+        private Builder() {
+        }
+
+        public void member(long userId, long roleId) {
+            state.add(userId, roleId);
+        }
+
+        public void activeUser(long userId) {
+            state.activeUsers.addLong(userId);
+        }
+    }
+
+    private static final class State {
+        final Map<Long, Roaring64NavigableMap> usersByRole = new HashMap<>();
+        final Map<Long, long[]> rolesByUser = new HashMap<>();
+        final Roaring64NavigableMap activeUsers = new Roaring64NavigableMap();
+
+        void add(long userId, long roleId) {
+            usersByRole.computeIfAbsent(roleId, id -> new Roaring64NavigableMap()).addLong(userId);
+            long[] roles = rolesByUser.getOrDefault(userId, EMPTY);
+            int pos = Arrays.binarySearch(roles, roleId);
+            if (pos < 0) {
+                int insert = -pos - 1;
+                long[] updated = new long[roles.length + 1];
+                System.arraycopy(roles, 0, updated, 0, insert);
+                updated[insert] = roleId;
+                System.arraycopy(roles, insert, updated, insert + 1, roles.length - insert);
+                rolesByUser.put(userId, updated);
+            }
+        }
+
+        void remove(long userId, long roleId) {
+            Roaring64NavigableMap members = usersByRole.get(roleId);
+            if (members != null) {
+                members.removeLong(userId);
+            }
+            long[] roles = rolesByUser.get(userId);
+            if (roles == null) {
+                return;
+            }
+            int pos = Arrays.binarySearch(roles, roleId);
+            if (pos >= 0) {
+                if (roles.length == 1) {
+                    rolesByUser.remove(userId);
+                    return;
+                }
+                long[] updated = new long[roles.length - 1];
+                System.arraycopy(roles, 0, updated, 0, pos);
+                System.arraycopy(roles, pos + 1, updated, pos, roles.length - pos - 1);
+                rolesByUser.put(userId, updated);
+            }
+        }
+
+        void removeRole(long roleId) {
+            Roaring64NavigableMap members = usersByRole.remove(roleId);
+            if (members == null) {
+                return;
+            }
+            LongIterator it = members.getLongIterator();
+            while (it.hasNext()) {
+                remove(it.next(), roleId);
+            }
+        }
+
+        void removeUser(long userId) {
+            long[] roles = rolesByUser.remove(userId);
+            if (roles != null) {
+                for (long roleId : roles) {
+                    Roaring64NavigableMap members = usersByRole.get(roleId);
+                    if (members != null) {
+                        members.removeLong(userId);
+                    }
+                }
+            }
+            activeUsers.removeLong(userId);
+        }
+
+        void setActive(long userId, boolean active) {
+            if (active) {
+                activeUsers.addLong(userId);
+            } else {
+                activeUsers.removeLong(userId);
+            }
+        }
+
+        void optimize() {
+            for (Roaring64NavigableMap members : usersByRole.values()) {
+                members.runOptimize();
+            }
+            activeUsers.runOptimize();
+        }
+    }
+}
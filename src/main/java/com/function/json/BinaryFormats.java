@@ -0,0 +1,48 @@
+package com.function.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Conversión de respuestas JSON a formatos binarios (CBOR y Smile).
+ *
+ * La conversión se hace token a token con los parsers/generadores de Jackson,
+ * sin construir objetos ni árboles intermedios, por lo que los nombres de campo
+ * son exactamente los mismos que en la versión JSON.
+ */
+public final class BinaryFormats {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    private BinaryFormats() {
+    }
+
+    public static byte[] jsonToCbor(byte[] json) {
+        return transcode(json, CBOR_FACTORY);
+    }
+
+    public static byte[] jsonToSmile(byte[] json) {
+        return transcode(json, SMILE_FACTORY);
+    }
+
+    private static byte[] transcode(byte[] json, JsonFactory target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 2));
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+                JsonGenerator generator = target.createGenerator(out)) {
+            if (parser.nextToken() != null) {
+                generator.copyCurrentStructure(parser);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al convertir JSON a formato binario", e);
+        }
+        return out.toByteArray();
+    }
+}
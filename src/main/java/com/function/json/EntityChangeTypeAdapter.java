@@ -0,0 +1,75 @@
+package com.function.json;
+
+import com.function.events.EntityChange;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializa y deserializa {@link EntityChange} sin reflexión.
+ *
+ * Al leer se ignoran los campos desconocidos, así que el contenido completo de
+ * los eventos anteriores (un usuario o un rol con su id) se lee como un cambio
+ * de todos los campos, sin decodificar la entidad, y el nombre anterior de
+ * changedAt ("version") se lee como changedAt.
+ */
+public class EntityChangeTypeAdapter extends TypeAdapter<EntityChange> {
+
+    @Override
+    public void write(JsonWriter out, EntityChange change) throws IOException {
+        if (change == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(change.getId());
+        out.name("changedAt").value(change.getChangedAt());
+        out.name("mask").value(change.getChangeMask());
+        if (change.getPublishedAt() != 0) {
+            out.name("publishedAt").value(change.getPublishedAt());
+            out.name("sequence").value(change.getSequence());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public EntityChange read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        long id = EntityChange.NO_ID;
+        long changedAt = 0;
+        int mask = EntityChange.ALL;
+        long publishedAt = 0;
+        long sequence = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = JsonReaders.nextId(in, EntityChange.NO_ID);
+                    break;
+                case "changedAt":
+                case "version":
+                    changedAt = in.nextLong();
+                    break;
+                case "mask":
+                    mask = in.nextInt();
+                    break;
+                case "publishedAt":
+                    publishedAt = in.nextLong();
+                    break;
+                case "sequence":
+                    sequence = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new EntityChange(id, changedAt, mask, publishedAt, sequence);
+    }
+}
@@ -0,0 +1,157 @@
+package com.function.json;
+
+import com.function.events.EventGridEventData;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Lee el sobre de un evento de Event Grid campo a campo y decodifica
+ * {@code data} en la misma pasada, con el TypeAdapter que corresponde al tipo
+ * de evento según la tabla de despacho.
+ *
+ * Event Grid escribe eventType antes que data, así que normalmente el
+ * contenido se lee directo al tipo final sin construir un árbol intermedio; si
+ * data llega primero se guarda como árbol y se decodifica al terminar el
+ * sobre. El contenido de los tipos que no están en la tabla se salta sin
+ * leerlo, y un contenido inválido para su tipo no invalida el sobre: se salta
+ * el resto del valor y se informa en {@code dataError}.
+ */
+public class EventGridEventDataTypeAdapter extends TypeAdapter<EventGridEventData> {
+    private final TypeAdapter<JsonElement> treeAdapter;
+    private final Map<String, TypeAdapter<?>> payloadAdapters;
+
+    /**
+     * @param treeAdapter     adaptador de árboles JSON
+     * @param payloadAdapters adaptador del contenido de cada tipo de evento
+     */
+    public EventGridEventDataTypeAdapter(TypeAdapter<JsonElement> treeAdapter,
+            Map<String, TypeAdapter<?>> payloadAdapters) {
+        this.treeAdapter = treeAdapter;
+        this.payloadAdapters = payloadAdapters;
+    }
+
+    @Override
+    public void write(JsonWriter out, EventGridEventData event) throws IOException {
+        if (event == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeIfPresent(out, "id", event.id);
+        writeIfPresent(out, "eventType", event.eventType);
+        writeIfPresent(out, "subject", event.subject);
+        writeIfPresent(out, "eventTime", event.eventTime);
+        writeData(out, event);
+        writeIfPresent(out, "dataVersion", event.dataVersion);
+        writeIfPresent(out, "metadataVersion", event.metadataVersion);
+        writeIfPresent(out, "topic", event.topic);
+        out.endObject();
+    }
+
+    @Override
+    public EventGridEventData read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        EventGridEventData event = new EventGridEventData();
+        // data recibido antes que eventType
+        JsonElement pending = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    event.id = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "eventType":
+                    event.eventType = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "subject":
+                    event.subject = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "eventTime":
+                    event.eventTime = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "data":
+                    if (event.eventType != null) {
+                        readData(in, event);
+                    } else {
+                        pending = treeAdapter.read(in);
+                    }
+                    break;
+                case "dataVersion":
+                    event.dataVersion = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "metadataVersion":
+                    event.metadataVersion = JsonReaders.nextStringOrNull(in);
+                    break;
+                case "topic":
+                    event.topic = JsonReaders.nextStringOrNull(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (pending != null) {
+            decodeTree(pending, event);
+        }
+        return event;
+    }
+
+    private void readData(JsonReader in, EventGridEventData event) throws IOException {
+        TypeAdapter<?> adapter = payloadAdapters.get(event.eventType);
+        if (adapter == null) {
+            in.skipValue();
+            return;
+        }
+        String path = in.getPath();
+        try {
+            event.data = adapter.read(in);
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            event.data = null;
+            event.dataError = e.getMessage();
+            JsonReaders.skipRest(in, path);
+        }
+    }
+
+    private void decodeTree(JsonElement data, EventGridEventData event) {
+        TypeAdapter<?> adapter = payloadAdapters.get(event.eventType);
+        if (adapter == null) {
+            return;
+        }
+        try {
+            event.data = adapter.fromJsonTree(data);
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            event.data = null;
+            event.dataError = e.getMessage();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeData(JsonWriter out, EventGridEventData event) throws IOException {
+        if (event.data == null) {
+            return;
+        }
+        TypeAdapter<Object> adapter = event.data instanceof JsonElement
+                ? (TypeAdapter<Object>) (TypeAdapter<?>) treeAdapter
+                : (TypeAdapter<Object>) payloadAdapters.get(event.eventType);
+        if (adapter != null) {
+            out.name("data");
+            adapter.write(out, event.data);
+        }
+    }
+
+    private static void writeIfPresent(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.function.json;
+
+import com.function.graphql.GraphQLRequest;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Lee el cuerpo de una petición GraphQL en una sola pasada. Las variables se
+ * leen con el adaptador genérico de Gson porque su forma depende de la consulta.
+ */
+public class GraphQLRequestTypeAdapter extends TypeAdapter<GraphQLRequest> {
+    private final TypeAdapter<Object> valueAdapter;
+
+    public GraphQLRequestTypeAdapter(TypeAdapter<Object> valueAdapter) {
+        this.valueAdapter = valueAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, GraphQLRequest request) throws IOException {
+        if (request == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (request.getQuery() != null) {
+            out.name("query").value(request.getQuery());
+        }
+        if (request.getOperationName() != null) {
+            out.name("operationName").value(request.getOperationName());
+        }
+        if (request.getVariables() != null) {
+            out.name("variables");
+            valueAdapter.write(out, request.getVariables());
+        }
+        out.endObject();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public GraphQLRequest read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        GraphQLRequest request = new GraphQLRequest();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "query":
+                    request.setQuery(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "operationName":
+                    request.setOperationName(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "variables":
+                    if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                        request.setVariables((Map<String, Object>) valueAdapter.read(in));
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return request;
+    }
+}
@@ -0,0 +1,32 @@
+package com.function.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Adaptador del campo numérico del ID de {@link com.function.model.User} y
+ * {@link com.function.model.Role} para la serialización reflexiva de Gson (la
+ * que usa un {@code new Gson()} sin los adaptadores de {@link Json}). Escribe
+ * el ID como String bajo el nombre "id", igual que los adaptadores escritos a
+ * mano, y omite el de las entidades que todavía no fueron guardadas.
+ */
+public class IdTypeAdapter extends TypeAdapter<Long> {
+    private static final long NO_ID = 0L;
+
+    @Override
+    public void write(JsonWriter out, Long id) throws IOException {
+        if (id == null || id == NO_ID) {
+            out.nullValue();
+            return;
+        }
+        out.value(Long.toString(id));
+    }
+
+    @Override
+    public Long read(JsonReader in) throws IOException {
+        return JsonReaders.nextId(in, NO_ID);
+    }
+}
@@ -0,0 +1,87 @@
+package com.function.json;
+
+import com.function.events.EntityChange;
+import com.function.events.EventGridEventData;
+import com.function.events.EventTypes;
+import com.function.graphql.GraphQLRequest;
+import com.function.model.Role;
+import com.function.model.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Instancias de Gson compartidas y serialización directa a bytes.
+ *
+ * La salida es compacta por defecto; la versión con sangría sólo se usa cuando
+ * el cliente la pide explícitamente (?pretty=true). Ambas instancias registran
+ * TypeAdapters escritos a mano para los tipos que se (de)serializan en cada
+ * petición o evento, de modo que no pasan por la serialización reflexiva.
+ */
+public final class Json {
+    private static final int INITIAL_BUFFER_SIZE = 512;
+
+    private static final Gson COMPACT = builder().create();
+    private static final Gson PRETTY = builder().setPrettyPrinting().create();
+
+    private Json() {
+    }
+
+    public static Gson compact() {
+        return COMPACT;
+    }
+
+    public static Gson pretty() {
+        return PRETTY;
+    }
+
+    private static GsonBuilder builder() {
+        Gson plain = new Gson();
+        TypeAdapter<JsonElement> treeAdapter = plain.getAdapter(JsonElement.class);
+        RoleTypeAdapter roleAdapter = new RoleTypeAdapter();
+        UserTypeAdapter userAdapter = new UserTypeAdapter(roleAdapter);
+        EntityChangeTypeAdapter changeAdapter = new EntityChangeTypeAdapter();
+
+        // Tabla de despacho: tipo de evento -> adaptador de su contenido
+        Map<String, TypeAdapter<?>> payloadAdapters = Map.of(
+                EventTypes.USER_CREATED, changeAdapter,
+                EventTypes.USER_UPDATED, changeAdapter,
+                EventTypes.ROLE_DELETED, changeAdapter,
+                EventTypes.SUBSCRIPTION_VALIDATION, treeAdapter);
+
+        return new GsonBuilder()
+                .registerTypeAdapter(Role.class, roleAdapter)
+                .registerTypeAdapter(User.class, userAdapter)
+                .registerTypeAdapter(EntityChange.class, changeAdapter)
+                .registerTypeAdapter(GraphQLRequest.class, new GraphQLRequestTypeAdapter(plain.getAdapter(Object.class)))
+                .registerTypeAdapter(EventGridEventData.class,
+                        new EventGridEventDataTypeAdapter(treeAdapter, payloadAdapters));
+    }
+
+    public static byte[] toBytes(Object value) {
+        return toBytes(value, false);
+    }
+
+    /**
+     * Serializa el valor escribiendo directamente en un buffer de bytes UTF-8,
+     * sin construir antes un String con todo el documento.
+     */
+    public static byte[] toBytes(Object value, boolean pretty) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            (pretty ? PRETTY : COMPACT).toJson(value, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al serializar JSON", e);
+        }
+        return out.toByteArray();
+    }
+}
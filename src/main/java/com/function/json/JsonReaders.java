@@ -0,0 +1,99 @@
+package com.function.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Lecturas de valores escalares comunes a los TypeAdapters
+ */
+final class JsonReaders {
+
+    private JsonReaders() {
+    }
+
+    /**
+     * Lee un string, aceptando también números (ej. IDs numéricos) y null
+     */
+    static String nextStringOrNull(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Lee un ID numérico enviado como string o como número; null se lee como
+     * {@code noId}
+     */
+    static long nextId(JsonReader in, long noId) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return noId;
+        }
+        if (token == JsonToken.NUMBER) {
+            return in.nextLong();
+        }
+        String value = in.nextString();
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException("ID no numérico: " + value + " en " + in.getPath(), e);
+        }
+    }
+
+    /**
+     * Lee un booleano; si el valor es null se conserva el valor por defecto
+     */
+    static boolean nextBoolean(JsonReader in, boolean defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Después de un error al leer el valor que empezaba en {@code path}, salta
+     * lo que quede de ese valor para que la lectura pueda seguir con el
+     * siguiente campo
+     */
+    static void skipRest(JsonReader in, String path) throws IOException {
+        while (isInside(in.getPath(), path)) {
+            switch (in.peek()) {
+                case END_OBJECT:
+                    in.endObject();
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    break;
+                case NAME:
+                    in.nextName();
+                    break;
+                case END_DOCUMENT:
+                    return;
+                default:
+                    in.skipValue();
+            }
+        }
+        // El error ocurrió antes de consumir el valor (ej. se esperaba un objeto)
+        if (in.getPath().equals(path)) {
+            JsonToken next = in.peek();
+            if (next != JsonToken.NAME && next != JsonToken.END_OBJECT && next != JsonToken.END_DOCUMENT) {
+                in.skipValue();
+            }
+        }
+    }
+
+    private static boolean isInside(String current, String path) {
+        if (current.length() <= path.length() || !current.startsWith(path)) {
+            return false;
+        }
+        char next = current.charAt(path.length());
+        return next == '.' || next == '[';
+    }
+}
@@ -0,0 +1,67 @@
+package com.function.json;
+
+import com.function.model.Role;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Serializa y deserializa {@link Role} leyendo y escribiendo los campos
+ * directamente, sin reflexión. Los campos nulos se omiten.
+ */
+public class RoleTypeAdapter extends TypeAdapter<Role> {
+
+    @Override
+    public void write(JsonWriter out, Role role) throws IOException {
+        if (role == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (role.hasId()) {
+            out.name("id").value(role.getId());
+        }
+        if (role.getName() != null) {
+            out.name("name").value(role.getName());
+        }
+        if (role.getDescription() != null) {
+            out.name("description").value(role.getDescription());
+        }
+        out.name("isActive").value(role.isActive());
+        out.endObject();
+    }
+
+    @Override
+    public Role read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Role role = new Role();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    role.setIdValue(JsonReaders.nextId(in, Role.NO_ID));
+                    break;
+                case "name":
+                    role.setName(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "description":
+                    role.setDescription(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "isActive":
+                case "active":
+                    role.setActive(JsonReaders.nextBoolean(in, role.isActive()));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return role;
+    }
+}
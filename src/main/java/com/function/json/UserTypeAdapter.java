@@ -0,0 +1,113 @@
+package com.function.json;
+
+import com.function.model.Role;
+import com.function.model.User;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializa y deserializa {@link User} leyendo y escribiendo los campos
+ * directamente, sin reflexión. Los campos nulos se omiten.
+ */
+public class UserTypeAdapter extends TypeAdapter<User> {
+    private final RoleTypeAdapter roleAdapter;
+
+    public UserTypeAdapter(RoleTypeAdapter roleAdapter) {
+        this.roleAdapter = roleAdapter;
+    }
+
+    @Override
+    public void write(JsonWriter out, User user) throws IOException {
+        if (user == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (user.hasId()) {
+            out.name("id").value(user.getId());
+        }
+        if (user.getUsername() != null) {
+            out.name("username").value(user.getUsername());
+        }
+        if (user.getEmail() != null) {
+            out.name("email").value(user.getEmail());
+        }
+        if (user.getFirstName() != null) {
+            out.name("firstName").value(user.getFirstName());
+        }
+        if (user.getLastName() != null) {
+            out.name("lastName").value(user.getLastName());
+        }
+        out.name("isActive").value(user.isActive());
+
+        List<Role> roles = user.getRoles();
+        if (roles != null) {
+            out.name("roles").beginArray();
+            for (int i = 0; i < roles.size(); i++) {
+                roleAdapter.write(out, roles.get(i));
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public User read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        User user = new User();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    user.setIdValue(JsonReaders.nextId(in, User.NO_ID));
+                    break;
+                case "username":
+                    user.setUsername(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "email":
+                    user.setEmail(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "firstName":
+                    user.setFirstName(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "lastName":
+                    user.setLastName(JsonReaders.nextStringOrNull(in));
+                    break;
+                case "isActive":
+                case "active":
+                    user.setActive(JsonReaders.nextBoolean(in, user.isActive()));
+                    break;
+                case "roles":
+                    readRoles(in, user);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return user;
+    }
+
+    private void readRoles(JsonReader in, User user) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return;
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            Role role = roleAdapter.read(in);
+            if (role != null) {
+                user.addRole(role);
+            }
+        }
+        in.endArray();
+    }
+}
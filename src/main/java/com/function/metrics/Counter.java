@@ -0,0 +1,25 @@
+package com.function.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contador monótono, barato de incrementar desde varios hilos
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,109 @@
+package com.function.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores no negativos con buckets en potencias de dos.
+ *
+ * Registrar un valor no asigna memoria ni toma locks. Los percentiles se
+ * informan como el límite superior del bucket, así que tienen un error de
+ * hasta el doble del valor real; alcanza para seguir tendencias de latencia y
+ * tamaño.
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram() {
+    }
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+        buckets.incrementAndGet(bucket(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Valor aproximado del percentil (0 a 100)
+     */
+    public long percentile(double percentile) {
+        return Math.min(percentile(counts(), percentile), getMax());
+    }
+
+    /**
+     * Cantidad de valores registrados en cada bucket. La diferencia entre dos
+     * lecturas da los valores registrados en el intervalo.
+     */
+    long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Valor aproximado del percentil (0 a 100) de los conteos por bucket, como
+     * límite superior del bucket; 0 si no hay valores
+     */
+    static long percentile(long[] counts, double percentile) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1, rank)) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        long n = getCount();
+        values.put("count", n);
+        values.put("mean", n == 0 ? 0 : getSum() / n);
+        values.put("p50", percentile(50));
+        values.put("p95", percentile(95));
+        values.put("p99", percentile(99));
+        values.put("max", getMax());
+        return values;
+    }
+
+    private static int bucket(long value) {
+        return 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
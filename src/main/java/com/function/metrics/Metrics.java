@@ -0,0 +1,60 @@
+package com.function.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de métricas de la instancia: contadores, histogramas y gauges por
+ * nombre. Las métricas se crean la primera vez que se piden y se exponen con
+ * {@link #snapshot()} (ver MetricsFunction) y se envían periódicamente a
+ * Application Insights con {@link MetricsExporter} (ver MetricsExportFunction).
+ */
+public final class Metrics {
+    private static final ConcurrentHashMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public static Histogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Registra un valor que se lee en el momento de tomar el snapshot; si ya
+     * existía un gauge con ese nombre se reemplaza
+     */
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    /**
+     * Valores actuales de todas las métricas, ordenados por nombre
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        HISTOGRAMS.forEach((name, histogram) -> values.put(name, histogram.snapshot()));
+        return values;
+    }
+
+    static Map<String, Counter> counters() {
+        return COUNTERS;
+    }
+
+    static Map<String, Histogram> histograms() {
+        return HISTOGRAMS;
+    }
+
+    static Map<String, LongSupplier> gauges() {
+        return GAUGES;
+    }
+}
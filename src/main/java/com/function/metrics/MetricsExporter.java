@@ -0,0 +1,71 @@
+package com.function.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Envía las métricas de la instancia a un sistema externo (Application
+ * Insights en MetricsExportFunction) por intervalos, para poder definir
+ * alertas sobre ellas.
+ *
+ * En cada {@link #export} se envían, de lo ocurrido desde el export anterior:
+ * &lt;histograma&gt;.count, .p50, .p95, .p99 y .max (límite del bucket, como
+ * en {@link Histogram}), y &lt;contador&gt;.delta; de los gauges, el valor
+ * actual. Los histogramas sin valores en el intervalo no se envían, así que un
+ * p99 de alerta siempre corresponde a eventos del último intervalo y no a todo
+ * lo registrado desde que arrancó la instancia.
+ */
+public final class MetricsExporter {
+
+    /**
+     * Destino de las métricas
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void metric(String name, double value);
+    }
+
+    private final Map<String, long[]> previousHistograms = new HashMap<>();
+    private final Map<String, Long> previousCounters = new HashMap<>();
+
+    /**
+     * Envía las métricas del intervalo al destino
+     *
+     * @return cantidad de valores enviados
+     */
+    public synchronized int export(Sink sink) {
+        int sent = 0;
+        for (Map.Entry<String, Histogram> entry : Metrics.histograms().entrySet()) {
+            long[] counts = entry.getValue().counts();
+            long[] previous = previousHistograms.put(entry.getKey(), counts);
+            long[] interval = counts.clone();
+            long total = 0;
+            for (int i = 0; i < interval.length; i++) {
+                interval[i] -= previous != null ? previous[i] : 0;
+                total += interval[i];
+            }
+            if (total == 0) {
+                continue;
+            }
+            String name = entry.getKey();
+            sink.metric(name + ".count", total);
+            sink.metric(name + ".p50", Histogram.percentile(interval, 50));
+            sink.metric(name + ".p95", Histogram.percentile(interval, 95));
+            sink.metric(name + ".p99", Histogram.percentile(interval, 99));
+            sink.metric(name + ".max", Histogram.percentile(interval, 100));
+            sent += 5;
+        }
+        for (Map.Entry<String, Counter> entry : Metrics.counters().entrySet()) {
+            long value = entry.getValue().get();
+            Long previous = previousCounters.put(entry.getKey(), value);
+            sink.metric(entry.getKey() + ".delta", value - (previous != null ? previous : 0));
+            sent++;
+        }
+        for (Map.Entry<String, LongSupplier> entry : Metrics.gauges().entrySet()) {
+            sink.metric(entry.getKey(), entry.getValue().getAsLong());
+            sent++;
+        }
+        return sent;
+    }
+}
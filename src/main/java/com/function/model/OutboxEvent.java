@@ -0,0 +1,87 @@
+package com.function.model;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Evento guardado en la tabla OUTBOX a la espera de ser publicado
+ */
+public class OutboxEvent {
+    private long id;
+    private String eventId;
+    private String eventType;
+    private String subject;
+    private String payload;
+    private OffsetDateTime createdAt;
+    private int attempts;
+
+    // Getters y setters
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    /**
+     * Datos del evento ya serializados como JSON
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public OffsetDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(OffsetDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "id=" + id +
+                ", eventId='" + eventId + '\'' +
+                ", eventType='" + eventType + '\'' +
+                ", subject='" + subject + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
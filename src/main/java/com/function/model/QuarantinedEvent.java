@@ -0,0 +1,84 @@
+package com.function.model;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Evento guardado en la tabla QUARANTINED_EVENTS porque el consumidor no pudo
+ * procesarlo
+ */
+public class QuarantinedEvent {
+    private String eventId;
+    private String eventType;
+    private String subject;
+    private String payload;
+    private String reason;
+    private int attempts;
+    private OffsetDateTime firstFailedAt;
+    private OffsetDateTime lastFailedAt;
+
+    // Getters y setters
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    /** Evento completo en JSON, tal como lo entregó Event Grid */
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public OffsetDateTime getFirstFailedAt() {
+        return firstFailedAt;
+    }
+
+    public void setFirstFailedAt(OffsetDateTime firstFailedAt) {
+        this.firstFailedAt = firstFailedAt;
+    }
+
+    public OffsetDateTime getLastFailedAt() {
+        return lastFailedAt;
+    }
+
+    public void setLastFailedAt(OffsetDateTime lastFailedAt) {
+        this.lastFailedAt = lastFailedAt;
+    }
+}
@@ -1,16 +1,31 @@
 package com.function.model;
 
-import java.util.UUID;
+import com.function.json.IdTypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 
+/**
+ * Rol de usuario. Las instancias que comparten los usuarios provienen de
+ * {@link RoleRegistry} y son de solo lectura: sus setters lanzan
+ * UnsupportedOperationException.
+ */
 public class Role {
-    private String id;
+    /**
+     * ID de una entidad que todavía no fue guardada en la base de datos
+     */
+    public static final long NO_ID = 0L;
+
+    // El ID se guarda como número; la API y el JSON lo siguen exponiendo como String
+    @SerializedName("id")
+    @JsonAdapter(IdTypeAdapter.class)
+    private long idValue = NO_ID;
     private String name;
     private String description;
     private boolean isActive;
+    private boolean frozen;
 
     // Constructores
     public Role() {
-        this.id = UUID.randomUUID().toString();
         this.isActive = true;
     }
 
@@ -21,12 +36,39 @@ public class Role {
     }
 
     // Getters y setters
+    /**
+     * ID como String, o null si el rol todavía no fue guardado
+     */
     public String getId() {
-        return id;
+        return idValue == NO_ID ? null : Long.toString(idValue);
     }
 
+    /**
+     * Asigna el ID a partir de su representación textual; null lo deja sin
+     * asignar
+     *
+     * @throws IllegalArgumentException si el ID no es numérico
+     */
     public void setId(String id) {
-        this.id = id;
+        checkMutable();
+        if (id == null) {
+            this.idValue = NO_ID;
+            return;
+        }
+        this.idValue = parseId(id);
+    }
+
+    public long getIdValue() {
+        return idValue;
+    }
+
+    public void setIdValue(long idValue) {
+        checkMutable();
+        this.idValue = idValue;
+    }
+
+    public boolean hasId() {
+        return idValue != NO_ID;
     }
 
     public String getName() {
@@ -34,6 +76,7 @@ public class Role {
     }
 
     public void setName(String name) {
+        checkMutable();
         this.name = name;
     }
 
@@ -42,6 +85,7 @@ public class Role {
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
     }
 
@@ -50,16 +94,39 @@ public class Role {
     }
 
     public void setActive(boolean active) {
+        checkMutable();
         isActive = active;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        this.frozen = true;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("El rol " + getId() + " es compartido y de solo lectura");
+        }
+    }
+
     @Override
     public String toString() {
         return "Role{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", name='" + name + '\'' +
                 ", description='" + description + '\'' +
                 ", isActive=" + isActive +
                 '}';
     }
-}
\ No newline at end of file
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID de rol no numérico: " + id, e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.function.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de instancias canónicas de {@link Role}.
+ *
+ * Hay unas pocas decenas de roles distintos, así que en lugar de que cada
+ * usuario guarde sus propias copias, los usuarios guardan sólo el ordinal del
+ * rol en el registro y comparten una única instancia de solo lectura por rol.
+ *
+ * Cada rol con ID recibe un ordinal denso la primera vez que se registra; el
+ * ordinal no cambia aunque el rol se modifique, sólo se reemplaza la instancia
+ * canónica. Las lecturas no toman locks; los registros (poco frecuentes) se
+ * sincronizan y publican un arreglo nuevo.
+ *
+ * Al eliminar un rol se debe llamar a {@link #evict(long)}, que libera su
+ * ordinal. Un usuario leído antes de la eliminación puede conservar el ordinal
+ * liberado, así que éste recién se reutiliza pasado {@link #REUSE_DELAY_NANOS},
+ * más que la duración máxima de una ejecución de una función; mientras tanto
+ * ese usuario simplemente deja de ver el rol eliminado.
+ */
+public final class RoleRegistry {
+    static final long REUSE_DELAY_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    private static final ConcurrentHashMap<Long, Integer> ORDINALS = new ConcurrentHashMap<>();
+    // Ordinales liberados por evict, en orden de liberación
+    private static final ArrayDeque<long[]> FREED = new ArrayDeque<>();
+    private static volatile Role[] roles = new Role[16];
+    private static int size;
+
+    private RoleRegistry() {
+    }
+
+    /**
+     * Devuelve la instancia compartida para el rol, registrándola o
+     * actualizándola si su contenido cambió
+     *
+     * @throws IllegalArgumentException si el rol no tiene ID
+     */
+    public static Role canonical(Role role) {
+        return roles[register(role)];
+    }
+
+    /**
+     * Actualiza la instancia canónica de un rol ya registrado, sin registrar
+     * roles que ningún usuario referencia todavía
+     */
+    public static void refresh(Role role) {
+        if (role != null && role.hasId() && ORDINALS.containsKey(role.getIdValue())) {
+            register(role);
+        }
+    }
+
+    /**
+     * Quita el rol eliminado del registro: deja de devolverse en los roles de los
+     * usuarios y su ordinal queda libre para otro rol
+     */
+    public static void evict(long roleId) {
+        synchronized (RoleRegistry.class) {
+            Integer ordinal = ORDINALS.remove(roleId);
+            if (ordinal == null) {
+                return;
+            }
+            Role[] updated = roles.clone();
+            updated[ordinal] = null;
+            roles = updated;
+            FREED.addLast(new long[] { ordinal, System.nanoTime() });
+        }
+    }
+
+    /**
+     * Ordinal del rol, registrándolo si hace falta
+     *
+     * @throws IllegalArgumentException si el rol no tiene ID
+     */
+    static int register(Role role) {
+        if (role == null || !role.hasId()) {
+            throw new IllegalArgumentException("Sólo se pueden registrar roles guardados, con ID: " + role);
+        }
+        Integer ordinal = ORDINALS.get(role.getIdValue());
+        if (ordinal != null && sameContent(roles[ordinal], role)) {
+            return ordinal;
+        }
+        synchronized (RoleRegistry.class) {
+            ordinal = ORDINALS.get(role.getIdValue());
+            if (ordinal == null) {
+                ordinal = nextFreeOrdinal();
+            } else if (sameContent(roles[ordinal], role)) {
+                return ordinal;
+            }
+
+            Role[] current = roles;
+            Role[] updated = ordinal < current.length ? current.clone() : Arrays.copyOf(current, current.length * 2);
+            updated[ordinal] = frozenCopy(role);
+            roles = updated;
+            ORDINALS.put(role.getIdValue(), ordinal);
+            return ordinal;
+        }
+    }
+
+    /**
+     * Ordinal de un rol ya registrado, o -1 si el ID no está registrado
+     */
+    static int ordinalOf(long roleId) {
+        Integer ordinal = ORDINALS.get(roleId);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Instancia canónica del ordinal, o null si el rol fue eliminado
+     */
+    static Role byOrdinal(int ordinal) {
+        Role[] current = roles;
+        return ordinal < current.length ? current[ordinal] : null;
+    }
+
+    // Se llama con el lock de la clase tomado
+    private static int nextFreeOrdinal() {
+        long[] freed = FREED.peekFirst();
+        if (freed != null && System.nanoTime() - freed[1] > REUSE_DELAY_NANOS) {
+            FREED.removeFirst();
+            return (int) freed[0];
+        }
+        return size++;
+    }
+
+    private static boolean sameContent(Role canonical, Role role) {
+        return canonical == role
+                || (Objects.equals(canonical.getName(), role.getName())
+                        && Objects.equals(canonical.getDescription(), role.getDescription())
+                        && canonical.isActive() == role.isActive());
+    }
+
+    private static Role frozenCopy(Role role) {
+        if (role.isFrozen()) {
+            return role;
+        }
+        Role copy = new Role(role.getName(), role.getDescription());
+        copy.setIdValue(role.getIdValue());
+        copy.setActive(role.isActive());
+        copy.freeze();
+        return copy;
+    }
+}
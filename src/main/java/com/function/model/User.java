@@ -1,23 +1,35 @@
 package com.function.model;
 
+import com.function.json.IdTypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
 
 public class User {
-    private String id;
+    /**
+     * ID de una entidad que todavía no fue guardada en la base de datos
+     */
+    public static final long NO_ID = 0L;
+
+    // El ID se guarda como número; la API y el JSON lo siguen exponiendo como String
+    @SerializedName("id")
+    @JsonAdapter(IdTypeAdapter.class)
+    private long idValue = NO_ID;
     private String username;
     private String email;
     private String firstName;
     private String lastName;
     private boolean isActive;
-    private List<Role> roles;
+    // Ordinales en RoleRegistry de los roles del usuario; null si no tiene roles
+    private BitSet roleOrdinals;
 
     // Constructores
     public User() {
-        this.id = UUID.randomUUID().toString();
         this.isActive = true;
-        this.roles = new ArrayList<>();
     }
 
     public User(String username, String email, String firstName, String lastName) {
@@ -29,29 +41,79 @@ public class User {
     }
 
     // Métodos para gestión de roles
+    /**
+     * Agrega el rol usando su instancia canónica de {@link RoleRegistry}. Los
+     * roles sin ID no se pueden registrar y se ignoran.
+     */
     public void addRole(Role role) {
-        if (role != null && !hasRole(role.getId())) {
-            this.roles.add(role);
+        if (role == null || !role.hasId()) {
+            return;
+        }
+        if (roleOrdinals == null) {
+            roleOrdinals = new BitSet();
         }
+        roleOrdinals.set(RoleRegistry.register(role));
     }
 
     public void removeRole(Role role) {
         if (role != null) {
-            this.roles.removeIf(r -> r.getId().equals(role.getId()));
+            removeRole(role.getIdValue());
+        }
+    }
+
+    public void removeRole(long roleId) {
+        int ordinal = RoleRegistry.ordinalOf(roleId);
+        if (ordinal >= 0 && roleOrdinals != null) {
+            roleOrdinals.clear(ordinal);
         }
     }
 
+    /**
+     * Indica si el usuario tiene el rol
+     *
+     * @throws IllegalArgumentException si el ID no es numérico
+     */
     public boolean hasRole(String roleId) {
-        return this.roles.stream().anyMatch(r -> r.getId().equals(roleId));
+        return roleId != null && hasRole(parseId(roleId));
+    }
+
+    public boolean hasRole(long roleId) {
+        int ordinal = RoleRegistry.ordinalOf(roleId);
+        return ordinal >= 0 && roleOrdinals != null && roleOrdinals.get(ordinal);
     }
 
     // Getters y setters
+    /**
+     * ID como String, o null si el usuario todavía no fue guardado
+     */
     public String getId() {
-        return id;
+        return idValue == NO_ID ? null : Long.toString(idValue);
     }
 
+    /**
+     * Asigna el ID a partir de su representación textual; null lo deja sin
+     * asignar
+     *
+     * @throws IllegalArgumentException si el ID no es numérico
+     */
     public void setId(String id) {
-        this.id = id;
+        if (id == null) {
+            this.idValue = NO_ID;
+            return;
+        }
+        this.idValue = parseId(id);
+    }
+
+    public long getIdValue() {
+        return idValue;
+    }
+
+    public void setIdValue(long idValue) {
+        this.idValue = idValue;
+    }
+
+    public boolean hasId() {
+        return idValue != NO_ID;
     }
 
     public String getUsername() {
@@ -94,24 +156,53 @@ public class User {
         isActive = active;
     }
 
+    /**
+     * Roles del usuario como instancias compartidas de solo lectura. La lista no
+     * se puede modificar; para cambiar los roles se usan addRole/removeRole.
+     */
     public List<Role> getRoles() {
-        return roles;
+        BitSet ordinals = roleOrdinals;
+        if (ordinals == null || ordinals.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Role> roles = new ArrayList<>(ordinals.cardinality());
+        for (int i = ordinals.nextSetBit(0); i >= 0; i = ordinals.nextSetBit(i + 1)) {
+            Role role = RoleRegistry.byOrdinal(i);
+            // null si el rol se eliminó después de leer el usuario
+            if (role != null) {
+                roles.add(role);
+            }
+        }
+        return Collections.unmodifiableList(roles);
     }
 
     public void setRoles(List<Role> roles) {
-        this.roles = roles;
+        this.roleOrdinals = null;
+        if (roles != null) {
+            for (Role role : roles) {
+                addRole(role);
+            }
+        }
     }
 
     @Override
     public String toString() {
         return "User{" +
-                "id='" + id + '\'' +
+                "id='" + getId() + '\'' +
                 ", username='" + username + '\'' +
                 ", email='" + email + '\'' +
                 ", firstName='" + firstName + '\'' +
                 ", lastName='" + lastName + '\'' +
                 ", isActive=" + isActive +
-                ", roles=" + roles +
+                ", roles=" + getRoles() +
                 '}';
     }
-}
\ No newline at end of file
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID no numérico: " + id, e);
+        }
+    }
+}
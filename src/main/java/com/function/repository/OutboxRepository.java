@@ -0,0 +1,192 @@
+package com.function.repository;
+
+import com.function.json.Json;
+import com.function.model.OutboxEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Acceso a la tabla OUTBOX (ver sql/outbox.sql).
+ *
+ * Todos los métodos reciben la conexión del llamador: los eventos se agregan en
+ * la misma transacción que el cambio de datos que los origina, y el relay
+ * reserva los eventos en una transacción y los borra, marca o aparta en
+ * OUTBOX_DEAD_LETTER en otra, después de publicarlos.
+ */
+public class OutboxRepository {
+    private static final Logger logger = Logger.getLogger(OutboxRepository.class.getName());
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    /**
+     * Agrega un evento a la outbox dentro de la transacción de {@code conn}
+     */
+    public void append(Connection conn, String eventType, String subject, Object data) throws SQLException {
+        String sql = "INSERT INTO OUTBOX (EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, UUID.randomUUID().toString());
+            stmt.setString(2, eventType);
+            stmt.setString(3, subject);
+            stmt.setString(4, Json.compact().toJson(data));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.severe("Error al agregar evento a la outbox: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Reserva y devuelve, en orden de inserción, hasta {@code max} eventos sin
+     * reserva vigente: los marca con LEASED_UNTIL = {@code leaseUntil} dentro de
+     * la transacción de {@code conn}, que no debe estar en autocommit. El
+     * llamador confirma la transacción antes de publicar, así que ni los bloqueos
+     * ni la conexión se retienen durante la publicación; si el relay se cae, los
+     * eventos vuelven a estar disponibles cuando vence la reserva.
+     *
+     * Oracle no admite FETCH FIRST junto con FOR UPDATE SKIP LOCKED; el límite
+     * se aplica con setMaxRows, y como Oracle bloquea las filas a medida que las
+     * entrega, sólo quedan bloqueadas las filas leídas.
+     */
+    public List<OutboxEvent> claimBatch(Connection conn, int max, OffsetDateTime leaseUntil) throws SQLException {
+        String selectSql = "SELECT ID, EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD, CREATED_AT, ATTEMPTS " +
+                           "FROM OUTBOX WHERE LEASED_UNTIL IS NULL OR LEASED_UNTIL < ? " +
+                           "ORDER BY ID FOR UPDATE SKIP LOCKED";
+        String leaseSql = "UPDATE OUTBOX SET LEASED_UNTIL = ? WHERE ID = ?";
+        List<OutboxEvent> events = new ArrayList<>(max);
+
+        try (PreparedStatement select = conn.prepareStatement(selectSql);
+                PreparedStatement lease = conn.prepareStatement(leaseSql)) {
+            select.setMaxRows(max);
+            select.setFetchSize(max);
+            select.setObject(1, OffsetDateTime.now());
+
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    OutboxEvent event = new OutboxEvent();
+                    event.setId(rs.getLong("ID"));
+                    event.setEventId(rs.getString("EVENT_ID"));
+                    event.setEventType(rs.getString("EVENT_TYPE"));
+                    event.setSubject(rs.getString("SUBJECT"));
+                    event.setPayload(rs.getString("PAYLOAD"));
+                    event.setCreatedAt(rs.getObject("CREATED_AT", OffsetDateTime.class));
+                    event.setAttempts(rs.getInt("ATTEMPTS"));
+                    events.add(event);
+                }
+            }
+
+            for (OutboxEvent event : events) {
+                lease.setObject(1, leaseUntil);
+                lease.setLong(2, event.getId());
+                lease.addBatch();
+            }
+            if (!events.isEmpty()) {
+                lease.executeBatch();
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al reservar eventos de la outbox: " + e.getMessage());
+            throw e;
+        }
+
+        return events;
+    }
+
+    /**
+     * Borra los eventos ya publicados
+     */
+    public void delete(Connection conn, List<OutboxEvent> events) throws SQLException {
+        String sql = "DELETE FROM OUTBOX WHERE ID = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OutboxEvent event : events) {
+                stmt.setLong(1, event.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.severe("Error al borrar eventos de la outbox: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Registra un intento fallido de publicación; los eventos quedan en la outbox
+     * y no se vuelven a tomar antes de {@code retryAt}
+     */
+    public void markFailed(Connection conn, List<OutboxEvent> events, String error, OffsetDateTime retryAt)
+            throws SQLException {
+        String sql = "UPDATE OUTBOX SET ATTEMPTS = ATTEMPTS + 1, LAST_ERROR = ?, LEASED_UNTIL = ? WHERE ID = ?";
+        String message = truncate(error);
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OutboxEvent event : events) {
+                stmt.setString(1, message);
+                stmt.setObject(2, retryAt);
+                stmt.setLong(3, event.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.severe("Error al registrar fallo de publicación en la outbox: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Libera la reserva de eventos que no se llegaron a enviar, sin contar un intento
+     */
+    public void release(Connection conn, List<OutboxEvent> events) throws SQLException {
+        String sql = "UPDATE OUTBOX SET LEASED_UNTIL = NULL WHERE ID = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (OutboxEvent event : events) {
+                stmt.setLong(1, event.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.severe("Error al liberar eventos de la outbox: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Mueve los eventos a OUTBOX_DEAD_LETTER con el motivo, para que dejen de
+     * bloquear a los que vienen detrás
+     */
+    public void deadLetter(Connection conn, List<OutboxEvent> events, String reason) throws SQLException {
+        String copySql = "INSERT INTO OUTBOX_DEAD_LETTER " +
+                         "(ID, EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD, CREATED_AT, ATTEMPTS, REASON) " +
+                         "SELECT ID, EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD, CREATED_AT, ATTEMPTS, ? " +
+                         "FROM OUTBOX WHERE ID = ?";
+        String deleteSql = "DELETE FROM OUTBOX WHERE ID = ?";
+        String message = truncate(reason);
+
+        try (PreparedStatement copy = conn.prepareStatement(copySql);
+                PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+            for (OutboxEvent event : events) {
+                copy.setString(1, message);
+                copy.setLong(2, event.getId());
+                copy.addBatch();
+                delete.setLong(1, event.getId());
+                delete.addBatch();
+            }
+            copy.executeBatch();
+            delete.executeBatch();
+        } catch (SQLException e) {
+            logger.severe("Error al mover eventos de la outbox a OUTBOX_DEAD_LETTER: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
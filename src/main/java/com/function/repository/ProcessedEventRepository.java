@@ -0,0 +1,108 @@
+package com.function.repository;
+
+import com.function.OracleDBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Acceso a la tabla PROCESSED_EVENTS (ver sql/processed_events.sql), que
+ * registra los IDs de eventos ya procesados por cualquier instancia.
+ */
+public class ProcessedEventRepository {
+    private static final Logger logger = Logger.getLogger(ProcessedEventRepository.class.getName());
+
+    // Oracle admite hasta 1000 expresiones en una lista IN
+    private static final int MAX_IN_LIST = 1000;
+
+    /**
+     * Devuelve cuáles de los IDs ya están registrados como procesados
+     */
+    public Set<String> findProcessed(List<String> eventIds) throws SQLException {
+        if (eventIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> processed = new HashSet<>();
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            for (int from = 0; from < eventIds.size(); from += MAX_IN_LIST) {
+                List<String> chunk = eventIds.subList(from, Math.min(eventIds.size(), from + MAX_IN_LIST));
+                String sql = "SELECT EVENT_ID FROM PROCESSED_EVENTS WHERE EVENT_ID IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            processed.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al consultar eventos procesados: " + e.getMessage());
+            throw e;
+        }
+
+        return processed;
+    }
+
+    /**
+     * Registra los eventos como procesados en un único lote; los que ya
+     * estaban registrados (por ejemplo, por otra instancia) se omiten
+     *
+     * @param eventTypes tipo de cada evento, por ID
+     */
+    public void markProcessed(Map<String, String> eventTypes) throws SQLException {
+        String sql = "INSERT INTO PROCESSED_EVENTS (EVENT_ID, EVENT_TYPE) SELECT ?, ? FROM DUAL " +
+                     "WHERE NOT EXISTS (SELECT 1 FROM PROCESSED_EVENTS WHERE EVENT_ID = ?)";
+        if (eventTypes.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Map.Entry<String, String> entry : eventTypes.entrySet()) {
+                stmt.setString(1, entry.getKey());
+                stmt.setString(2, entry.getValue());
+                stmt.setString(3, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            logger.severe("Error al registrar eventos procesados: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Borra los registros más viejos que la ventana de deduplicación
+     *
+     * @return cantidad de filas borradas
+     */
+    public int purgeOlderThan(Duration window) throws SQLException {
+        String sql = "DELETE FROM PROCESSED_EVENTS WHERE PROCESSED_AT < SYSTIMESTAMP - NUMTODSINTERVAL(?, 'SECOND')";
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, window.getSeconds());
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            logger.severe("Error al purgar eventos procesados: " + e.getMessage());
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.function.repository;
+
+import com.function.OracleDBConnection;
+import com.function.model.QuarantinedEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Acceso a la tabla QUARANTINED_EVENTS (ver sql/quarantine.sql), donde quedan
+ * los eventos que el consumidor no pudo procesar, con el motivo del último
+ * fallo y la cantidad de intentos.
+ */
+public class QuarantineRepository {
+    private static final Logger logger = Logger.getLogger(QuarantineRepository.class.getName());
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    // Oracle admite hasta 1000 expresiones en una lista IN
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final String COLUMNS =
+            "EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD, REASON, ATTEMPTS, FIRST_FAILED_AT, LAST_FAILED_AT";
+
+    /**
+     * Registra un fallo del evento: lo agrega a la cuarentena con un intento o,
+     * si ya estaba, suma un intento y reemplaza el motivo
+     *
+     * @return intentos fallidos registrados para el evento
+     */
+    public int recordFailure(String eventId, String eventType, String subject, String payload, String reason)
+            throws SQLException {
+        String merge = "MERGE INTO QUARANTINED_EVENTS q USING (SELECT ? AS EVENT_ID FROM DUAL) s " +
+                       "ON (q.EVENT_ID = s.EVENT_ID) " +
+                       "WHEN MATCHED THEN UPDATE SET ATTEMPTS = q.ATTEMPTS + 1, REASON = ?, LAST_FAILED_AT = SYSTIMESTAMP " +
+                       "WHEN NOT MATCHED THEN INSERT (EVENT_ID, EVENT_TYPE, SUBJECT, PAYLOAD, REASON) " +
+                       "VALUES (s.EVENT_ID, ?, ?, ?, ?)";
+        String select = "SELECT ATTEMPTS FROM QUARANTINED_EVENTS WHERE EVENT_ID = ?";
+        String message = truncate(reason);
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(merge)) {
+                stmt.setString(1, eventId);
+                stmt.setString(2, message);
+                stmt.setString(3, eventType);
+                stmt.setString(4, subject);
+                stmt.setString(5, payload);
+                stmt.setString(6, message);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                stmt.setString(1, eventId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 1;
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al registrar el evento " + eventId + " en cuarentena: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Devuelve hasta {@code max} eventos en cuarentena, los más antiguos primero
+     */
+    public List<QuarantinedEvent> findAll(int max) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM QUARANTINED_EVENTS ORDER BY FIRST_FAILED_AT";
+        List<QuarantinedEvent> events = new ArrayList<>();
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setMaxRows(max);
+            stmt.setFetchSize(Math.min(max, 500));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al leer eventos en cuarentena: " + e.getMessage());
+            throw e;
+        }
+
+        return events;
+    }
+
+    /**
+     * Devuelve los eventos en cuarentena con los IDs indicados; los IDs que no
+     * están en cuarentena se ignoran
+     */
+    public List<QuarantinedEvent> findByIds(List<String> eventIds) throws SQLException {
+        if (eventIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<QuarantinedEvent> events = new ArrayList<>(eventIds.size());
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            for (int from = 0; from < eventIds.size(); from += MAX_IN_LIST) {
+                List<String> chunk = eventIds.subList(from, Math.min(eventIds.size(), from + MAX_IN_LIST));
+                String sql = "SELECT " + COLUMNS + " FROM QUARANTINED_EVENTS WHERE EVENT_ID IN ("
+                        + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY FIRST_FAILED_AT";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            events.add(mapRow(rs));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al leer eventos en cuarentena: " + e.getMessage());
+            throw e;
+        }
+
+        return events;
+    }
+
+    /**
+     * Saca un evento de la cuarentena
+     *
+     * @return true si el evento estaba en cuarentena
+     */
+    public boolean delete(String eventId) throws SQLException {
+        String sql = "DELETE FROM QUARANTINED_EVENTS WHERE EVENT_ID = ?";
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, eventId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            logger.severe("Error al sacar el evento " + eventId + " de la cuarentena: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private static QuarantinedEvent mapRow(ResultSet rs) throws SQLException {
+        QuarantinedEvent event = new QuarantinedEvent();
+        event.setEventId(rs.getString("EVENT_ID"));
+        event.setEventType(rs.getString("EVENT_TYPE"));
+        event.setSubject(rs.getString("SUBJECT"));
+        event.setPayload(rs.getString("PAYLOAD"));
+        event.setReason(rs.getString("REASON"));
+        event.setAttempts(rs.getInt("ATTEMPTS"));
+        event.setFirstFailedAt(rs.getObject("FIRST_FAILED_AT", OffsetDateTime.class));
+        event.setLastFailedAt(rs.getObject("LAST_FAILED_AT", OffsetDateTime.class));
+        return event;
+    }
+
+    private static String truncate(String reason) {
+        return reason != null && reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+    }
+}
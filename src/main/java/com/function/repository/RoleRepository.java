@@ -1,22 +1,35 @@
 package com.function.repository;
 
+import com.function.events.EntityChange;
+import com.function.events.EventTypes;
+import com.function.index.RoleMembershipIndex;
 import com.function.model.Role;
+import com.function.model.RoleRegistry;
 import com.function.OracleDBConnection;
 
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.Optional;
 
 public class RoleRepository {
     private static final Logger logger = Logger.getLogger(RoleRepository.class.getName());
 
+    /** Rol que reciben los usuarios nuevos y los que se quedan sin roles */
+    public static final String DEFAULT_ROLE = "USER";
+    public static final String DEFAULT_ROLE_DESCRIPTION = "Rol por defecto para nuevos usuarios";
+    private final OutboxRepository outboxRepository = new OutboxRepository();
+
     public List<Role> findAll() throws SQLException {
         List<Role> roles = new ArrayList<>();
         String sql = "SELECT * FROM ROLES";
@@ -72,7 +85,7 @@ public class RoleRepository {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     Role role = new Role();
-                    role.setId(String.valueOf(rs.getLong("ID")));
+                    role.setIdValue(rs.getLong("ID"));
                     role.setName(rs.getString("NAME"));
                     role.setDescription(rs.getString("DESCRIPTION"));
                     role.setActive(rs.getBoolean("ACTIVE"));
@@ -87,8 +100,46 @@ public class RoleRepository {
         return Optional.empty();
     }
 
+    /**
+     * Busca el rol por nombre y lo crea si no existe, con el mismo patrón que
+     * ASSIGN_DEFAULT_ROLE (sql/assign_default_role.sql): si otra llamada lo crea
+     * al mismo tiempo, el índice único sobre ROLES.NAME rechaza el segundo
+     * INSERT y se usa el rol que ya quedó creado.
+     */
+    public Role findOrCreateByName(String name, String description) throws SQLException {
+        Optional<Role> existing = findByName(name);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        String sql = "INSERT INTO ROLES (NAME, DESCRIPTION) VALUES (?, ?)";
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql, new String[] { "ID" })) {
+
+            stmt.setString(1, name);
+            stmt.setString(2, description);
+            stmt.executeUpdate();
+
+            Role role = new Role(name, description);
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (!rs.next()) {
+                    throw new SQLException("No se obtuvo el ID del rol creado: " + name);
+                }
+                role.setIdValue(rs.getLong(1));
+            }
+            logger.info("Rol '" + name + "' creado con ID: " + role.getId());
+            return role;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Otra llamada creó el rol entre la búsqueda y el INSERT
+            return findByName(name).orElseThrow(() -> e);
+        } catch (SQLException e) {
+            logger.severe("Error al crear rol " + name + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
     public Role save(Role role) throws SQLException {
-        if (role.getId() == null) {
+        if (!role.hasId()) {
             return insert(role);
         } else {
             return update(role);
@@ -105,7 +156,7 @@ public class RoleRepository {
             stmt.registerOutParameter(3, java.sql.Types.NUMERIC);
 
             stmt.executeUpdate();
-            role.setId(String.valueOf(stmt.getLong(3)));
+            role.setIdValue(stmt.getLong(3));
 
             return role;
         } catch (SQLException e) {
@@ -122,13 +173,14 @@ public class RoleRepository {
 
             stmt.setString(1, role.getName());
             stmt.setString(2, role.getDescription());
-            stmt.setLong(3, Long.parseLong(role.getId()));
+            stmt.setLong(3, role.getIdValue());
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected == 0) {
                 throw new SQLException("Actualización de rol falló, no se encontró el ID: " + role.getId());
             }
 
+            RoleRegistry.refresh(role);
             return role;
         } catch (SQLException e) {
             logger.severe("Error al actualizar rol: " + e.getMessage());
@@ -136,16 +188,39 @@ public class RoleRepository {
         }
     }
 
+    /**
+     * Elimina el rol y, en la misma transacción, agrega el evento role/deleted a
+     * la outbox con el ID del rol eliminado
+     */
     public boolean deleteById(Long id) throws SQLException {
-        String sql = "DELETE FROM ROLES WHERE ID = ?";
-
-        try (Connection conn = OracleDBConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String selectSql = "SELECT ID FROM ROLES WHERE ID = ? FOR UPDATE";
+        String deleteSql = "DELETE FROM ROLES WHERE ID = ?";
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                    PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+
+                select.setLong(1, id);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
 
-            stmt.setLong(1, id);
-            int rowsAffected = stmt.executeUpdate();
+                delete.setLong(1, id);
+                delete.executeUpdate();
+                outboxRepository.append(conn, EventTypes.ROLE_DELETED, "roles/" + id, EntityChange.of(id));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
 
-            return rowsAffected > 0;
+            RoleMembershipIndex.shared().roleDeleted(id);
+            RoleRegistry.evict(id);
+            return true;
         } catch (SQLException e) {
             logger.severe("Error al eliminar rol: " + e.getMessage());
             throw e;
@@ -163,7 +238,7 @@ public class RoleRepository {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    roles.add(mapRole(rs));
+                    roles.add(RoleRegistry.canonical(mapRole(rs)));
                 }
             }
         } catch (SQLException e) {
@@ -183,12 +258,120 @@ public class RoleRepository {
             stmt.setLong(1, userId);
             stmt.setLong(2, roleId);
             stmt.executeUpdate();
+            RoleMembershipIndex.shared().roleAssigned(userId, roleId);
         } catch (SQLException e) {
             logger.severe("Error al asignar rol a usuario: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Asigna al usuario el rol por defecto con una sola llamada a la función
+     * ASSIGN_DEFAULT_ROLE (sql/assign_default_role.sql), que crea el rol si no
+     * existe y omite la asignación si ya estaba
+     *
+     * @return ID del rol por defecto
+     */
+    public long assignDefaultRole(long userId, String roleName, String description) throws SQLException {
+        String sql = "{? = call ASSIGN_DEFAULT_ROLE(?, ?, ?)}";
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                CallableStatement stmt = conn.prepareCall(sql)) {
+
+            stmt.registerOutParameter(1, java.sql.Types.NUMERIC);
+            stmt.setLong(2, userId);
+            stmt.setString(3, roleName);
+            stmt.setString(4, description);
+            stmt.execute();
+
+            long roleId = stmt.getLong(1);
+            RoleMembershipIndex.shared().roleAssigned(userId, roleId);
+            return roleId;
+        } catch (SQLException e) {
+            logger.severe("Error al asignar rol por defecto al usuario " + userId + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Asigna el rol a varios usuarios con un único lote JDBC. Las asignaciones
+     * que ya existen se omiten, así que reprocesar los mismos eventos no falla.
+     *
+     * Si el lote falla (por ejemplo, un usuario que ya no existe) se deshace y
+     * se reintenta fila por fila, de modo que una fila inválida no impide
+     * asignar las demás. Cualquier otra falla deshace lo pendiente y se propaga.
+     *
+     * @return IDs de los usuarios a los que no se pudo asignar el rol
+     */
+    public Set<Long> assignRoleToUsers(long roleId, List<Long> userIds) throws SQLException {
+        String sql = "INSERT INTO USER_ROLES (USER_ID, ROLE_ID) SELECT ?, ? FROM DUAL " +
+                     "WHERE NOT EXISTS (SELECT 1 FROM USER_ROLES WHERE USER_ID = ? AND ROLE_ID = ?)";
+        Set<Long> failed = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return failed;
+        }
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            conn.setAutoCommit(false);
+            try {
+                try {
+                    for (Long userId : userIds) {
+                        setAssignment(stmt, userId, roleId);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (BatchUpdateException e) {
+                    conn.rollback();
+                    stmt.clearBatch();
+                    logger.warning("Falló el lote de " + userIds.size() + " asignaciones del rol " + roleId
+                            + ", se reintenta fila por fila: " + e.getMessage());
+                    assignOneByOne(conn, stmt, roleId, userIds, failed);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Sin deshacer, Oracle confirmaría al cerrar la conexión lo que se alcanzó a insertar
+                conn.rollback();
+                throw e;
+            }
+
+            RoleMembershipIndex index = RoleMembershipIndex.shared();
+            for (Long userId : userIds) {
+                if (!failed.contains(userId)) {
+                    index.roleAssigned(userId, roleId);
+                }
+            }
+            return failed;
+        } catch (SQLException e) {
+            logger.severe("Error al asignar rol a usuarios: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private static void assignOneByOne(Connection conn, PreparedStatement stmt, long roleId, List<Long> userIds,
+            Set<Long> failed) throws SQLException {
+        for (Long userId : userIds) {
+            try {
+                setAssignment(stmt, userId, roleId);
+                stmt.executeUpdate();
+                conn.commit();
+            } catch (SQLException rowError) {
+                conn.rollback();
+                logger.severe("Error al asignar rol " + roleId + " al usuario " + userId + ": "
+                        + rowError.getMessage());
+                failed.add(userId);
+            }
+        }
+    }
+
+    private static void setAssignment(PreparedStatement stmt, long userId, long roleId) throws SQLException {
+        stmt.setLong(1, userId);
+        stmt.setLong(2, roleId);
+        stmt.setLong(3, userId);
+        stmt.setLong(4, roleId);
+    }
+
     public void removeRoleFromUser(Long userId, Long roleId) throws SQLException {
         String sql = "DELETE FROM USER_ROLES WHERE USER_ID = ? AND ROLE_ID = ?";
 
@@ -198,17 +381,96 @@ public class RoleRepository {
             stmt.setLong(1, userId);
             stmt.setLong(2, roleId);
             stmt.executeUpdate();
+            RoleMembershipIndex.shared().roleRemoved(userId, roleId);
         } catch (SQLException e) {
             logger.severe("Error al remover rol de usuario: " + e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * Quita el rol a todos sus usuarios y da el rol por defecto a los que se
+     * quedan sin roles, con dos sentencias en una sola transacción: primero un
+     * INSERT...SELECT para los usuarios cuyo único rol es el eliminado y luego
+     * un DELETE de todas las filas del rol. Reprocesar el mismo rol no cambia
+     * nada.
+     *
+     * @return cantidad de usuarios a los que se les quitó el rol
+     */
+    public int removeRoleFromAllUsers(long roleId, long defaultRoleId) throws SQLException {
+        if (roleId == defaultRoleId) {
+            throw new IllegalArgumentException("El rol por defecto no puede ser el rol eliminado: " + roleId);
+        }
+        String reassignSql = "INSERT INTO USER_ROLES (USER_ID, ROLE_ID) " +
+                             "SELECT ur.USER_ID, ? FROM USER_ROLES ur WHERE ur.ROLE_ID = ? " +
+                             "AND NOT EXISTS (SELECT 1 FROM USER_ROLES o WHERE o.USER_ID = ur.USER_ID AND o.ROLE_ID <> ?)";
+        String deleteSql = "DELETE FROM USER_ROLES WHERE ROLE_ID = ?";
+
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int reassigned;
+            int removed;
+            try (PreparedStatement reassign = conn.prepareStatement(reassignSql);
+                    PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+
+                reassign.setLong(1, defaultRoleId);
+                reassign.setLong(2, roleId);
+                reassign.setLong(3, roleId);
+                reassigned = reassign.executeUpdate();
+
+                delete.setLong(1, roleId);
+                removed = delete.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            // Sin la lista de usuarios reasignados el índice se recarga completo
+            RoleMembershipIndex index = RoleMembershipIndex.shared();
+            if (reassigned > 0) {
+                index.invalidate();
+            } else {
+                index.roleDeleted(roleId);
+            }
+            RoleRegistry.evict(roleId);
+            logger.info("Rol " + roleId + " quitado a " + removed + " usuarios; " + reassigned
+                    + " recibieron el rol por defecto");
+            return removed;
+        } catch (SQLException e) {
+            logger.severe("Error al quitar el rol " + roleId + " a sus usuarios: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Recorre toda la tabla USER_ROLES para construir el índice de membresías
+     */
+    public void loadMemberships(RoleMembershipIndex.Builder builder) throws SQLException {
+        String sql = "SELECT USER_ID, ROLE_ID FROM USER_ROLES";
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                Statement stmt = conn.createStatement()) {
+
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    builder.member(rs.getLong(1), rs.getLong(2));
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al cargar membresías de roles: " + e.getMessage());
+            throw e;
+        }
+    }
+
     private Role mapRole(ResultSet rs) throws SQLException {
         Role role = new Role();
-        role.setId(String.valueOf(rs.getLong("ID")));
+        role.setIdValue(rs.getLong("ID"));
         role.setName(rs.getString("NAME"));
         role.setDescription(rs.getString("DESCRIPTION"));
+        role.setActive(rs.getBoolean("ACTIVE"));
+        RoleRegistry.refresh(role);
         return role;
     }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.function.repository;
 
+import com.function.events.EntityChange;
+import com.function.events.EventTypes;
+import com.function.index.RoleMembershipIndex;
 import com.function.model.User;
 import com.function.OracleDBConnection;
 
@@ -16,6 +19,7 @@ import java.util.Optional;
 
 public class UserRepository {
     private static final Logger logger = Logger.getLogger(UserRepository.class.getName());
+    private final OutboxRepository outboxRepository = new OutboxRepository();
 
     public List<User> findAll() throws SQLException {
         List<User> users = new ArrayList<>();
@@ -59,34 +63,45 @@ public class UserRepository {
     }
 
     public User save(User user) throws SQLException {
-        if (user.getId() == null) {
+        if (!user.hasId()) {
             return insert(user);
         } else {
             return update(user);
         }
     }
    
+    /**
+     * Inserta el usuario y, en la misma transacción, el evento user/created en
+     * la outbox
+     */
     private User insert(User user) throws SQLException {
         String sql = "INSERT INTO USERS (USERNAME, EMAIL, FIRST_NAME, LAST_NAME, ACTIVE) VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = OracleDBConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql, new String[] { "ID" })) {
-
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getFirstName());
-            stmt.setString(4, user.getLastName());
-            stmt.setBoolean(5, user.isActive());
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, new String[] { "ID" })) {
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, user.getEmail());
+                stmt.setString(3, user.getFirstName());
+                stmt.setString(4, user.getLastName());
+                stmt.setBoolean(5, user.isActive());
+                stmt.executeUpdate();
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected > 0) {
                 try (ResultSet rs = stmt.getGeneratedKeys()) {
                     if (rs.next()) {
-                        user.setId(String.valueOf(rs.getLong(1)));
+                        user.setIdValue(rs.getLong(1));
                     }
                 }
+
+                outboxRepository.append(conn, EventTypes.USER_CREATED, "users/" + user.getId(),
+                        EntityChange.of(user.getIdValue()));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
+            RoleMembershipIndex.shared().userSaved(user.getIdValue(), user.isActive());
             return user;
         } catch (SQLException e) {
             logger.severe("Error al insertar usuario: " + e.getMessage());
@@ -94,24 +109,46 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Actualiza el usuario y, en la misma transacción, agrega el evento
+     * user/updated a la outbox con los campos que cambiaron. La fila se lee
+     * bloqueada antes de actualizarla para calcular la máscara de cambios.
+     */
     private User update(User user) throws SQLException {
+        String selectSql = "SELECT * FROM USERS WHERE ID = ? FOR UPDATE";
         String sql = "UPDATE USERS SET USERNAME = ?, EMAIL = ?, FIRST_NAME = ?, LAST_NAME = ?, ACTIVE = ? WHERE ID = ?";
 
-        try (Connection conn = OracleDBConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = OracleDBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                    PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, user.getUsername());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getFirstName());
-            stmt.setString(4, user.getLastName());;
-            stmt.setBoolean(5, user.isActive());
-            stmt.setLong(6, Long.parseLong(user.getId()));
+                select.setLong(1, user.getIdValue());
+                User before;
+                try (ResultSet rs = select.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Actualización de usuario falló, no se encontró el ID: " + user.getId());
+                    }
+                    before = mapUser(rs);
+                }
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0) {
-                throw new SQLException("Actualización de usuario falló, no se encontró el ID: " + user.getId());
+                stmt.setString(1, user.getUsername());
+                stmt.setString(2, user.getEmail());
+                stmt.setString(3, user.getFirstName());
+                stmt.setString(4, user.getLastName());
+                stmt.setBoolean(5, user.isActive());
+                stmt.setLong(6, user.getIdValue());
+                stmt.executeUpdate();
+
+                outboxRepository.append(conn, EventTypes.USER_UPDATED, "users/" + user.getId(),
+                        EntityChange.of(before, user));
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
 
+            RoleMembershipIndex.shared().userSaved(user.getIdValue(), user.isActive());
             return user;
         } catch (SQLException e) {
             logger.severe("Error al actualizar usuario: " + e.getMessage());
@@ -127,6 +164,9 @@ public class UserRepository {
 
             stmt.setLong(1, id);
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                RoleMembershipIndex.shared().userDeleted(id);
+            }
 
             return rowsAffected > 0;
         } catch (SQLException e) {
@@ -135,6 +175,27 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Recorre los IDs de los usuarios activos para construir el índice de membresías
+     */
+    public void loadActiveUserIds(RoleMembershipIndex.Builder builder) throws SQLException {
+        String sql = "SELECT ID FROM USERS WHERE ACTIVE = 1";
+
+        try (Connection conn = OracleDBConnection.getConnection();
+                Statement stmt = conn.createStatement()) {
+
+            stmt.setFetchSize(1000);
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    builder.activeUser(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error al cargar usuarios activos: " + e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * Encuentra todos los usuarios que tienen un rol específico
      */
@@ -164,19 +225,14 @@ public class UserRepository {
     }
 
     private User mapUser(ResultSet rs) throws SQLException {
-        User user = new User(); // El constructor de User ya inicializa roles como ArrayList vacío
-        user.setId(String.valueOf(rs.getLong("ID")));
+        User user = new User();
+        user.setIdValue(rs.getLong("ID"));
         user.setUsername(rs.getString("USERNAME"));
         user.setEmail(rs.getString("EMAIL"));
         user.setFirstName(rs.getString("FIRST_NAME"));
         user.setLastName(rs.getString("LAST_NAME"));
         user.setActive(rs.getBoolean("ACTIVE"));
         
-        // Aseguramos que roles no sea null (aunque el constructor ya lo inicializa)
-        if (user.getRoles() == null) {
-            user.setRoles(new ArrayList<>());
-        }
-        
         return user;
     }
 }
\ No newline at end of file
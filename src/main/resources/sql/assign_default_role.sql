@@ -0,0 +1,42 @@
+-- Asigna a un usuario el rol por defecto en una sola llamada a la base de datos
+-- (RoleRepository.assignDefaultRole). Busca el rol por nombre, lo crea si no
+-- existe y agrega la fila de USER_ROLES si falta; devuelve el ID del rol.
+-- Reprocesar el mismo usuario no cambia nada. Gracias al índice único sobre
+-- ROLES.NAME, dos llamadas concurrentes que crean el rol terminan usando el mismo.
+--
+-- Equivalente para la base embebida de las pruebas: src/test/resources/sql/h2/assign_default_role.sql
+
+-- Índice del que depende la función: sin él, dos llamadas concurrentes que no
+-- encuentran el rol lo crean dos veces y desde entonces el SELECT INTO falla
+-- con TOO_MANY_ROWS. Si ya hay roles repetidos, hay que unificarlos (moviendo
+-- sus filas de USER_ROLES) antes de crearlo.
+CREATE UNIQUE INDEX ROLES_NAME_UX ON ROLES (NAME);
+
+CREATE OR REPLACE FUNCTION ASSIGN_DEFAULT_ROLE (
+    p_user_id      IN NUMBER,
+    p_role_name    IN VARCHAR2,
+    p_description  IN VARCHAR2
+) RETURN NUMBER
+IS
+    v_role_id  ROLES.ID%TYPE;
+BEGIN
+    BEGIN
+        SELECT ID INTO v_role_id FROM ROLES WHERE NAME = p_role_name;
+    EXCEPTION
+        WHEN NO_DATA_FOUND THEN
+            BEGIN
+                INSERT INTO ROLES (NAME, DESCRIPTION) VALUES (p_role_name, p_description)
+                RETURNING ID INTO v_role_id;
+            EXCEPTION
+                WHEN DUP_VAL_ON_INDEX THEN
+                    SELECT ID INTO v_role_id FROM ROLES WHERE NAME = p_role_name;
+            END;
+    END;
+
+    INSERT INTO USER_ROLES (USER_ID, ROLE_ID)
+    SELECT p_user_id, v_role_id FROM DUAL
+    WHERE NOT EXISTS (SELECT 1 FROM USER_ROLES WHERE USER_ID = p_user_id AND ROLE_ID = v_role_id);
+
+    RETURN v_role_id;
+END;
+/
@@ -0,0 +1,31 @@
+-- Tabla outbox: eventos pendientes de publicar en Event Grid.
+-- Se escribe en la misma transacción que el cambio en USERS/ROLES y la vacía
+-- la función relayOutbox, que borra cada fila una vez publicada.
+-- LEASED_UNTIL es la reserva del relay que está publicando la fila (o la espera
+-- antes de reintentarla tras una falla); NULL si está libre.
+CREATE TABLE OUTBOX (
+    ID            NUMBER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    EVENT_ID      VARCHAR2(36)   NOT NULL,
+    EVENT_TYPE    VARCHAR2(100)  NOT NULL,
+    SUBJECT       VARCHAR2(200)  NOT NULL,
+    PAYLOAD       CLOB           NOT NULL,
+    CREATED_AT    TIMESTAMP WITH TIME ZONE DEFAULT SYSTIMESTAMP NOT NULL,
+    ATTEMPTS      NUMBER(10)     DEFAULT 0 NOT NULL,
+    LAST_ERROR    VARCHAR2(1000),
+    LEASED_UNTIL  TIMESTAMP WITH TIME ZONE
+);
+
+-- Eventos de la outbox que Event Grid rechazó (4xx) o que agotaron los
+-- intentos. Para reenviarlos, una vez corregida la causa, se vuelven a insertar
+-- en OUTBOX con el mismo EVENT_ID y se borran de aquí.
+CREATE TABLE OUTBOX_DEAD_LETTER (
+    ID          NUMBER         PRIMARY KEY,
+    EVENT_ID    VARCHAR2(36)   NOT NULL,
+    EVENT_TYPE  VARCHAR2(100)  NOT NULL,
+    SUBJECT     VARCHAR2(200)  NOT NULL,
+    PAYLOAD     CLOB           NOT NULL,
+    CREATED_AT  TIMESTAMP WITH TIME ZONE NOT NULL,
+    ATTEMPTS    NUMBER(10)     NOT NULL,
+    REASON      VARCHAR2(1000),
+    DEAD_AT     TIMESTAMP WITH TIME ZONE DEFAULT SYSTIMESTAMP NOT NULL
+);
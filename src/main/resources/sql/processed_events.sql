@@ -0,0 +1,10 @@
+-- Eventos de Event Grid ya procesados por los consumidores, para descartar
+-- reentregas (Event Grid entrega al menos una vez y reintenta hasta 24 horas).
+-- La función purgeProcessedEvents borra las filas fuera de la ventana.
+CREATE TABLE PROCESSED_EVENTS (
+    EVENT_ID      VARCHAR2(64)   PRIMARY KEY,
+    EVENT_TYPE    VARCHAR2(100),
+    PROCESSED_AT  TIMESTAMP WITH TIME ZONE DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+CREATE INDEX PROCESSED_EVENTS_AT_IX ON PROCESSED_EVENTS (PROCESSED_AT);
@@ -0,0 +1,16 @@
+-- Eventos de Event Grid que el consumidor no pudo procesar (cuarentena).
+-- PAYLOAD guarda el evento completo tal como llegó, para reproducirlo con la
+-- función replayQuarantinedEvents; la fila se borra cuando la reproducción
+-- termina con éxito.
+CREATE TABLE QUARANTINED_EVENTS (
+    EVENT_ID         VARCHAR2(64)   PRIMARY KEY,
+    EVENT_TYPE       VARCHAR2(100),
+    SUBJECT          VARCHAR2(200),
+    PAYLOAD          CLOB           NOT NULL,
+    REASON           VARCHAR2(1000),
+    ATTEMPTS         NUMBER(10)     DEFAULT 1 NOT NULL,
+    FIRST_FAILED_AT  TIMESTAMP WITH TIME ZONE DEFAULT SYSTIMESTAMP NOT NULL,
+    LAST_FAILED_AT   TIMESTAMP WITH TIME ZONE DEFAULT SYSTIMESTAMP NOT NULL
+);
+
+CREATE INDEX QUARANTINED_EVENTS_AT_IX ON QUARANTINED_EVENTS (FIRST_FAILED_AT);
@@ -0,0 +1,61 @@
+package com.function;
+
+import com.function.events.EntityChange;
+import com.function.events.EventGridEventData;
+import com.function.events.EventPublisher;
+import com.function.events.EventTypes;
+import com.function.events.InMemoryEventPublisher;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for publisher selection and the in-memory publisher.
+ */
+public class EventPublishersTest {
+
+    @Test
+    public void publishersAreSharedPerTransportAndTopic() {
+        EventPublisher first = EventPublishers.forTopic(EventPublishers.MEMORY, "http://localhost/a", "key");
+        EventPublisher again = EventPublishers.forTopic(EventPublishers.MEMORY, "http://localhost/a", "key");
+        EventPublisher other = EventPublishers.forTopic(EventPublishers.MEMORY, "http://localhost/b", "key");
+
+        assertTrue(first instanceof InMemoryEventPublisher);
+        assertSame(first, again);
+        assertNotSame(first, other);
+    }
+
+    @Test
+    public void inMemoryPublisherRecordsEventsAsTheConsumerReadsThem() {
+        InMemoryEventPublisher publisher = new InMemoryEventPublisher();
+
+        assertTrue(publisher.publishEvent(EventTypes.USER_CREATED, "users/7", EntityChange.of(7)));
+        assertTrue(publisher.publishBatch(("[{\"id\":\"e2\",\"eventType\":\"role/deleted\",\"subject\":\"roles/3\","
+                + "\"data\":{\"id\":3,\"version\":1,\"mask\":-1}}]").getBytes(StandardCharsets.UTF_8), 1));
+
+        List<EventGridEventData> events = publisher.drain();
+        assertEquals(2, events.size());
+        assertEquals(EventTypes.USER_CREATED, events.get(0).eventType);
+        assertEquals(7, ((EntityChange) events.get(0).data).getId());
+        assertEquals("e2", events.get(1).id);
+        assertEquals(3, ((EntityChange) events.get(1).data).getId());
+        assertTrue(publisher.getEvents().isEmpty());
+    }
+
+    @Test
+    public void inMemoryPublisherCanSimulateAnOutage() {
+        InMemoryEventPublisher publisher = new InMemoryEventPublisher();
+        publisher.setAvailable(false);
+
+        assertFalse(publisher.publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)));
+        assertFalse(publisher.publishEventAsync(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)).join());
+        assertFalse(publisher.publishBatch("[]".getBytes(StandardCharsets.UTF_8), 0));
+        assertTrue(publisher.getEvents().isEmpty());
+
+        publisher.setAvailable(true);
+        assertFalse(publisher.publishBatch("no es json".getBytes(StandardCharsets.UTF_8), 1), "lote inválido");
+    }
+}
@@ -0,0 +1,37 @@
+package com.function.bench;
+
+import com.function.model.Role;
+import com.function.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datos sintéticos compartidos por los benchmarks
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<Role> roles(int count) {
+        List<Role> roles = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Role role = new Role("ROLE_" + i, "Rol de prueba número " + i);
+            role.setIdValue(i);
+            roles.add(role);
+        }
+        return roles;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            User user = new User("usuario" + i, "usuario" + i + "@example.com", "Nombre" + i, "Apellido" + i);
+            user.setIdValue(i);
+            user.setActive(i % 10 != 0);
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,80 @@
+package com.function.bench;
+
+import com.function.model.Role;
+import com.function.model.User;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Costo por fila de mapear un usuario o rol como lo hacen mapUser/mapRole.
+ * Las variantes "WithRandomId" reproducen el constructor anterior, que generaba
+ * un UUID aleatorio que el mapeo sobrescribía enseguida. Para medir la
+ * asignación por fila, ejecutar con el profiler de GC:
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="EntityMappingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityMappingBenchmark {
+    private long id = 42;
+
+    @Benchmark
+    public User mapUser() {
+        User user = new User();
+        user.setIdValue(id);
+        user.setUsername("jperez");
+        user.setEmail("jperez@example.com");
+        user.setFirstName("Juan");
+        user.setLastName("Perez");
+        user.setActive(true);
+        return user;
+    }
+
+    @Benchmark
+    public User mapUserWithRandomId(Blackhole blackhole) {
+        User user = new User();
+        blackhole.consume(UUID.randomUUID().toString());
+        user.setIdValue(id);
+        user.setUsername("jperez");
+        user.setEmail("jperez@example.com");
+        user.setFirstName("Juan");
+        user.setLastName("Perez");
+        user.setActive(true);
+        return user;
+    }
+
+    @Benchmark
+    public Role mapRole() {
+        Role role = new Role();
+        role.setIdValue(id);
+        role.setName("ADMIN");
+        role.setDescription("Administrador");
+        return role;
+    }
+
+    @Benchmark
+    public Role mapRoleWithRandomId(Blackhole blackhole) {
+        Role role = new Role();
+        blackhole.consume(UUID.randomUUID().toString());
+        role.setIdValue(id);
+        role.setName("ADMIN");
+        role.setDescription("Administrador");
+        return role;
+    }
+}
@@ -0,0 +1,117 @@
+package com.function.bench;
+
+import com.function.events.EntityChange;
+import com.function.events.EventGridEventData;
+import com.function.events.EventTypes;
+import com.function.events.UserEventBatchProcessor;
+import com.function.model.Role;
+import com.function.repository.RoleRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Eventos user/created por segundo del consumidor por lotes frente al camino de
+ * un evento por invocación.
+ *
+ * La base de datos se simula con una espera fija por ida y vuelta (roundTripMicros),
+ * que es lo que domina ambos caminos. El camino de un evento hace, por evento,
+ * la prueba de conexión, la búsqueda del rol por defecto y el insert; el camino
+ * por lotes hace una búsqueda y un lote JDBC para los 100 eventos.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="EventConsumerBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventConsumerBenchmark {
+    private static final int EVENTS = 100;
+
+    @Param({ "200", "1000" })
+    public long roundTripMicros;
+
+    private UserEventBatchProcessor processor;
+    private List<EventGridEventData> events;
+
+    @Setup
+    public void setUp() {
+        processor = new UserEventBatchProcessor(new SimulatedRoleRepository(roundTripMicros));
+        events = new ArrayList<>(EVENTS);
+        for (int i = 1; i <= EVENTS; i++) {
+            EventGridEventData event = new EventGridEventData();
+            event.id = "event-" + i;
+            event.eventType = EventTypes.USER_CREATED;
+            event.subject = "users/" + i;
+            event.data = new EntityChange(i, 1, EntityChange.ALL);
+            events.add(event);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int singleEventPerInvocation() throws SQLException {
+        int processed = 0;
+        for (EventGridEventData event : events) {
+            // Prueba de conexión que hace el consumidor antes de cada evento
+            roundTrip(roundTripMicros);
+            processed += processor.process(List.of(event)).getProcessed();
+        }
+        return processed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int batchPerInvocation() throws SQLException {
+        return processor.process(events).getProcessed();
+    }
+
+    private static void roundTrip(long micros) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+
+    /**
+     * Repositorio de roles que sólo simula la latencia de cada sentencia
+     */
+    private static final class SimulatedRoleRepository extends RoleRepository {
+        private final long roundTripMicros;
+        private final Role defaultRole = new Role("USER", "Rol por defecto");
+
+        SimulatedRoleRepository(long roundTripMicros) {
+            this.roundTripMicros = roundTripMicros;
+            defaultRole.setIdValue(1);
+        }
+
+        @Override
+        public Optional<Role> findByName(String name) {
+            roundTrip(roundTripMicros);
+            return Optional.of(defaultRole);
+        }
+
+        @Override
+        public Set<Long> assignRoleToUsers(long roleId, List<Long> userIds) {
+            roundTrip(roundTripMicros);
+            return Set.of();
+        }
+    }
+}
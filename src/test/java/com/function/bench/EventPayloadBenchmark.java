@@ -0,0 +1,124 @@
+package com.function.bench;
+
+import com.function.events.EntityChange;
+import com.function.events.EventGridEventData;
+import com.function.events.EventTypes;
+import com.function.json.EventGridEventDataTypeAdapter;
+import com.function.json.Json;
+import com.function.json.RoleTypeAdapter;
+import com.function.json.UserTypeAdapter;
+import com.function.model.Role;
+import com.function.model.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Eventos user/updated por segundo al publicar (serializar el sobre) y al
+ * consumir (leer el sobre y el ID del usuario), con el contenido completo del
+ * usuario y sus roles (full) frente al contenido compacto de
+ * {@link EntityChange} (claimCheck). El tamaño medio de cada formato se
+ * imprime al preparar el benchmark.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="EventPayloadBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventPayloadBenchmark {
+    private static final int EVENTS = 100;
+
+    @Param({ "full", "claimCheck" })
+    public String format;
+
+    private Gson gson;
+    private List<EventGridEventData> events;
+    private List<String> bodies;
+
+    @Setup
+    public void setUp() {
+        boolean full = "full".equals(format);
+        gson = full ? fullPayloadGson() : Json.compact();
+
+        List<Role> roles = BenchmarkData.roles(3);
+        events = new ArrayList<>(EVENTS);
+        bodies = new ArrayList<>(EVENTS);
+        long bytes = 0;
+        for (User user : BenchmarkData.users(EVENTS)) {
+            for (Role role : roles) {
+                user.addRole(role);
+            }
+
+            EventGridEventData event = new EventGridEventData();
+            event.id = "0f8e6c1a-4b5d-4c1e-9a53-" + String.format("%012d", user.getIdValue());
+            event.eventType = EventTypes.USER_UPDATED;
+            event.subject = "users/" + user.getId();
+            event.eventTime = "2025-01-01T00:00:00Z";
+            event.dataVersion = "1.0";
+            event.data = full ? user : new EntityChange(user.getIdValue(), 1700000000000L, EntityChange.EMAIL);
+            events.add(event);
+
+            String body = gson.toJson(event);
+            bodies.add(body);
+            bytes += body.getBytes(StandardCharsets.UTF_8).length;
+        }
+        System.out.println("Tamaño medio del evento (" + format + "): " + (bytes / EVENTS) + " bytes");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int publish() {
+        int length = 0;
+        for (EventGridEventData event : events) {
+            length += gson.toJson(event).length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long consume() {
+        long ids = 0;
+        for (String body : bodies) {
+            Object data = gson.fromJson(body, EventGridEventData.class).data;
+            ids += data instanceof User user ? user.getIdValue() : ((EntityChange) data).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Gson con el formato anterior: el contenido de los eventos de usuarios es
+     * el usuario completo
+     */
+    private static Gson fullPayloadGson() {
+        TypeAdapter<JsonElement> treeAdapter = new Gson().getAdapter(JsonElement.class);
+        UserTypeAdapter userAdapter = new UserTypeAdapter(new RoleTypeAdapter());
+        return new GsonBuilder()
+                .registerTypeAdapter(EventGridEventData.class, new EventGridEventDataTypeAdapter(treeAdapter,
+                        Map.of(EventTypes.USER_UPDATED, userAdapter)))
+                .create();
+    }
+}
@@ -0,0 +1,175 @@
+package com.function.bench;
+
+import com.function.EventGridConsumerFunction;
+import com.function.EventGridPublisher;
+import com.function.OracleDBConnection;
+import com.function.emulator.EventGridEmulator;
+import com.function.events.EntityChange;
+import com.function.events.EventTypes;
+import com.function.events.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Carga de extremo a extremo del camino productor → Event Grid → consumidor,
+ * sin Azure: {@link EventGridPublisher} publica user/created a un ritmo fijo en
+ * el {@link EventGridEmulator}, que entrega cada evento a
+ * {@link EventGridConsumerFunction#run}; el consumidor asigna el rol por
+ * defecto en una base H2 embebida en modo Oracle.
+ *
+ * Informa el throughput entregado, la latencia de publicación, la demora desde
+ * el eventTime hasta el fin del procesamiento (p50/p95/p99) y la proporción de
+ * errores de cada etapa. Los reintentos del publicador siguen
+ * EVENT_GRID_RETRY_*.
+ *
+ * Argumentos: eventos/s, segundos, latencia del topic en ms, límite del topic
+ * en eventos/s (0 sin límite) y fracción de POST que fallan con 503.
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.function.bench.EventPipelineLoadHarness -Dexec.args="500 10 20 400 0.01"
+ */
+public final class EventPipelineLoadHarness {
+    private static final String JDBC_URL = "jdbc:h2:mem:harness;MODE=Oracle;DB_CLOSE_DELAY=-1";
+    private static final String TOPIC_KEY = "clave-local";
+    private static final int DELIVERY_CONCURRENCY = 8;
+
+    private EventPipelineLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int throttle = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        double failureRate = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+
+        // El consumidor registra cada evento en INFO
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            handler.setLevel(Level.WARNING);
+        }
+        createSchema();
+
+        try (EventGridEmulator topic = new EventGridEmulator(TOPIC_KEY,
+                event -> new EventGridConsumerFunction().run(event, null), DELIVERY_CONCURRENCY)) {
+            topic.setLatency(Duration.ofMillis(latencyMillis));
+            topic.setThrottlePerSecond(throttle);
+            topic.setFailureRate(failureRate);
+
+            EventGridPublisher publisher = new EventGridPublisher(topic.getEndpoint(), TOPIC_KEY, null,
+                    RetryPolicy.fromEnvironment(), null);
+
+            int events = rate * seconds;
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            List<Long> publishMillis = Collections.synchronizedList(new ArrayList<>(events));
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(events);
+
+            long start = System.nanoTime();
+            for (int i = 1; i <= events; i++) {
+                LockSupport.parkNanos(start + i * interval - System.nanoTime());
+                long sent = System.nanoTime();
+                results.add(publisher.publishEventAsync(EventTypes.USER_CREATED, "users/" + i, EntityChange.of(i))
+                        .whenComplete((ok, error) -> publishMillis.add(
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent))));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+            boolean drained = topic.awaitIdle(Duration.ofMinutes(2));
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            long published = results.stream().filter(CompletableFuture::join).count();
+            long posts = topic.getAccepted() + topic.getThrottled() + topic.getFailed();
+
+            System.out.printf("Eventos enviados:       %,d a %,d/s durante %d s%n", events, rate, seconds);
+            System.out.printf("Publicados:             %,d (%.2f%% de errores tras reintentos)%n",
+                    published, percent(events - published, events));
+            System.out.printf("Respuestas del topic:   %,d eventos aceptados, %,d POST con 429 (%.2f%%), "
+                    + "%,d con 503 (%.2f%%)%n", topic.getAccepted(), topic.getThrottled(),
+                    percent(topic.getThrottled(), posts), topic.getFailed(), percent(topic.getFailed(), posts));
+            System.out.printf("Entregados:             %,d, %,d reintentos de entrega, %,d descartados (%.2f%%)%s%n",
+                    topic.getDelivered(), topic.getDeliveryRetries(), topic.getDeadLettered(),
+                    percent(topic.getDeadLettered(), topic.getAccepted()), drained ? "" : " - quedaron entregas pendientes");
+            System.out.printf("Throughput:             %,.0f eventos/s procesados por el consumidor%n",
+                    topic.getDelivered() / elapsed);
+            System.out.println("Latencia de publicación " + percentiles(publishMillis));
+            System.out.println("Demora hasta procesado  " + percentiles(topic.getLagMillis()));
+            System.out.printf("Asignaciones en la base: %,d%n", count("SELECT COUNT(*) FROM USER_ROLES"));
+        }
+    }
+
+    /**
+     * Tablas que usa el consumidor, con tipos que H2 acepta
+     */
+    private static void createSchema() throws SQLException, IOException {
+        OracleDBConnection.setConnectionSource(() -> DriverManager.getConnection(JDBC_URL));
+        try (Connection conn = DriverManager.getConnection(JDBC_URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE ROLES (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "NAME VARCHAR(100) NOT NULL UNIQUE, DESCRIPTION VARCHAR(200), ACTIVE BOOLEAN DEFAULT TRUE)");
+            stmt.execute("CREATE TABLE USER_ROLES (USER_ID BIGINT NOT NULL, ROLE_ID BIGINT NOT NULL, "
+                    + "PRIMARY KEY (USER_ID, ROLE_ID))");
+            stmt.execute("CREATE TABLE PROCESSED_EVENTS (EVENT_ID VARCHAR(64) PRIMARY KEY, EVENT_TYPE VARCHAR(100), "
+                    + "PROCESSED_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+            stmt.execute("CREATE TABLE QUARANTINED_EVENTS (EVENT_ID VARCHAR(64) PRIMARY KEY, "
+                    + "EVENT_TYPE VARCHAR(100), SUBJECT VARCHAR(200), PAYLOAD CLOB NOT NULL, REASON VARCHAR(1000), "
+                    + "ATTEMPTS INT DEFAULT 1 NOT NULL, "
+                    + "FIRST_FAILED_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, "
+                    + "LAST_FAILED_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+            stmt.execute(resource("/sql/h2/assign_default_role.sql"));
+        }
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(JDBC_URL);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String resource(String path) throws IOException {
+        try (InputStream in = EventPipelineLoadHarness.class.getResourceAsStream(path)) {
+            StringBuilder sql = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            return sql.toString().trim().replaceAll(";$", "");
+        }
+    }
+
+    private static String percentiles(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        if (sorted.isEmpty()) {
+            return "(sin datos)";
+        }
+        Collections.sort(sorted);
+        return String.format("ms: p50 %d, p95 %d, p99 %d, máx %d (%,d muestras)",
+                at(sorted, 50), at(sorted, 95), at(sorted, 99), sorted.get(sorted.size() - 1), sorted.size());
+    }
+
+    private static long at(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(sorted.size() * percentile / 100.0) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : part * 100.0 / total;
+    }
+}
@@ -0,0 +1,126 @@
+package com.function.bench;
+
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.messaging.eventgrid.EventGridPublisherClientBuilder;
+import com.function.EventGridPublisher;
+import com.function.SdkEventGridPublisher;
+import com.function.events.EntityChange;
+import com.function.events.EventPublisher;
+import com.function.events.EventTypes;
+import com.function.events.RetryPolicy;
+import com.function.json.Json;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latencia de publicación de un evento y de un lote de 100 eventos con el
+ * transporte HTTP directo ({@link EventGridPublisher}) frente al SDK de Azure
+ * ({@link SdkEventGridPublisher}), contra un topic simulado en la propia máquina
+ * que lee el cuerpo y responde 200.
+ *
+ * Así sólo se mide el costo del lado del cliente: serialización, armado de la
+ * petición y pila HTTP. Ningún transporte reintenta. El cliente del SDK se arma
+ * sin credencial, porque la clave sólo se acepta sobre HTTPS; el stub no la
+ * valida. Con -prof gc se comparan además las asignaciones por operación.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PublisherTransportBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PublisherTransportBenchmark {
+    private static final int BATCH_EVENTS = 100;
+
+    @Param({ "http", "sdk" })
+    public String transport;
+
+    private HttpServer topic;
+    private ExecutorService topicThreads;
+    private EventPublisher publisher;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        topicThreads = Executors.newFixedThreadPool(4);
+        topic = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        topic.createContext("/api/events", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        topic.setExecutor(topicThreads);
+        topic.start();
+
+        String endpoint = "http://127.0.0.1:" + topic.getAddress().getPort() + "/api/events";
+        if ("sdk".equals(transport)) {
+            publisher = new SdkEventGridPublisher(new EventGridPublisherClientBuilder()
+                    .endpoint(endpoint)
+                    .pipeline(new HttpPipelineBuilder().build())
+                    .buildEventGridEventPublisherAsyncClient());
+        } else {
+            publisher = new EventGridPublisher(endpoint, "clave", null, RetryPolicy.none(), null);
+        }
+
+        Gson gson = Json.compact();
+        JsonArray events = new JsonArray(BATCH_EVENTS);
+        for (int i = 1; i <= BATCH_EVENTS; i++) {
+            JsonObject event = new JsonObject();
+            event.addProperty("id", "0f8e6c1a-4b5d-4c1e-9a53-" + String.format("%012d", i));
+            event.addProperty("eventType", EventTypes.USER_CREATED);
+            event.addProperty("subject", "users/" + i);
+            event.addProperty("eventTime", "2025-01-01T00:00:00Z");
+            event.addProperty("dataVersion", "1.0");
+            event.add("data", gson.toJsonTree(new EntityChange(i, 1, EntityChange.ALL)));
+            events.add(event);
+        }
+        batch = gson.toJson(events).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        topic.stop(0);
+        topicThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean publishEvent() {
+        return publisher.publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1));
+    }
+
+    @Benchmark
+    public boolean publishBatch() {
+        return publisher.publishBatch(batch, BATCH_EVENTS);
+    }
+}
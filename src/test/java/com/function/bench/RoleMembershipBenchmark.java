@@ -0,0 +1,73 @@
+package com.function.bench;
+
+import com.function.index.RoleMembershipIndex;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latencia de las consultas del índice de membresías con 100k usuarios y 40
+ * roles (3 roles por usuario, 90% de usuarios activos).
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="RoleMembershipBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleMembershipBenchmark {
+    private static final int USERS = 100_000;
+    private static final int ROLES = 40;
+
+    private RoleMembershipIndex index;
+    private long userId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        index = new RoleMembershipIndex(builder -> {
+            for (long user = 1; user <= USERS; user++) {
+                for (int r = 0; r < 3; r++) {
+                    builder.member(user, 1 + (user + r * 7) % ROLES);
+                }
+                if (user % 10 != 0) {
+                    builder.activeUser(user);
+                }
+            }
+        }, 1, TimeUnit.HOURS);
+        index.countMembers(1, false);
+    }
+
+    @Benchmark
+    public boolean isMember() throws SQLException {
+        userId = userId % USERS + 1;
+        return index.isMember(userId, 5);
+    }
+
+    @Benchmark
+    public long countMembers() throws SQLException {
+        return index.countMembers(5, false);
+    }
+
+    @Benchmark
+    public long countActiveMembers() throws SQLException {
+        return index.countMembers(5, true);
+    }
+
+    @Benchmark
+    public long[] firstThousandActiveMembers() throws SQLException {
+        return index.members(5, true, 1000);
+    }
+}
@@ -0,0 +1,69 @@
+package com.function.bench;
+
+import com.function.model.Role;
+import com.function.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mide la memoria retenida por 100k usuarios con roles, comparando roles
+ * compartidos (RoleRegistry) con una copia de cada rol por usuario, que era lo
+ * que resultaba de cargar los roles de cada usuario por separado.
+ *
+ * mvn -Pbenchmark test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.function.bench.RoleMemoryFootprint
+ */
+public final class RoleMemoryFootprint {
+    private static final int USERS = 100_000;
+    private static final int ROLES = 40;
+    private static final int ROLES_PER_USER = 3;
+
+    private RoleMemoryFootprint() {
+    }
+
+    public static void main(String[] args) {
+        List<Role> roles = BenchmarkData.roles(ROLES);
+
+        long before = usedHeap();
+        List<User> users = BenchmarkData.users(USERS);
+        long usersOnly = usedHeap() - before;
+
+        for (int i = 0; i < users.size(); i++) {
+            for (int r = 0; r < ROLES_PER_USER; r++) {
+                users.get(i).addRole(roles.get((i + r * 7) % ROLES));
+            }
+        }
+        long shared = usedHeap() - before - usersOnly;
+
+        List<List<Role>> copies = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            List<Role> userRoles = new ArrayList<>();
+            for (int r = 0; r < ROLES_PER_USER; r++) {
+                Role source = roles.get((i + r * 7) % ROLES);
+                Role copy = new Role(source.getName(), source.getDescription());
+                copy.setIdValue(source.getIdValue());
+                userRoles.add(copy);
+            }
+            copies.add(userRoles);
+        }
+        long copied = usedHeap() - before - usersOnly - shared;
+
+        System.out.printf("Usuarios sin roles:        %,d bytes (%d por usuario)%n", usersOnly, usersOnly / USERS);
+        System.out.printf("Roles compartidos:         %,d bytes (%d por usuario)%n", shared, shared / USERS);
+        System.out.printf("Roles copiados por usuario: %,d bytes (%d por usuario)%n", copied, copied / USERS);
+
+        // Mantener vivas las estructuras hasta después de medir
+        if (users.size() + copies.size() == 0) {
+            System.out.println();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,64 @@
+package com.function.bench;
+
+import com.function.json.Json;
+import com.function.model.User;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara la serialización anterior de las funciones (Gson con sangría a un
+ * String) con la actual (compacta, escrita directamente a bytes) para una
+ * lista de usuarios. El tamaño de cada payload se imprime en el setup.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="SerializationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({ "10000" })
+    private int users;
+
+    private List<User> data;
+    private Gson prettyGson;
+
+    @Setup
+    public void setUp() {
+        data = BenchmarkData.users(users);
+        prettyGson = new GsonBuilder().setPrettyPrinting().create();
+
+        int prettySize = prettyGson.toJson(data).getBytes(StandardCharsets.UTF_8).length;
+        int compactSize = Json.toBytes(data).length;
+        System.out.println("Payload con sangría: " + prettySize + " bytes, compacto: " + compactSize + " bytes");
+    }
+
+    @Benchmark
+    public byte[] prettyString() {
+        return prettyGson.toJson(data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] compactBytes() {
+        return Json.toBytes(data);
+    }
+}
@@ -0,0 +1,117 @@
+package com.function.bench;
+
+import com.function.events.EventGridEventData;
+import com.function.json.Json;
+import com.function.model.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compara Gson reflexivo con los TypeAdapters registrados en {@link Json}, y
+ * para los eventos la lectura en dos pasadas (árbol y luego contenido) con la
+ * decodificación en una sola pasada.
+ * Para medir la tasa de asignación, ejecutar con el profiler de GC:
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="TypeAdapterBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TypeAdapterBenchmark {
+    private static final Type USER_LIST = new TypeToken<List<User>>() { }.getType();
+
+    private static final String USER_BODY = "{\"username\":\"jperez\",\"email\":\"jperez@example.com\","
+            + "\"firstName\":\"Juan\",\"lastName\":\"Perez\",\"isActive\":true}";
+
+    private static final String EVENT = "{\"id\":\"0f8e6c1a-4b5d-4c1e-9a53-3d2f1b0c9e77\","
+            + "\"eventType\":\"user/created\",\"subject\":\"users/42\","
+            + "\"eventTime\":\"2025-01-01T00:00:00Z\",\"dataVersion\":\"1.0\","
+            + "\"data\":{\"id\":\"42\",\"username\":\"jperez\",\"email\":\"jperez@example.com\","
+            + "\"firstName\":\"Juan\",\"lastName\":\"Perez\",\"isActive\":true,\"roles\":[]}}";
+
+    private static final String UNKNOWN_EVENT = EVENT.replace("user/created", "user/archived");
+
+    private Gson reflective;
+    private Gson adapters;
+    private List<User> users;
+
+    @Setup
+    public void setUp() {
+        reflective = new Gson();
+        adapters = Json.compact();
+        users = BenchmarkData.users(1000);
+    }
+
+    @Benchmark
+    public String writeUsersReflective() {
+        return reflective.toJson(users, USER_LIST);
+    }
+
+    @Benchmark
+    public String writeUsersAdapters() {
+        return adapters.toJson(users, USER_LIST);
+    }
+
+    @Benchmark
+    public User readUserReflective() {
+        return reflective.fromJson(USER_BODY, User.class);
+    }
+
+    @Benchmark
+    public User readUserAdapters() {
+        return adapters.fromJson(USER_BODY, User.class);
+    }
+
+    /**
+     * Sobre como árbol y luego el contenido con Gson reflexivo
+     */
+    @Benchmark
+    public User readEventReflective() {
+        JsonObject event = reflective.fromJson(EVENT, JsonObject.class);
+        return reflective.fromJson(event.get("data"), User.class);
+    }
+
+    /**
+     * Sobre como árbol y luego el contenido con el TypeAdapter: dos pasadas
+     */
+    @Benchmark
+    public User readEventTwoPass() {
+        JsonObject event = adapters.fromJson(EVENT, JsonObject.class);
+        return adapters.fromJson(event.get("data"), User.class);
+    }
+
+    /**
+     * Sobre y contenido en una sola pasada, despachando por eventType
+     */
+    @Benchmark
+    public Object readEventAdapters() {
+        return adapters.fromJson(EVENT, EventGridEventData.class).data;
+    }
+
+    /**
+     * Evento de un tipo que no está en la tabla de despacho: el contenido se salta
+     */
+    @Benchmark
+    public EventGridEventData readUnknownEventAdapters() {
+        return adapters.fromJson(UNKNOWN_EVENT, EventGridEventData.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.function.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.function.json.BinaryFormats;
+import com.function.json.Json;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bytes en el cable y tiempo de decodificación de una lista de usuarios en
+ * JSON, CBOR y Smile, decodificando con Jackson como lo hace el BFF.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="WireFormatBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final TypeReference<List<BffUser>> USER_LIST = new TypeReference<List<BffUser>>() { };
+
+    @Param({ "50000" })
+    private int users;
+
+    private byte[] json;
+    private byte[] cbor;
+    private byte[] smile;
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private ObjectMapper smileMapper;
+
+    @Setup
+    public void setUp() {
+        json = Json.toBytes(BenchmarkData.users(users));
+        cbor = BinaryFormats.jsonToCbor(json);
+        smile = BinaryFormats.jsonToSmile(json);
+
+        jsonMapper = mapper(new ObjectMapper());
+        cborMapper = mapper(new ObjectMapper(new CBORFactory()));
+        smileMapper = mapper(new ObjectMapper(new SmileFactory()));
+
+        System.out.println("Bytes JSON: " + json.length + " (deflate " + deflatedSize(json) + ")");
+        System.out.println("Bytes CBOR: " + cbor.length + " (deflate " + deflatedSize(cbor) + ")");
+        System.out.println("Bytes Smile: " + smile.length + " (deflate " + deflatedSize(smile) + ")");
+    }
+
+    @Benchmark
+    public List<BffUser> decodeJson() throws IOException {
+        return jsonMapper.readValue(json, USER_LIST);
+    }
+
+    @Benchmark
+    public List<BffUser> decodeCbor() throws IOException {
+        return cborMapper.readValue(cbor, USER_LIST);
+    }
+
+    @Benchmark
+    public List<BffUser> decodeSmile() throws IOException {
+        return smileMapper.readValue(smile, USER_LIST);
+    }
+
+    @Benchmark
+    public List<BffUser> encodeAndDecodeCbor() throws IOException {
+        return cborMapper.readValue(BinaryFormats.jsonToCbor(json), USER_LIST);
+    }
+
+    private static ObjectMapper mapper(ObjectMapper mapper) {
+        return mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    private static int deflatedSize(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buffer = new byte[8192];
+        int size = 0;
+        while (!deflater.finished()) {
+            size += deflater.deflate(buffer);
+        }
+        deflater.end();
+        return size;
+    }
+
+    /**
+     * Misma forma que el modelo User del BFF
+     */
+    public static class BffUser {
+        public Long id;
+        public String username;
+        public String email;
+        public String fullName;
+        public boolean active;
+    }
+}
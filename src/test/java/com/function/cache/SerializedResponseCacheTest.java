@@ -0,0 +1,92 @@
+package com.function.cache;
+
+import com.function.cache.SerializedResponseCache.CachedResponse;
+import com.function.model.Role;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for SerializedResponseCache.
+ */
+public class SerializedResponseCacheTest {
+    private final Gson gson = new Gson();
+    private SerializedResponseCache<Role> cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new SerializedResponseCache<>("roles", gson, Role::getId, 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void listIsAssembledFromEntityFragments() {
+        List<Role> roles = Arrays.asList(role("1", "ADMIN"), role("2", "USER"));
+
+        CachedResponse list = cache.putList(cache.version(), roles);
+
+        String json = new String(list.getJson(), StandardCharsets.UTF_8);
+        assertEquals(gson.toJson(roles), json);
+        assertSame(list, cache.getList());
+        assertNotNull(cache.get("1"));
+        assertNotNull(cache.get("2"));
+    }
+
+    @Test
+    public void invalidateDropsFragmentAndList() {
+        cache.putList(cache.version(), Arrays.asList(role("1", "ADMIN"), role("2", "USER")));
+
+        cache.invalidate("1");
+
+        assertNull(cache.getList());
+        assertNull(cache.get("1"));
+        assertNotNull(cache.get("2"));
+    }
+
+    @Test
+    public void staleReadIsNotCached() {
+        long version = cache.version();
+        cache.invalidate("1");
+
+        cache.putList(version, Arrays.asList(role("1", "ADMIN")));
+
+        assertNull(cache.getList());
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void entityReadBeforeInvalidateIsNotCached() {
+        long version = cache.version();
+        cache.put(version, role("1", "ADMIN"));
+        cache.invalidate("1");
+
+        cache.put(version, role("1", "ADMIN"));
+
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void gzipMatchesJson() throws IOException {
+        CachedResponse fragment = cache.put(cache.version(), role("1", "ADMIN"));
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(fragment.getGzip()))) {
+            assertArrayEquals(fragment.getJson(), in.readAllBytes());
+        }
+        assertSame(fragment.getGzip(), fragment.getGzip());
+    }
+
+    private Role role(String id, String name) {
+        Role role = new Role(name, "Rol " + name);
+        role.setId(id);
+        return role;
+    }
+}
@@ -0,0 +1,306 @@
+package com.function.emulator;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Topic de Event Grid emulado en el propio proceso, para probar y medir el
+ * camino productor → consumidor sin un topic de Azure.
+ *
+ * Acepta los POST de {@code EventGridPublisher} en {@link #getEndpoint()} con
+ * la cabecera aeg-sas-key y entrega cada evento, por separado y como JSON, al
+ * {@link Subscriber} (por ejemplo {@code EventGridConsumerFunction.run}). Igual
+ * que Event Grid, si la entrega falla la reintenta hasta un máximo de intentos y
+ * después la descarta (dead letter).
+ *
+ * Se puede inyectar:
+ * - latencia de entrega, desde que el topic acepta el lote
+ * - throttling: más eventos por segundo que el límite se rechazan con 429 y
+ *   Retry-After
+ * - fallas: una fracción de los POST se rechaza con 503
+ *
+ * Los parámetros se pueden cambiar con el emulador en marcha.
+ */
+public final class EventGridEmulator implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(EventGridEmulator.class.getName());
+
+    private static final String PATH = "/api/events";
+    private static final long RETRY_DELAY_MILLIS = 100;
+
+    /**
+     * Recibe un evento en el esquema de Event Grid; si lanza una excepción la
+     * entrega se reintenta
+     */
+    @FunctionalInterface
+    public interface Subscriber {
+        void deliver(String event) throws Exception;
+    }
+
+    private final String topicKey;
+    private final Subscriber subscriber;
+    private final HttpServer server;
+    private final ScheduledExecutorService deliveries;
+
+    private volatile long latencyMillis;
+    private volatile int throttlePerSecond;
+    private volatile double failureRate;
+    private volatile int maxDeliveryAttempts = 3;
+
+    // Eventos aceptados en el segundo en curso, para el throttling
+    private long throttleSecond;
+    private int throttleCount;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong unauthorized = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong deliveryRetries = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final List<Long> lagMillis = new ArrayList<>();
+
+    /**
+     * Crea el emulador y empieza a escuchar en un puerto libre de la propia
+     * máquina
+     *
+     * @param topicKey            Clave que deben enviar los publicadores
+     * @param subscriber          Destino de los eventos
+     * @param deliveryConcurrency Entregas simultáneas al suscriptor
+     */
+    public EventGridEmulator(String topicKey, Subscriber subscriber, int deliveryConcurrency) throws IOException {
+        this.topicKey = topicKey;
+        this.subscriber = subscriber;
+        AtomicInteger threads = new AtomicInteger();
+        this.deliveries = Executors.newScheduledThreadPool(deliveryConcurrency, r -> {
+            Thread thread = new Thread(r, "eventgrid-emulator-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(PATH, this::receive);
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "eventgrid-emulator-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        logger.info("Emulador de Event Grid escuchando en " + getEndpoint());
+    }
+
+    /**
+     * URL del topic para el publicador
+     */
+    public String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    /** Espera entre que el topic acepta un lote y la entrega de sus eventos */
+    public void setLatency(Duration latency) {
+        this.latencyMillis = latency.toMillis();
+    }
+
+    /** Eventos por segundo que acepta el topic; 0 para no limitar */
+    public void setThrottlePerSecond(int throttlePerSecond) {
+        this.throttlePerSecond = throttlePerSecond;
+    }
+
+    /** Fracción (0 a 1) de los POST que se rechazan con 503 */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /** Intentos de entrega de cada evento antes de descartarlo */
+    public void setMaxDeliveryAttempts(int maxDeliveryAttempts) {
+        this.maxDeliveryAttempts = Math.max(1, maxDeliveryAttempts);
+    }
+
+    /**
+     * Espera a que no queden entregas pendientes
+     *
+     * @return false si se agotó el tiempo
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /** Eventos aceptados por el topic */
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    /** POST rechazados con 429 */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /** POST rechazados con 503 por la falla inyectada */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /** POST rechazados con 401 */
+    public long getUnauthorized() {
+        return unauthorized.get();
+    }
+
+    /** Eventos entregados con éxito al suscriptor */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /** Reintentos de entrega tras un error del suscriptor */
+    public long getDeliveryRetries() {
+        return deliveryRetries.get();
+    }
+
+    /** Eventos descartados tras agotar los intentos de entrega */
+    public long getDeadLettered() {
+        return deadLettered.get();
+    }
+
+    /**
+     * Demora de cada evento entregado, desde su eventTime hasta el fin de la
+     * entrega, en milisegundos
+     */
+    public List<Long> getLagMillis() {
+        synchronized (lagMillis) {
+            return new ArrayList<>(lagMillis);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        deliveries.shutdownNow();
+    }
+
+    private void receive(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!topicKey.equals(exchange.getRequestHeaders().getFirst("aeg-sas-key"))) {
+                unauthorized.incrementAndGet();
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            JsonArray events;
+            try {
+                events = JsonParser.parseString(new String(body, StandardCharsets.UTF_8)).getAsJsonArray();
+            } catch (RuntimeException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            if (!admit(events.size())) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            accepted.addAndGet(events.size());
+            for (JsonElement event : events) {
+                inFlight.incrementAndGet();
+                deliveries.schedule(() -> deliver(event.getAsJsonObject(), 1), latencyMillis, TimeUnit.MILLISECONDS);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    /**
+     * Cuenta los eventos contra el límite del segundo en curso
+     */
+    private synchronized boolean admit(int events) {
+        int limit = throttlePerSecond;
+        if (limit <= 0) {
+            return true;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        if (second != throttleSecond) {
+            throttleSecond = second;
+            throttleCount = 0;
+        }
+        if (throttleCount + events > limit) {
+            return false;
+        }
+        throttleCount += events;
+        return true;
+    }
+
+    private void deliver(JsonObject event, int attempt) {
+        try {
+            subscriber.deliver(event.toString());
+            delivered.incrementAndGet();
+            recordLag(event);
+            inFlight.decrementAndGet();
+        } catch (Exception e) {
+            if (attempt >= maxDeliveryAttempts) {
+                deadLettered.incrementAndGet();
+                inFlight.decrementAndGet();
+                logger.warning("Evento " + event.get("id") + " descartado tras " + attempt + " intentos: "
+                        + e.getMessage());
+                return;
+            }
+            deliveryRetries.incrementAndGet();
+            deliveries.schedule(() -> deliver(event, attempt + 1), RETRY_DELAY_MILLIS * attempt,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recordLag(JsonObject event) {
+        JsonElement eventTime = event.get("eventTime");
+        if (eventTime == null || !eventTime.isJsonPrimitive()) {
+            return;
+        }
+        try {
+            long lag = Duration.between(OffsetDateTime.parse(eventTime.getAsString()), OffsetDateTime.now()).toMillis();
+            synchronized (lagMillis) {
+                lagMillis.add(lag);
+            }
+        } catch (DateTimeParseException e) {
+            // Sin eventTime válido no hay demora que registrar
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.function.emulator;
+
+import com.function.EventGridPublisher;
+import com.function.events.EntityChange;
+import com.function.events.EventTypes;
+import com.function.events.RetryPolicy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the in-process Event Grid emulator, driven by the real HTTP publisher.
+ */
+public class EventGridEmulatorTest {
+    private static final String KEY = "clave";
+
+    @Test
+    public void deliversEachPublishedEventToTheSubscriber() throws Exception {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        try (EventGridEmulator topic = new EventGridEmulator(KEY, received::add, 2)) {
+            EventGridPublisher publisher = publisher(topic, KEY);
+
+            assertTrue(publisher.publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)));
+            assertTrue(publisher.publishEvent(EventTypes.USER_CREATED, "users/2", EntityChange.of(2)));
+            assertTrue(topic.awaitIdle(Duration.ofSeconds(5)));
+
+            assertEquals(2, received.size());
+            assertTrue(received.get(0).contains("\"eventType\":\"user/created\""));
+            assertEquals(2, topic.getDelivered());
+            assertEquals(2, topic.getLagMillis().size());
+        }
+    }
+
+    @Test
+    public void rejectsWrongKeysThrottlesAndInjectsFailures() throws Exception {
+        try (EventGridEmulator topic = new EventGridEmulator(KEY, event -> { }, 1)) {
+            assertFalse(publisher(topic, "otra").publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)));
+            assertEquals(1, topic.getUnauthorized());
+
+            EventGridPublisher publisher = publisher(topic, KEY);
+            topic.setFailureRate(1);
+            assertFalse(publisher.publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)));
+            assertEquals(1, topic.getFailed());
+
+            topic.setFailureRate(0);
+            topic.setThrottlePerSecond(1);
+            String twoEvents = "[{\"id\":\"a\"},{\"id\":\"b\"}]";
+            assertFalse(publisher.publishBatch(twoEvents.getBytes(StandardCharsets.UTF_8), 2));
+            assertEquals(1, topic.getThrottled());
+            assertEquals(0, topic.getAccepted());
+        }
+    }
+
+    @Test
+    public void retriesFailedDeliveriesAndThenDeadLetters() throws Exception {
+        List<String> attempts = Collections.synchronizedList(new ArrayList<>());
+        try (EventGridEmulator topic = new EventGridEmulator(KEY, event -> {
+            attempts.add(event);
+            throw new IllegalStateException("consumidor caído");
+        }, 1)) {
+            topic.setMaxDeliveryAttempts(2);
+
+            assertTrue(publisher(topic, KEY).publishEvent(EventTypes.USER_CREATED, "users/1", EntityChange.of(1)));
+            assertTrue(topic.awaitIdle(Duration.ofSeconds(5)));
+
+            assertEquals(2, attempts.size());
+            assertEquals(1, topic.getDeliveryRetries());
+            assertEquals(1, topic.getDeadLettered());
+            assertEquals(0, topic.getDelivered());
+        }
+    }
+
+    private static EventGridPublisher publisher(EventGridEmulator topic, String key) {
+        return new EventGridPublisher(topic.getEndpoint(), key, null, RetryPolicy.none(), null);
+    }
+}
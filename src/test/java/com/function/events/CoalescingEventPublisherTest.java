@@ -0,0 +1,96 @@
+package com.function.events;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for coalescing of user/updated events, with an in-memory publisher.
+ */
+public class CoalescingEventPublisherTest {
+
+    @Test
+    public void updatesOfTheSameUserWithinTheWindowArePublishedOnce() {
+        InMemoryEventPublisher topic = new InMemoryEventPublisher();
+        CoalescingEventPublisher publisher = new CoalescingEventPublisher(topic, 60_000);
+
+        CompletableFuture<Boolean> first = publisher.publishEventAsync(EventTypes.USER_UPDATED, "users/1",
+                new EntityChange(1, 10, EntityChange.EMAIL));
+        CompletableFuture<Boolean> second = publisher.publishEventAsync(EventTypes.USER_UPDATED, "users/1",
+                new EntityChange(1, 20, EntityChange.USERNAME));
+        publisher.publishEventAsync(EventTypes.USER_UPDATED, "users/2", new EntityChange(2, 15, EntityChange.ACTIVE));
+        assertTrue(topic.getEvents().isEmpty(), "se retienen hasta el fin de la ventana");
+
+        publisher.flush().join();
+
+        assertTrue(first.join());
+        assertTrue(second.join());
+        List<EventGridEventData> events = topic.getEvents();
+        assertEquals(List.of("users/1", "users/2"), subjects(events));
+        EntityChange merged = (EntityChange) events.get(0).data;
+        assertEquals(20, merged.getChangedAt());
+        assertEquals(EntityChange.EMAIL | EntityChange.USERNAME, merged.getChangeMask());
+    }
+
+    @Test
+    public void synchronousPublishIncludesPendingUpdates() {
+        InMemoryEventPublisher topic = new InMemoryEventPublisher();
+        CoalescingEventPublisher publisher = new CoalescingEventPublisher(topic, 60_000);
+
+        CompletableFuture<Boolean> pending = publisher.publishEventAsync(EventTypes.USER_UPDATED, "users/1",
+                new EntityChange(1, 10, EntityChange.EMAIL));
+        assertTrue(publisher.publishEvent(EventTypes.USER_UPDATED, "users/1",
+                new EntityChange(1, 20, EntityChange.LAST_NAME)));
+
+        assertTrue(pending.join());
+        assertEquals(1, topic.getEvents().size());
+        assertEquals(EntityChange.EMAIL | EntityChange.LAST_NAME,
+                ((EntityChange) topic.getEvents().get(0).data).getChangeMask());
+
+        publisher.flush().join();
+        assertEquals(1, topic.getEvents().size(), "no queda nada pendiente");
+    }
+
+    @Test
+    public void batchesAreCoalescedPerSubjectAndWindow() {
+        InMemoryEventPublisher topic = new InMemoryEventPublisher();
+        CoalescingEventPublisher publisher = new CoalescingEventPublisher(topic, 1_000);
+
+        String batch = "[" + updated("a", "users/1", "00.000", 1, EntityChange.EMAIL) + ","
+                + event("b", EventTypes.USER_CREATED, "users/2", "00.100") + ","
+                + updated("c", "users/1", "00.500", 2, EntityChange.USERNAME) + ","
+                + updated("d", "users/1", "03.000", 3, EntityChange.ACTIVE) + ","
+                + updated("e", "users/2", "03.100", 4, EntityChange.EMAIL) + "]";
+
+        assertTrue(publisher.publishBatch(batch.getBytes(StandardCharsets.UTF_8), 5));
+
+        List<EventGridEventData> events = topic.getEvents();
+        List<String> ids = new ArrayList<>();
+        events.forEach(event -> ids.add(event.id));
+        assertEquals(List.of("c", "b", "d", "e"), ids, "el unido queda en la posición del primero con el ID del último");
+        EntityChange merged = (EntityChange) events.get(0).data;
+        assertEquals(2, merged.getChangedAt());
+        assertEquals(EntityChange.EMAIL | EntityChange.USERNAME, merged.getChangeMask());
+        assertEquals(EntityChange.ACTIVE, ((EntityChange) events.get(2).data).getChangeMask(), "fuera de la ventana");
+    }
+
+    private static String updated(String id, String subject, String seconds, long changedAt, int mask) {
+        return event(id, EventTypes.USER_UPDATED, subject, seconds).replace("\"data\":{}",
+                "\"data\":{\"id\":" + subject.substring(6) + ",\"changedAt\":" + changedAt + ",\"mask\":" + mask + "}");
+    }
+
+    private static String event(String id, String type, String subject, String seconds) {
+        return "{\"id\":\"" + id + "\",\"eventType\":\"" + type + "\",\"subject\":\"" + subject
+                + "\",\"eventTime\":\"2025-01-01T00:00:" + seconds + "Z\",\"dataVersion\":\"1.0\",\"data\":{}}";
+    }
+
+    private static List<String> subjects(List<EventGridEventData> events) {
+        List<String> subjects = new ArrayList<>();
+        events.forEach(event -> subjects.add(event.subject));
+        return subjects;
+    }
+}
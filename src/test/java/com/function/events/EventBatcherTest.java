@@ -0,0 +1,107 @@
+package com.function.events;
+
+import com.function.EventGridPublisher;
+import com.function.metrics.Metrics;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for batched publishing against a local HTTP stub of the topic endpoint.
+ */
+public class EventBatcherTest {
+    private HttpServer server;
+    private String endpoint;
+    private final List<JsonArray> batches = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+
+    @BeforeEach
+    public void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/events", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            batches.add(JsonParser.parseString(body).getAsJsonArray());
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/events";
+    }
+
+    @AfterEach
+    public void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    public void flushesWhenMaxEventsIsReached() {
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key",
+                new EventBatcher.Settings(3, 1024 * 1024, TimeUnit.MINUTES.toMillis(1)));
+
+        CompletableFuture<Boolean> a = publisher.publishEventAsync("user/created", "users/1", "a");
+        CompletableFuture<Boolean> b = publisher.publishEventAsync("user/created", "users/2", "b");
+        CompletableFuture<Boolean> c = publisher.publishEventAsync("user/created", "users/3", "c");
+
+        assertTrue(a.join() && b.join() && c.join());
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals("users/2", batches.get(0).get(1).getAsJsonObject().get("subject").getAsString());
+    }
+
+    @Test
+    public void flushesAfterLinger() {
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key",
+                new EventBatcher.Settings(100, 1024 * 1024, 20));
+
+        CompletableFuture<Boolean> a = publisher.publishEventAsync("user/created", "users/1", "a");
+        CompletableFuture<Boolean> b = publisher.publishEventAsync("user/created", "users/2", "b");
+
+        assertTrue(a.join() && b.join());
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void flushesBeforeExceedingMaxBytes() {
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key",
+                new EventBatcher.Settings(100, 400, TimeUnit.MINUTES.toMillis(1)));
+
+        CompletableFuture<Boolean> a = publisher.publishEventAsync("user/created", "users/1", "x".repeat(150));
+        CompletableFuture<Boolean> b = publisher.publishEventAsync("user/created", "users/2", "y".repeat(150));
+        publisher.flush().join();
+
+        assertTrue(a.join() && b.join());
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(1, batches.get(1).size());
+    }
+
+    @Test
+    public void failedBatchFailsAllItsEvents() {
+        status = 500;
+        long failedBefore = Metrics.counter("eventgrid.batch.failed.events").get();
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key",
+                new EventBatcher.Settings(2, 1024 * 1024, TimeUnit.MINUTES.toMillis(1)));
+
+        CompletableFuture<Boolean> a = publisher.publishEventAsync("user/created", "users/1", "a");
+        CompletableFuture<Boolean> b = publisher.publishEventAsync("user/created", "users/2", "b");
+
+        assertFalse(a.join());
+        assertFalse(b.join());
+        assertEquals(failedBefore + 2, Metrics.counter("eventgrid.batch.failed.events").get());
+    }
+}
@@ -0,0 +1,104 @@
+package com.function.events;
+
+import com.function.repository.ProcessedEventRepository;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for event deduplication, with an in-memory PROCESSED_EVENTS table.
+ */
+public class EventDeduplicatorTest {
+
+    @Test
+    public void dropsEventsAlreadyProcessedInThisInstance() throws SQLException {
+        FakeProcessedEvents table = new FakeProcessedEvents();
+        EventDeduplicator dedup = new EventDeduplicator(table, Duration.ofHours(1), 100);
+
+        dedup.markProcessed(List.of(event("a"), event("b")));
+        table.queries.clear();
+
+        List<EventGridEventData> fresh = dedup.filterNew(List.of(event("a"), event("c"), event("b")));
+
+        assertEquals(List.of("c"), ids(fresh));
+        assertEquals(List.of(List.of("c")), table.queries, "sólo se consulta la base por los IDs desconocidos");
+    }
+
+    @Test
+    public void dropsEventsProcessedByAnotherInstance() throws SQLException {
+        FakeProcessedEvents table = new FakeProcessedEvents();
+        table.ids.add("a");
+        EventDeduplicator dedup = new EventDeduplicator(table, Duration.ofHours(1), 100);
+
+        assertTrue(dedup.isDuplicate(event("a")));
+        assertFalse(dedup.isDuplicate(event("b")));
+
+        table.queries.clear();
+        assertTrue(dedup.isDuplicate(event("a")));
+        assertTrue(table.queries.get(0).isEmpty(), "el ID encontrado en la base queda en memoria");
+    }
+
+    @Test
+    public void dropsRepeatedIdsWithinOneBatch() throws SQLException {
+        EventDeduplicator dedup = new EventDeduplicator(new FakeProcessedEvents(), Duration.ofHours(1), 100);
+
+        assertEquals(List.of("a", "b"), ids(dedup.filterNew(List.of(event("a"), event("b"), event("a")))));
+    }
+
+    @Test
+    public void memoryWindowIsBoundedInTimeAndSize() throws Exception {
+        FakeProcessedEvents table = new FakeProcessedEvents();
+        EventDeduplicator shortWindow = new EventDeduplicator(table, Duration.ofMillis(1), 100);
+        shortWindow.markProcessed(List.of(event("a")));
+        Thread.sleep(10);
+        table.ids.clear();
+        assertFalse(shortWindow.isDuplicate(event("a")), "vencida la ventana se decide con la base");
+
+        EventDeduplicator small = new EventDeduplicator(table, Duration.ofHours(1), 2);
+        small.markProcessed(List.of(event("x"), event("y"), event("z")));
+        table.ids.clear();
+        assertFalse(small.isDuplicate(event("x")));
+        assertTrue(small.isDuplicate(event("z")));
+    }
+
+    private static EventGridEventData event(String id) {
+        EventGridEventData event = new EventGridEventData();
+        event.id = id;
+        event.eventType = EventTypes.USER_CREATED;
+        return event;
+    }
+
+    private static List<String> ids(List<EventGridEventData> events) {
+        List<String> ids = new ArrayList<>();
+        for (EventGridEventData event : events) {
+            ids.add(event.id);
+        }
+        return ids;
+    }
+
+    private static final class FakeProcessedEvents extends ProcessedEventRepository {
+        final Set<String> ids = new HashSet<>();
+        final List<List<String>> queries = new ArrayList<>();
+
+        @Override
+        public Set<String> findProcessed(List<String> eventIds) {
+            queries.add(new ArrayList<>(eventIds));
+            Set<String> found = new HashSet<>(eventIds);
+            found.retainAll(ids);
+            return found;
+        }
+
+        @Override
+        public void markProcessed(Map<String, String> eventTypes) {
+            ids.addAll(eventTypes.keySet());
+        }
+    }
+}
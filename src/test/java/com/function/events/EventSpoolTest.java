@@ -0,0 +1,238 @@
+package com.function.events;
+
+import com.function.EventGridPublisher;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for publish retries, the local spool and its drainer.
+ */
+public class EventSpoolTest {
+    private HttpServer server;
+    private String endpoint;
+    private Path dir;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failuresLeft;
+    private volatile int failureStatus = 503;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("spool-test");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/events", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requests.incrementAndGet();
+            int status = 200;
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                status = failureStatus;
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/events";
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.stop(0);
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void spoolKeepsBatchesInOrderAcrossReopen() throws IOException {
+        Path file = dir.resolve("events.spool");
+        try (EventSpool spool = new EventSpool(file, 4096)) {
+            assertTrue(spool.append(bytes("[1]"), 1));
+            assertTrue(spool.append(bytes("[2,3]"), 2));
+            assertEquals(2, spool.depth());
+        }
+
+        try (EventSpool spool = new EventSpool(file, 4096)) {
+            assertEquals(2, spool.depth());
+            assertEquals("[1]", text(spool.peek().getBody()));
+            spool.remove();
+            EventSpool.Entry next = spool.peek();
+            assertEquals("[2,3]", text(next.getBody()));
+            assertEquals(2, next.getEvents());
+            spool.remove();
+            assertNull(spool.peek());
+            assertEquals(0, spool.bytes());
+        }
+    }
+
+    @Test
+    public void spoolCompactsAndRejectsWhenFull() throws IOException {
+        try (EventSpool spool = new EventSpool(dir.resolve("small.spool"), 32 + 3 * (16 + 10))) {
+            byte[] body = bytes("[\"xxxxxx\"]");
+            assertTrue(spool.append(body, 1));
+            assertTrue(spool.append(body, 1));
+            assertTrue(spool.append(body, 1));
+            assertFalse(spool.append(body, 1));
+
+            spool.remove();
+            assertTrue(spool.append(body, 1), "se reutiliza el lugar del lote ya consumido");
+            assertEquals(3, spool.depth());
+        }
+    }
+
+    @Test
+    public void spoolWrapsAroundAndKeepsOrderAcrossReopen() throws IOException {
+        Path file = dir.resolve("ring.spool");
+        try (EventSpool spool = new EventSpool(file, 32 + 3 * (16 + 3))) {
+            assertTrue(spool.append(bytes("[1]"), 1));
+            assertTrue(spool.append(bytes("[2]"), 1));
+            assertTrue(spool.append(bytes("[3]"), 1));
+            spool.remove();
+            spool.remove();
+            assertTrue(spool.append(bytes("[4]"), 1));
+            assertTrue(spool.append(bytes("[5]"), 1));
+            assertFalse(spool.append(bytes("[6]"), 1));
+        }
+
+        try (EventSpool spool = new EventSpool(file, 32 + 3 * (16 + 3))) {
+            assertEquals(3, spool.depth());
+            assertEquals(3 * (16 + 3), spool.bytes());
+            for (String expected : new String[] { "[3]", "[4]", "[5]" }) {
+                assertEquals(expected, text(spool.peek().getBody()));
+                spool.remove();
+            }
+            assertNull(spool.peek());
+        }
+    }
+
+    @Test
+    public void topicNameComesFromTheEndpointHost() {
+        assertEquals("users-topic", EventSpool.topicName("https://users-topic.westus2-1.eventgrid.azure.net/api/events"));
+        assertEquals("127_0_0_1_8080", EventSpool.topicName("http://127.0.0.1:8080/api/events"));
+    }
+
+    @Test
+    public void retriesRetryableStatusUntilSuccess() {
+        failuresLeft = 2;
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key", null,
+                new RetryPolicy(4, 1, 10), null);
+
+        assertTrue(publisher.publishEvent("user/created", "users/1", "a"));
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() {
+        failuresLeft = 1;
+        failureStatus = 400;
+        EventGridPublisher publisher = new EventGridPublisher(endpoint, "key", null,
+                new RetryPolicy(4, 1, 10), null);
+
+        assertFalse(publisher.publishEvent("user/created", "users/1", "a"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void publishEventReturnsOnceTheEventIsSpooled() throws IOException {
+        failuresLeft = 5;
+        try (EventSpool spool = new EventSpool(dir.resolve("topic.spool"), 64 * 1024)) {
+            EventGridPublisher publisher = new EventGridPublisher(endpoint, "key", null,
+                    new RetryPolicy(4, 1, 10), spool);
+
+            assertTrue(publisher.publishEvent("user/created", "users/1", "a"));
+            assertEquals(1, requests.get(), "los reintentos quedan a cargo del drenador");
+            assertEquals(1, spool.depth());
+        }
+    }
+
+    @Test
+    public void rejectedEventsAreNotSpooled() throws IOException {
+        failuresLeft = 2;
+        failureStatus = 400;
+        try (EventSpool spool = new EventSpool(dir.resolve("topic.spool"), 64 * 1024)) {
+            EventGridPublisher publisher = new EventGridPublisher(endpoint, "key", null,
+                    new RetryPolicy(4, 1, 10), spool);
+
+            assertFalse(publisher.publishEvent("user/created", "users/1", "a"));
+            assertFalse(publisher.publishEventAsync("user/created", "users/2", "b").join());
+            assertEquals(0, spool.depth());
+        }
+    }
+
+    @Test
+    public void drainerSetsAsidePoisonBatches() throws IOException {
+        Path file = dir.resolve("topic.spool");
+        try (EventSpool spool = new EventSpool(file, 64 * 1024)) {
+            spool.append(bytes("[1]"), 1);
+            spool.append(bytes("[2]"), 1);
+            spool.append(bytes("[3]"), 1);
+            SpoolDrainer drainer = new SpoolDrainer(spool, (body, events) -> CompletableFuture.completedFuture(
+                    switch (text(body)) {
+                        case "[1]" -> PublishResult.RETRYABLE;
+                        case "[2]" -> PublishResult.REJECTED;
+                        default -> PublishResult.PUBLISHED;
+                    }), 100, 2);
+
+            assertEquals(0, drainer.drainOnce());
+            assertEquals(3, spool.depth());
+            assertEquals(0, drainer.drainOnce(), "el segundo intento fallido aparta el lote");
+            assertEquals(2, spool.depth());
+            assertEquals(1, drainer.drainOnce(), "el lote rechazado se aparta sin reintentos");
+            assertEquals(0, spool.depth());
+            assertEquals("[1]\n[2]\n", Files.readString(dir.resolve("topic.spool.dead")));
+        }
+    }
+
+    @Test
+    public void exhaustedEventsAreSpooledAndReplayed() throws IOException {
+        failuresLeft = 2;
+        try (EventSpool spool = new EventSpool(dir.resolve("topic.spool"), 64 * 1024)) {
+            EventGridPublisher publisher = new EventGridPublisher(endpoint, "key", null,
+                    new RetryPolicy(2, 1, 10), spool);
+
+            CompletableFuture<Boolean> result = publisher.publishEventAsync("user/created", "users/1", "a");
+            assertFalse(result.join());
+            assertEquals(1, spool.depth());
+
+            SpoolDrainer drainer = new SpoolDrainer(spool, (body, events) ->
+                    CompletableFuture.completedFuture(publisher.publishBatchResult(body, events)), 100);
+            assertEquals(1, drainer.drainOnce());
+            assertEquals(0, spool.depth());
+            assertEquals(3, requests.get());
+        }
+    }
+
+    @Test
+    public void retryAfterSetsTheMinimumDelay() {
+        RetryPolicy policy = new RetryPolicy(4, 1, 10_000);
+
+        assertTrue(policy.delayMillis(1, "2") >= 2000);
+        assertEquals(10_000, policy.delayMillis(1, "3600"));
+        assertTrue(policy.delayMillis(1, "no es un número") <= 1);
+        assertEquals(0, RetryPolicy.retryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
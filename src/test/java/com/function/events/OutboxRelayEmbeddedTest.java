@@ -0,0 +1,199 @@
+package com.function.events;
+
+import com.function.OracleDBConnection;
+import com.function.repository.OutboxRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the outbox relay against the embedded H2 database, with a scripted topic.
+ */
+public class OutboxRelayEmbeddedTest {
+    private static final String URL = "jdbc:h2:mem:outbox;MODE=Oracle;DB_CLOSE_DELAY=-1";
+    private static final Pattern SUBJECT = Pattern.compile("\"subject\":\"users/(\\d+)\"");
+
+    private final OutboxRepository repository = new OutboxRepository();
+    private final List<String> sent = new ArrayList<>();
+
+    @BeforeEach
+    public void createSchema() throws SQLException {
+        OracleDBConnection.setConnectionSource(() -> DriverManager.getConnection(URL));
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE OUTBOX (ID BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                    + "EVENT_ID VARCHAR(36) NOT NULL, EVENT_TYPE VARCHAR(100) NOT NULL, SUBJECT VARCHAR(200) NOT NULL, "
+                    + "PAYLOAD CLOB NOT NULL, CREATED_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL, "
+                    + "ATTEMPTS INT DEFAULT 0 NOT NULL, LAST_ERROR VARCHAR(1000), LEASED_UNTIL TIMESTAMP WITH TIME ZONE)");
+            stmt.execute("CREATE TABLE OUTBOX_DEAD_LETTER (ID BIGINT PRIMARY KEY, EVENT_ID VARCHAR(36) NOT NULL, "
+                    + "EVENT_TYPE VARCHAR(100) NOT NULL, SUBJECT VARCHAR(200) NOT NULL, PAYLOAD CLOB NOT NULL, "
+                    + "CREATED_AT TIMESTAMP WITH TIME ZONE NOT NULL, ATTEMPTS INT NOT NULL, REASON VARCHAR(1000), "
+                    + "DEAD_AT TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+        }
+    }
+
+    @AfterEach
+    public void dropSchema() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+        OracleDBConnection.setConnectionSource(null);
+    }
+
+    @Test
+    public void publishedEventsAreDeleted() throws SQLException {
+        append(1, 2, 3);
+        OutboxRelay relay = relay(settings(10, 2), body -> PublishResult.PUBLISHED);
+
+        assertEquals(3, relay.relay(5));
+        assertEquals(List.of(), subjects("OUTBOX"));
+        assertEquals(List.of(), subjects("OUTBOX_DEAD_LETTER"));
+    }
+
+    @Test
+    public void rejectedBatchIsBisectedAndOnlyTheBadEventIsDeadLettered() throws SQLException {
+        append(1, 2, 3, 4);
+        OutboxRelay relay = relay(settings(10, 2),
+                body -> body.contains("\"users/3\"") ? PublishResult.REJECTED : PublishResult.PUBLISHED);
+
+        assertEquals(3, relay.relay(5));
+        assertEquals(List.of(), subjects("OUTBOX"));
+        assertEquals(List.of("users/3"), subjects("OUTBOX_DEAD_LETTER"));
+        assertEquals(List.of("1,2,3,4", "1,2", "3,4", "3", "4"), sent, "mitades hasta aislar el rechazado");
+    }
+
+    @Test
+    public void retryableFailuresCountAttemptsAndDeadLetterAtTheLimit() throws SQLException {
+        append(1, 2);
+        // Un evento por envío, para que el segundo quede sin enviar
+        OutboxRelay relay = relay(new OutboxRelay.Settings(10, 400, 2, 60_000), body -> PublishResult.RETRYABLE);
+
+        assertEquals(0, relay.relay(5));
+        assertEquals(List.of("1"), sent, "tras la falla no se envía el resto");
+        assertEquals(1, attempts("users/1"));
+        assertTrue(leased("users/1"), "espera antes de reintentar");
+        assertEquals(0, attempts("users/2"));
+        assertFalse(leased("users/2"), "el no enviado se libera sin contar un intento");
+
+        expireLeases();
+        assertEquals(0, relay.relay(5));
+        assertEquals(List.of("users/2"), subjects("OUTBOX"));
+        assertEquals(List.of("users/1"), subjects("OUTBOX_DEAD_LETTER"));
+        assertEquals(2, count("SELECT ATTEMPTS FROM OUTBOX_DEAD_LETTER"));
+    }
+
+    @Test
+    public void leasedEventsAreReclaimedOnlyAfterTheLeaseExpires() throws SQLException {
+        append(1, 2);
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            conn.setAutoCommit(false);
+            assertEquals(2, repository.claimBatch(conn, 10, OffsetDateTime.now().plusMinutes(5)).size());
+            conn.commit();
+        }
+        OutboxRelay relay = relay(settings(10, 2), body -> PublishResult.PUBLISHED);
+
+        assertEquals(0, relay.relay(5), "reservados por un relay que se cayó");
+        assertEquals(List.of(), sent);
+
+        expireLeases();
+        assertEquals(2, relay.relay(5));
+        assertEquals(List.of(), subjects("OUTBOX"));
+    }
+
+    @Test
+    public void rowsLockedByAnotherRelayAreSkipped() throws SQLException {
+        append(1, 2);
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            conn.setAutoCommit(false);
+            // Otro relay tiene la primera fila bloqueada, sin confirmar todavía la reserva
+            assertEquals(1, repository.claimBatch(conn, 1, OffsetDateTime.now().plusMinutes(5)).size());
+
+            OutboxRelay relay = relay(settings(10, 2), body -> PublishResult.PUBLISHED);
+            assertEquals(1, relay.relay(5));
+            assertEquals(List.of("2"), sent);
+            conn.rollback();
+        }
+        assertEquals(List.of("users/1"), subjects("OUTBOX"));
+    }
+
+    private interface ScriptedTopic {
+        PublishResult publish(String body);
+    }
+
+    private OutboxRelay relay(OutboxRelay.Settings settings, ScriptedTopic topic) {
+        return new OutboxRelay(repository, (body, events) -> {
+            String json = new String(body, StandardCharsets.UTF_8);
+            // Usuarios del envío, en orden: "1,2"
+            StringJoiner users = new StringJoiner(",");
+            Matcher subject = SUBJECT.matcher(json);
+            while (subject.find()) {
+                users.add(subject.group(1));
+            }
+            sent.add(users.toString());
+            return topic.publish(json);
+        }, settings);
+    }
+
+    private static OutboxRelay.Settings settings(int batchSize, int maxAttempts) {
+        return new OutboxRelay.Settings(batchSize, 1024 * 1024, maxAttempts, 60_000);
+    }
+
+    private void append(long... userIds) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            for (long userId : userIds) {
+                repository.append(conn, EventTypes.USER_UPDATED, "users/" + userId, EntityChange.of(userId));
+            }
+        }
+    }
+
+    private static void expireLeases() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE OUTBOX SET LEASED_UNTIL = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) "
+                    + "WHERE LEASED_UNTIL IS NOT NULL");
+        }
+    }
+
+    private static int attempts(String subject) throws SQLException {
+        return (int) count("SELECT ATTEMPTS FROM OUTBOX WHERE SUBJECT = '" + subject + "'");
+    }
+
+    private static boolean leased(String subject) throws SQLException {
+        return count("SELECT COUNT(*) FROM OUTBOX WHERE LEASED_UNTIL > CURRENT_TIMESTAMP AND SUBJECT = '"
+                + subject + "'") > 0;
+    }
+
+    private static List<String> subjects(String table) throws SQLException {
+        List<String> subjects = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(URL);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT SUBJECT FROM " + table + " ORDER BY ID")) {
+            while (rs.next()) {
+                subjects.add(rs.getString(1));
+            }
+        }
+        return subjects;
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.function.events;
+
+import com.function.model.OutboxEvent;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the outbox relay batch splitting and retry delays.
+ */
+public class OutboxRelayTest {
+
+    @Test
+    public void splitsBatchesByAccumulatedSize() {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            events.add(event(i, 400));
+        }
+
+        List<List<OutboxEvent>> chunks = OutboxRelay.split(events, 1500);
+
+        assertEquals(3, chunks.size());
+        assertEquals(2, chunks.get(0).size());
+        assertEquals(1L, chunks.get(0).get(0).getId());
+        assertEquals(5L, chunks.get(2).get(0).getId());
+        for (List<OutboxEvent> chunk : chunks) {
+            assertTrue(OutboxRelay.toEventGridBatch(chunk).length <= 1500);
+        }
+    }
+
+    @Test
+    public void oversizedEventGoesAlone() {
+        List<OutboxEvent> events = List.of(event(1, 10), event(2, 5000), event(3, 10));
+
+        List<List<OutboxEvent>> chunks = OutboxRelay.split(events, 1000);
+
+        assertEquals(3, chunks.size());
+        assertEquals(2L, chunks.get(1).get(0).getId());
+    }
+
+    @Test
+    public void batchCarriesThePublishStampOfEachEvent() {
+        long before = System.currentTimeMillis();
+
+        String batch = new String(OutboxRelay.toEventGridBatch(List.of(event(1, 10), event(2, 10))),
+                StandardCharsets.UTF_8);
+
+        JsonArray events = JsonParser.parseString(batch).getAsJsonArray();
+        JsonObject first = events.get(0).getAsJsonObject().getAsJsonObject("data");
+        JsonObject second = events.get(1).getAsJsonObject().getAsJsonObject("data");
+        assertEquals("1", first.get("id").getAsString());
+        assertTrue(first.get("publishedAt").getAsLong() >= before);
+        assertTrue(second.get("sequence").getAsLong() > first.get("sequence").getAsLong());
+    }
+
+    @Test
+    public void retryDelayGrowsUpToTheMaximum() {
+        assertEquals(10_000, OutboxRelay.retryDelayMillis(1));
+        assertEquals(20_000, OutboxRelay.retryDelayMillis(2));
+        assertEquals(600_000, OutboxRelay.retryDelayMillis(12));
+    }
+
+    private static OutboxEvent event(long id, int payloadChars) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setEventId("0f8e6c1a-4b5d-4c1e-9a53-" + String.format("%012d", id));
+        event.setEventType(EventTypes.USER_UPDATED);
+        event.setSubject("users/" + id);
+        event.setPayload("{\"id\":\"" + id + "\",\"note\":\"" + "x".repeat(payloadChars) + "\"}");
+        return event;
+    }
+}
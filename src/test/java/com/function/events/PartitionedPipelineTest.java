@@ -0,0 +1,105 @@
+package com.function.events;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the partitioned consumer pipeline.
+ */
+public class PartitionedPipelineTest {
+
+    @Test
+    public void eventsOfOneUserStayInOrderInOneLane() throws SQLException {
+        PartitionedPipeline pipeline = new PartitionedPipeline(4);
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+        List<EventGridEventData> events = List.of(
+                userEvent("c1", EventTypes.USER_CREATED, 7),
+                userEvent("x", EventTypes.USER_CREATED, 8),
+                userEvent("u1", EventTypes.USER_UPDATED, 7),
+                userEvent("u2", EventTypes.USER_UPDATED, 7));
+
+        List<List<String>> lanes = pipeline.dispatch(events, laneEvents -> {
+            List<String> ids = new ArrayList<>();
+            for (EventGridEventData event : laneEvents) {
+                ids.add(event.id);
+                seen.add(event.id);
+            }
+            return ids;
+        });
+
+        assertTrue(lanes.contains(List.of("c1", "u1", "u2")), "carriles: " + lanes);
+        assertEquals(4, seen.size());
+    }
+
+    @Test
+    public void roleDeletionsRunInTheirOwnLane() {
+        PartitionedPipeline pipeline = new PartitionedPipeline(2);
+        EventGridEventData deleted = new EventGridEventData();
+        deleted.id = "r1";
+        deleted.eventType = EventTypes.ROLE_DELETED;
+        deleted.data = new EntityChange(1, 1, EntityChange.ALL);
+
+        assertEquals(2, pipeline.laneOf(deleted));
+        assertTrue(pipeline.laneOf(userEvent("c1", EventTypes.USER_CREATED, 1)) < 2);
+    }
+
+    @Test
+    public void lanesRunInParallel() throws SQLException {
+        PartitionedPipeline pipeline = new PartitionedPipeline(2);
+        CyclicBarrier bothLanes = new CyclicBarrier(2);
+
+        // Usuarios 1 y 2 caen en carriles distintos; si no corrieran a la vez la barrera vencería
+        List<Integer> sizes = pipeline.dispatch(List.of(
+                userEvent("a", EventTypes.USER_CREATED, 1),
+                userEvent("b", EventTypes.USER_CREATED, 2)), laneEvents -> {
+                    try {
+                        bothLanes.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return laneEvents.size();
+                });
+
+        assertEquals(List.of(1, 1), sizes);
+    }
+
+    @Test
+    public void laneFailureIsRethrownAfterAllLanesFinish() {
+        PartitionedPipeline pipeline = new PartitionedPipeline(2);
+        List<String> finished = Collections.synchronizedList(new ArrayList<>());
+
+        SQLException error = assertThrows(SQLException.class, () -> pipeline.dispatch(List.of(
+                userEvent("a", EventTypes.USER_CREATED, 1),
+                userEvent("b", EventTypes.USER_CREATED, 2)), laneEvents -> {
+                    if (laneEvents.get(0).id.equals("a")) {
+                        throw new SQLException("sin conexión");
+                    }
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finished.add(laneEvents.get(0).id);
+                    return null;
+                }));
+
+        assertEquals("sin conexión", error.getMessage());
+        assertEquals(List.of("b"), finished);
+    }
+
+    private static EventGridEventData userEvent(String id, String type, long userId) {
+        EventGridEventData event = new EventGridEventData();
+        event.id = id;
+        event.eventType = type;
+        event.data = new EntityChange(userId, 1, EntityChange.ALL);
+        return event;
+    }
+}
@@ -0,0 +1,123 @@
+package com.function.events;
+
+import com.function.model.QuarantinedEvent;
+import com.function.repository.QuarantineRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for quarantine capture and replay, with an in-memory QUARANTINED_EVENTS table.
+ */
+public class QuarantineReplayerTest {
+
+    @Test
+    public void eventIsHeldAfterMaxAttemptsOrOnPermanentFailure() {
+        FakeQuarantine table = new FakeQuarantine();
+        EventQuarantine quarantine = new EventQuarantine(table, 3);
+
+        assertFalse(quarantine.recordFailure("{}", event("a"), "timeout", false));
+        assertFalse(quarantine.recordFailure("{}", event("a"), "timeout", false));
+        assertTrue(quarantine.recordFailure("{}", event("a"), "timeout", false));
+        assertEquals(Integer.valueOf(3), table.attempts.get("a"));
+
+        assertTrue(quarantine.recordFailure("{}", event("b"), "datos inválidos", true));
+        assertEquals(Integer.valueOf(1), table.attempts.get("b"));
+    }
+
+    @Test
+    public void successfulRetryLeavesTheQuarantine() {
+        FakeQuarantine table = new FakeQuarantine();
+        EventQuarantine quarantine = new EventQuarantine(table, 3);
+
+        quarantine.recordFailure("{}", event("a"), "timeout", false);
+        quarantine.resolved(event("a"));
+        quarantine.resolved(event("b"));
+
+        assertEquals(List.of("a"), table.deleted, "sólo se borra lo que registró esta instancia");
+    }
+
+    @Test
+    public void replayRemovesSucceededAndCountsFailedAttempts() throws InterruptedException {
+        FakeQuarantine table = new FakeQuarantine();
+        table.attempts.put("bad", 5);
+        List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        QuarantineReplayer replayer = new QuarantineReplayer(table, event -> {
+            handled.add(event.id);
+            if ("bad".equals(event.id)) {
+                throw new IllegalStateException("sigue fallando");
+            }
+        });
+        QuarantineReplayer.Result result = replayer.replay(
+                List.of(quarantined("a"), quarantined("bad"), quarantined("c")), 0, 1);
+
+        assertEquals(List.of("a", "bad", "c"), handled);
+        assertEquals(2, result.getReplayed());
+        assertEquals(Map.of("bad", "sigue fallando"), result.getFailed());
+        assertEquals(List.of("a", "c"), table.deleted);
+        assertEquals(Integer.valueOf(6), table.attempts.get("bad"));
+    }
+
+    @Test
+    public void replayHonorsRateAndConcurrency() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        QuarantineReplayer replayer = new QuarantineReplayer(new FakeQuarantine(), event -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(30);
+            running.decrementAndGet();
+        });
+
+        List<QuarantinedEvent> events = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            events.add(quarantined("e" + i));
+        }
+
+        long start = System.nanoTime();
+        QuarantineReplayer.Result result = replayer.replay(events, 100, 2);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(8, result.getReplayed());
+        assertTrue(maxRunning.get() <= 2, "en proceso a la vez: " + maxRunning.get());
+        assertTrue(elapsedMillis >= 70, "8 eventos a 100/s no pueden despacharse en " + elapsedMillis + " ms");
+    }
+
+    private static EventGridEventData event(String id) {
+        EventGridEventData event = new EventGridEventData();
+        event.id = id;
+        event.eventType = EventTypes.USER_CREATED;
+        return event;
+    }
+
+    private static QuarantinedEvent quarantined(String id) {
+        QuarantinedEvent event = new QuarantinedEvent();
+        event.setEventId(id);
+        event.setEventType("user/unknown");
+        event.setPayload("{\"id\":\"" + id + "\",\"eventType\":\"user/unknown\",\"data\":{}}");
+        return event;
+    }
+
+    private static final class FakeQuarantine extends QuarantineRepository {
+        final Map<String, Integer> attempts = Collections.synchronizedMap(new HashMap<>());
+        final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public int recordFailure(String eventId, String eventType, String subject, String payload, String reason) {
+            return attempts.merge(eventId, 1, Integer::sum);
+        }
+
+        @Override
+        public boolean delete(String eventId) {
+            deleted.add(eventId);
+            return attempts.remove(eventId) != null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.function.events;
+
+import com.function.json.Json;
+import com.function.model.Role;
+import com.function.repository.RoleRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the batch consumer logic, with an in-memory role repository.
+ */
+public class UserEventBatchProcessorTest {
+
+    @Test
+    public void resolvesDefaultRoleOnceAndAssignsInOneBatch() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles);
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                userCreated("e1", 1), userCreated("e2", 2), userCreated("e3", 3)));
+
+        assertEquals(3, result.getProcessed());
+        assertEquals(1, roles.lookups);
+        assertEquals(1, roles.batches.size());
+        assertEquals(List.of(1L, 2L, 3L), roles.batches.get(0));
+    }
+
+    @Test
+    public void invalidAndUnknownEventsDoNotStopTheBatch() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles);
+
+        EventGridEventData noId = event("e2", EventTypes.USER_CREATED, "{\"version\":1,\"mask\":-1}");
+        EventGridEventData badJson = event("e3", EventTypes.USER_CREATED, "{\"id\":\"abc\",\"username\":\"x\"}");
+        EventGridEventData unknown = event("e4", "user/archived", "{}");
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                userCreated("e1", 1), noId, badJson, unknown, userCreated("e5", 5)));
+
+        assertEquals(2, result.getProcessed());
+        assertEquals(List.of("e2", "e3", "e4"), result.getSkipped());
+        assertEquals(List.of(1L, 5L), roles.batches.get(0));
+    }
+
+    @Test
+    public void failedAssignmentsAreReportedPerEvent() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        roles.failing.add(2L);
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles);
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                userCreated("e1", 1), userCreated("e2", 2), userCreated("e3", 3)));
+
+        assertEquals(2, result.getProcessed());
+        assertEquals(List.of("e2"), result.getFailed());
+    }
+
+    @Test
+    public void repeatedUserIsAssignedOnceAndEveryEventIsReported() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        roles.failing.add(2L);
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles);
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                userCreated("e1", 1), userCreated("e2", 2), userCreated("e3", 1), userCreated("e4", 2)));
+
+        assertEquals(List.of(1L, 2L), roles.batches.get(0));
+        assertEquals(2, result.getProcessed(), "e1 y e3");
+        assertEquals(List.of("e2", "e4"), result.getFailed());
+    }
+
+    @Test
+    public void partitionedBatchResolvesDefaultRoleOnceAcrossLanes() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles, new PartitionedPipeline(4));
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                userCreated("e1", 1), userCreated("e2", 2), userCreated("e3", 3), userCreated("e4", 4)));
+
+        assertEquals(4, result.getProcessed());
+        assertEquals(1, roles.lookups);
+        List<Long> assigned = new ArrayList<>();
+        roles.batches.forEach(assigned::addAll);
+        assigned.sort(null);
+        assertEquals(List.of(1L, 2L, 3L, 4L), assigned);
+    }
+
+    @Test
+    public void roleDeletionIsAppliedAsOneSetOperation() throws SQLException {
+        FakeRoleRepository roles = new FakeRoleRepository();
+        UserEventBatchProcessor processor = new UserEventBatchProcessor(roles);
+
+        UserEventBatchProcessor.Result result = processor.process(List.of(
+                event("r1", EventTypes.ROLE_DELETED, "{\"id\":3,\"name\":\"ADMIN\"}"), userCreated("e1", 1)));
+
+        assertEquals(2, result.getProcessed());
+        assertEquals(1, roles.lookups);
+        assertEquals(List.of(List.of(3L, 7L)), roles.removals, "rol eliminado y rol por defecto");
+        assertEquals(List.of(1L), roles.batches.get(0));
+    }
+
+    private static EventGridEventData userCreated(String id, long userId) {
+        return event(id, EventTypes.USER_CREATED, Json.compact().toJson(new EntityChange(userId, 1, EntityChange.ALL)));
+    }
+
+    private static EventGridEventData event(String id, String type, String data) {
+        return Json.compact().fromJson("{\"id\":\"" + id + "\",\"eventType\":\"" + type + "\",\"data\":" + data + "}",
+                EventGridEventData.class);
+    }
+
+    private static final class FakeRoleRepository extends RoleRepository {
+        final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> failing = new ArrayList<>();
+        final List<List<Long>> removals = new ArrayList<>();
+        int lookups;
+
+        @Override
+        public Optional<Role> findByName(String name) {
+            lookups++;
+            Role role = new Role(name, "Rol por defecto");
+            role.setIdValue(7);
+            return Optional.of(role);
+        }
+
+        @Override
+        public Set<Long> assignRoleToUsers(long roleId, List<Long> userIds) {
+            batches.add(new ArrayList<>(userIds));
+            Set<Long> failed = new HashSet<>();
+            for (Long userId : userIds) {
+                if (failing.contains(userId)) {
+                    failed.add(userId);
+                }
+            }
+            return failed;
+        }
+
+        @Override
+        public int removeRoleFromAllUsers(long roleId, long defaultRoleId) {
+            removals.add(List.of(roleId, defaultRoleId));
+            return 0;
+        }
+    }
+}
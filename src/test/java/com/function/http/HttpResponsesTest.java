@@ -0,0 +1,121 @@
+package com.function.http;
+
+import com.function.HttpResponseMessageMock;
+import com.function.cache.SerializedResponseCache.CachedResponse;
+import com.microsoft.azure.functions.HttpRequestMessage;
+import com.microsoft.azure.functions.HttpResponseMessage;
+import com.microsoft.azure.functions.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit test for conditional and compressed responses built from cached bodies.
+ */
+public class HttpResponsesTest {
+    // Por debajo y por encima del umbral de compresión por defecto (1024 bytes)
+    private static final CachedResponse SMALL = body(100);
+    private static final CachedResponse LARGE = body(2000);
+
+    @Test
+    public void smallBodyIsSentUncompressedWithTheContentETag() {
+        HttpResponseMessage response = HttpResponses.cached(request(Map.of("Accept-Encoding", "gzip")),
+                HttpStatus.OK, SMALL);
+
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertEquals(SMALL.getETag(), response.getHeader("ETag"));
+        assertNull(response.getHeader("Content-Encoding"), "por debajo del umbral no se comprime");
+        assertArrayEquals(SMALL.getJson(), (byte[]) response.getBody());
+    }
+
+    @Test
+    public void largeBodyIsGzippedWithItsOwnETag() throws IOException {
+        HttpResponseMessage response = HttpResponses.cached(request(Map.of("Accept-Encoding", "br, gzip")),
+                HttpStatus.OK, LARGE);
+
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(HttpResponses.gzipETag(LARGE.getETag()), response.getHeader("ETag"));
+        assertTrue(response.getHeader("ETag").endsWith("-gz\""));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream((byte[]) response.getBody()))) {
+            assertArrayEquals(LARGE.getJson(), in.readAllBytes());
+        }
+
+        HttpResponseMessage refused = HttpResponses.cached(request(Map.of("Accept-Encoding", "gzip;q=0")),
+                HttpStatus.OK, LARGE);
+        assertNull(refused.getHeader("Content-Encoding"), "gzip con q=0 no se acepta");
+        assertEquals(LARGE.getETag(), refused.getHeader("ETag"));
+    }
+
+    @Test
+    public void matchingIfNoneMatchAnswersNotModifiedWithoutBody() {
+        HttpResponseMessage response = HttpResponses.cached(request(Map.of("If-None-Match", SMALL.getETag())),
+                HttpStatus.OK, SMALL);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+        assertEquals(SMALL.getETag(), response.getHeader("ETag"));
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void ifNoneMatchUsesWeakComparison() {
+        assertTrue(HttpResponses.matchesIfNoneMatch(request(Map.of("If-None-Match", "W/" + SMALL.getETag())),
+                SMALL.getETag()));
+        assertTrue(HttpResponses.matchesIfNoneMatch(request(Map.of("If-None-Match", "\"otro\", " + SMALL.getETag())),
+                SMALL.getETag()), "cualquiera de la lista");
+        assertTrue(HttpResponses.matchesIfNoneMatch(request(Map.of("If-None-Match", "*")), SMALL.getETag()));
+        assertFalse(HttpResponses.matchesIfNoneMatch(request(Map.of("If-None-Match", "\"otro\"")), SMALL.getETag()));
+        assertFalse(HttpResponses.matchesIfNoneMatch(request(Map.of()), SMALL.getETag()));
+    }
+
+    @Test
+    public void gzipAndIdentityETagsValidateEachOther() {
+        String identity = LARGE.getETag();
+        String gzip = HttpResponses.gzipETag(identity);
+
+        // El cliente guardó la versión sin comprimir y ahora acepta gzip
+        HttpResponseMessage upgraded = HttpResponses.cached(
+                request(Map.of("If-None-Match", identity, "Accept-Encoding", "gzip")), HttpStatus.OK, LARGE);
+        assertEquals(HttpStatus.NOT_MODIFIED, upgraded.getStatus());
+        assertEquals(gzip, upgraded.getHeader("ETag"));
+
+        // El cliente guardó la versión gzip y ya no la acepta
+        HttpResponseMessage downgraded = HttpResponses.cached(request(Map.of("If-None-Match", "W/" + gzip)),
+                HttpStatus.OK, LARGE);
+        assertEquals(HttpStatus.NOT_MODIFIED, downgraded.getStatus());
+        assertEquals(identity, downgraded.getHeader("ETag"));
+    }
+
+    @Test
+    public void onlyOkResponsesBecomeNotModified() {
+        HttpResponseMessage response = HttpResponses.cached(request(Map.of("If-None-Match", SMALL.getETag())),
+                HttpStatus.CREATED, SMALL);
+
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        assertArrayEquals(SMALL.getJson(), (byte[]) response.getBody());
+    }
+
+    private static CachedResponse body(int chars) {
+        return CachedResponse.of(("{\"note\":\"" + "x".repeat(chars) + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HttpRequestMessage<Optional<String>> request(Map<String, String> headers) {
+        HttpRequestMessage<Optional<String>> request = mock(HttpRequestMessage.class);
+        doReturn(new HashMap<>(headers)).when(request).getHeaders();
+        doReturn(new HashMap<String, String>()).when(request).getQueryParameters();
+        doAnswer(invocation -> new HttpResponseMessageMock.HttpResponseMessageBuilderMock()
+                .status((HttpStatus) invocation.getArguments()[0]))
+                .when(request).createResponseBuilder(any(HttpStatus.class));
+        return request;
+    }
+}
@@ -0,0 +1,100 @@
+package com.function.index;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the in-memory role membership index.
+ */
+public class RoleMembershipIndexTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private RoleMembershipIndex index() {
+        return new RoleMembershipIndex(builder -> {
+            loads.incrementAndGet();
+            builder.member(1, 10);
+            builder.member(2, 10);
+            builder.member(3, 10);
+            builder.member(2, 20);
+            builder.activeUser(1);
+            builder.activeUser(2);
+        }, 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void answersMembershipAndCountsFromOneLoad() throws Exception {
+        RoleMembershipIndex index = index();
+
+        assertTrue(index.isMember(2, 20));
+        assertFalse(index.isMember(1, 20));
+        assertEquals(3, index.countMembers(10, false));
+        assertEquals(2, index.countMembers(10, true));
+        assertArrayEquals(new long[] { 1, 2 }, index.members(10, true, 100));
+        assertArrayEquals(new long[] { 1, 2 }, index.members(10, false, 2));
+        assertArrayEquals(new long[] { 10, 20 }, index.rolesOf(2));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void appliesIncrementalChanges() throws Exception {
+        RoleMembershipIndex index = index();
+        index.countMembers(10, false);
+
+        index.roleAssigned(4, 10);
+        index.userSaved(4, true);
+        index.roleRemoved(1, 10);
+        assertArrayEquals(new long[] { 2, 4 }, index.members(10, true, 100));
+
+        index.roleDeleted(10);
+        assertEquals(0, index.countMembers(10, false));
+        assertArrayEquals(new long[] { 20 }, index.rolesOf(2));
+
+        index.userDeleted(2);
+        assertFalse(index.isMember(2, 20));
+        assertEquals(0, index.countMembers(20, false));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void reloadsAfterInvalidate() throws Exception {
+        RoleMembershipIndex index = index();
+        index.roleAssigned(9, 30);
+        assertFalse(index.isMember(9, 30));
+
+        index.invalidate();
+        assertEquals(3, index.countMembers(10, false));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void expiredIndexIsRefreshedInBackground() throws Exception {
+        RoleMembershipIndex index = new RoleMembershipIndex(builder -> {
+            loads.incrementAndGet();
+            builder.member(1, 10);
+        }, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(index.isMember(1, 10));
+        assertTrue(index.isMember(1, 10));
+        for (int i = 0; i < 100 && loads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(loads.get() >= 2);
+    }
+
+    @Test
+    public void failedLoadIsNotRetriedOnEveryQuery() {
+        RoleMembershipIndex index = new RoleMembershipIndex(builder -> {
+            loads.incrementAndGet();
+            throw new SQLException("sin conexión");
+        }, 1, TimeUnit.MINUTES);
+
+        assertThrows(SQLException.class, () -> index.isMember(1, 10));
+        assertThrows(SQLException.class, () -> index.countMembers(10, false));
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,188 @@
+package com.function.json;
+
+import com.function.events.EntityChange;
+import com.function.events.EventGridEventData;
+import com.function.events.PublishStamp;
+import com.function.graphql.GraphQLRequest;
+import com.function.model.Role;
+import com.function.model.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for the hand-written Gson type adapters.
+ */
+public class JsonTypeAdaptersTest {
+    private final Gson gson = Json.compact();
+
+    @Test
+    public void userOutputKeepsWireFormat() {
+        User user = new User("jperez", "jperez@example.com", "Juan", "Pérez");
+        user.setId("42");
+        Role role = new Role("ADMIN", null);
+        role.setId("1");
+        user.addRole(role);
+
+        assertEquals("{\"id\":\"42\",\"username\":\"jperez\",\"email\":\"jperez@example.com\","
+                + "\"firstName\":\"Juan\",\"lastName\":\"Pérez\",\"isActive\":true,"
+                + "\"roles\":[{\"id\":\"1\",\"name\":\"ADMIN\",\"isActive\":true}]}",
+                gson.toJson(user));
+    }
+
+    @Test
+    public void reflectiveGsonKeepsIdWireFormat() {
+        Role role = new Role("ADMIN", null);
+        role.setId("1");
+
+        String json = new Gson().toJson(role);
+
+        assertTrue(json.startsWith("{\"id\":\"1\","), json);
+        assertFalse(json.contains("idValue"), json);
+        assertFalse(new Gson().toJson(new Role("ADMIN", null)).contains("\"id\""));
+        assertEquals(1L, new Gson().fromJson("{\"id\":\"1\"}", Role.class).getIdValue());
+    }
+
+    @Test
+    public void newEntitiesHaveNoId() {
+        User user = new User();
+        Role role = new Role("ADMIN", null);
+
+        assertFalse(user.hasId());
+        assertNull(user.getId());
+        assertNull(role.getId());
+        assertEquals("{\"username\":\"ana\",\"isActive\":true,\"roles\":[]}",
+                gson.toJson(new User("ana", null, null, null)));
+    }
+
+    @Test
+    public void userReadRejectsNonNumericId() {
+        assertThrows(JsonSyntaxException.class,
+                () -> gson.fromJson("{\"id\":\"abc\",\"username\":\"ana\"}", User.class));
+    }
+
+    @Test
+    public void userReadAcceptsNumericIdAndUnknownFields() {
+        User user = gson.fromJson(
+                "{\"id\":7,\"username\":\"ana\",\"active\":false,\"extra\":{\"a\":[1,2]},"
+                        + "\"roles\":[{\"id\":\"3\",\"name\":\"USER\"}]}",
+                User.class);
+
+        assertEquals("7", user.getId());
+        assertEquals("ana", user.getUsername());
+        assertFalse(user.isActive());
+        assertEquals(1, user.getRoles().size());
+        assertEquals("USER", user.getRoles().get(0).getName());
+    }
+
+    @Test
+    public void graphQLRequestKeepsVariables() {
+        GraphQLRequest request = gson.fromJson(
+                "{\"query\":\"query($id: ID!) { user(id: $id) { id } }\",\"variables\":{\"id\":\"5\"}}",
+                GraphQLRequest.class);
+
+        assertEquals("5", request.getVariables().get("id"));
+        assertNull(request.getOperationName());
+    }
+
+    @Test
+    public void eventDataIsDecodedByEventType() {
+        EventGridEventData event = gson.fromJson(
+                "{\"id\":\"e1\",\"eventType\":\"user/updated\",\"subject\":\"users/9\","
+                        + "\"data\":{\"id\":9,\"version\":1700000000000,\"mask\":3},\"dataVersion\":\"1.0\"}",
+                EventGridEventData.class);
+
+        assertEquals("user/updated", event.eventType);
+        assertTrue(event.data instanceof EntityChange);
+        EntityChange change = (EntityChange) event.data;
+        assertEquals(9, change.getId());
+        assertEquals(1700000000000L, change.getChangedAt(), "el nombre anterior del campo se sigue leyendo");
+        assertTrue(change.changed(EntityChange.USERNAME));
+        assertTrue(change.changed(EntityChange.EMAIL));
+        assertFalse(change.changed(EntityChange.ACTIVE));
+        assertEquals("1.0", event.dataVersion);
+
+        EventGridEventData roleEvent = gson.fromJson(
+                "{\"data\":{\"id\":3,\"version\":5,\"mask\":-1},\"eventType\":\"role/deleted\",\"id\":\"e2\"}",
+                EventGridEventData.class);
+        assertTrue(roleEvent.data instanceof EntityChange);
+        assertEquals(3, ((EntityChange) roleEvent.data).getId());
+    }
+
+    @Test
+    public void fullPayloadEventsAreReadAsChangesOfAllFields() {
+        EventGridEventData event = gson.fromJson(
+                "{\"id\":\"e1\",\"eventType\":\"user/created\","
+                        + "\"data\":{\"id\":\"9\",\"username\":\"luis\",\"roles\":[{\"id\":1,\"name\":\"USER\"}]}}",
+                EventGridEventData.class);
+
+        EntityChange change = (EntityChange) event.data;
+        assertEquals(9, change.getId());
+        assertEquals(EntityChange.ALL, change.getChangeMask());
+    }
+
+    @Test
+    public void entityChangeIsSmallerThanTheFullUser() {
+        User user = new User("jperez", "jperez@example.com", "Juan", "Pérez");
+        user.setIdValue(42);
+        user.addRole(new Role("ADMIN", "Administrador"));
+
+        String full = gson.toJson(user);
+        String compact = gson.toJson(new EntityChange(42, 1700000000000L, EntityChange.ALL));
+
+        assertEquals("{\"id\":42,\"changedAt\":1700000000000,\"mask\":-1}", compact);
+        assertTrue(compact.length() < full.length());
+    }
+
+    @Test
+    public void publishStampIsAddedToEachEventAndReadBack() {
+        long before = System.currentTimeMillis();
+        String batch = "[{\"id\":\"e1\",\"eventType\":\"user/created\",\"data\":"
+                + PublishStamp.stamp("{\"id\":7,\"version\":1,\"mask\":-1}") + "},"
+                + "{\"id\":\"e2\",\"eventType\":\"user/created\",\"data\":"
+                + PublishStamp.stamp(" {\"id\":8,\"version\":1,\"mask\":-1}\n") + "}]";
+
+        EventGridEventData[] events = gson.fromJson(batch, EventGridEventData[].class);
+
+        EntityChange first = (EntityChange) events[0].data;
+        EntityChange second = (EntityChange) events[1].data;
+        assertEquals(7, first.getId());
+        assertTrue(first.getPublishedAt() >= before);
+        assertTrue(second.getSequence() > first.getSequence(), "la secuencia crece con cada evento");
+        assertEquals(first.getSequence(), gson.fromJson(gson.toJson(first), EntityChange.class).getSequence());
+        assertEquals("no es json", PublishStamp.stamp("no es json"));
+        assertTrue(PublishStamp.stamp("{}").startsWith("{\"publishedAt\":"), "objeto vacío, sin coma");
+    }
+
+    @Test
+    public void unknownEventDataIsSkipped() {
+        EventGridEventData event = gson.fromJson(
+                "{\"id\":\"e1\",\"eventType\":\"user/archived\",\"data\":{\"a\":[1,{\"b\":2}]},\"topic\":\"t\"}",
+                EventGridEventData.class);
+
+        assertNull(event.data);
+        assertNull(event.dataError);
+        assertEquals("t", event.topic);
+    }
+
+    @Test
+    public void invalidEventDataDoesNotInvalidateTheBatch() {
+        EventGridEventData[] events = gson.fromJson("["
+                + "{\"id\":\"e1\",\"eventType\":\"user/created\",\"data\":{\"id\":\"abc\",\"roles\":[{\"id\":1}]},\"subject\":\"s1\"},"
+                + "{\"id\":\"e2\",\"eventType\":\"role/deleted\",\"data\":\"no es un objeto\",\"subject\":\"s2\"},"
+                + "{\"id\":\"e3\",\"eventType\":\"user/created\",\"data\":{\"id\":\"7\",\"username\":\"ana\"}}]",
+                EventGridEventData[].class);
+
+        assertEquals(3, events.length);
+        assertNull(events[0].data);
+        assertNotNull(events[0].dataError);
+        assertEquals("s1", events[0].subject);
+        assertNull(events[1].data);
+        assertNotNull(events[1].dataError);
+        assertEquals("s2", events[1].subject);
+        assertTrue(events[2].data instanceof EntityChange);
+        assertEquals(7, ((EntityChange) events[2].data).getId());
+    }
+}
@@ -0,0 +1,48 @@
+package com.function.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for interval export of the instance metrics.
+ */
+public class MetricsExporterTest {
+
+    @Test
+    public void histogramPercentilesCoverOnlyTheLastInterval() {
+        Histogram lag = Metrics.histogram("test.export.lag.ms");
+        Counter events = Metrics.counter("test.export.events");
+        MetricsExporter exporter = new MetricsExporter();
+
+        for (int i = 0; i < 99; i++) {
+            lag.record(10);
+        }
+        lag.record(5000);
+        events.add(100);
+        Map<String, Double> first = export(exporter);
+
+        assertEquals(100.0, first.get("test.export.lag.ms.count"));
+        assertEquals(15.0, first.get("test.export.lag.ms.p50"), "límite del bucket de 10");
+        assertEquals(15.0, first.get("test.export.lag.ms.p99"));
+        assertEquals(8191.0, first.get("test.export.lag.ms.max"));
+        assertEquals(100.0, first.get("test.export.events.delta"));
+
+        Map<String, Double> idle = export(exporter);
+        assertFalse(idle.containsKey("test.export.lag.ms.p99"), "sin valores en el intervalo no se envía");
+        assertEquals(0.0, idle.get("test.export.events.delta"));
+
+        lag.record(3000);
+        Map<String, Double> next = export(exporter);
+        assertEquals(1.0, next.get("test.export.lag.ms.count"));
+        assertEquals(4095.0, next.get("test.export.lag.ms.p99"));
+    }
+
+    private static Map<String, Double> export(MetricsExporter exporter) {
+        Map<String, Double> values = new HashMap<>();
+        exporter.export(values::put);
+        return values;
+    }
+}
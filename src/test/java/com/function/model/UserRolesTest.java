@@ -0,0 +1,86 @@
+package com.function.model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit test for user roles backed by the shared role registry.
+ */
+public class UserRolesTest {
+
+    @Test
+    public void usersShareCanonicalRoleInstances() {
+        User ana = new User("ana", null, null, null);
+        User luis = new User("luis", null, null, null);
+        ana.addRole(role(9001, "AUDITOR"));
+        luis.addRole(role(9001, "AUDITOR"));
+
+        assertSame(ana.getRoles().get(0), luis.getRoles().get(0));
+        assertTrue(ana.getRoles().get(0).isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> ana.getRoles().get(0).setName("OTRO"));
+    }
+
+    @Test
+    public void addHasAndRemoveById() {
+        User user = new User("ana", null, null, null);
+        user.addRole(role(9002, "LECTOR"));
+        user.addRole(role(9002, "LECTOR"));
+        user.addRole(role(9003, "EDITOR"));
+
+        assertEquals(2, user.getRoles().size());
+        assertTrue(user.hasRole(9002));
+        assertTrue(user.hasRole("9003"));
+        assertFalse(user.hasRole(9999));
+        assertThrows(IllegalArgumentException.class, () -> user.hasRole("ADMIN"));
+        assertThrows(IllegalArgumentException.class, () -> user.setId("ana"));
+
+        user.removeRole(role(9002, "LECTOR"));
+        assertFalse(user.hasRole(9002));
+        assertEquals(1, user.getRoles().size());
+    }
+
+    @Test
+    public void roleChangesAreVisibleToAllUsers() {
+        User user = new User("ana", null, null, null);
+        user.addRole(role(9004, "SOPORTE"));
+
+        Role renamed = role(9004, "SOPORTE_N2");
+        RoleRegistry.refresh(renamed);
+
+        assertEquals("SOPORTE_N2", user.getRoles().get(0).getName());
+    }
+
+    @Test
+    public void rolesWithoutIdAreIgnored() {
+        User user = new User("ana", null, null, null);
+        user.addRole(new Role("SIN_ID", null));
+
+        assertTrue(user.getRoles().isEmpty());
+    }
+
+    @Test
+    public void evictedRolesDisappearFromUsers() {
+        User user = new User("ana", null, null, null);
+        user.addRole(role(9005, "TEMPORAL"));
+        user.addRole(role(9006, "FIJO"));
+
+        RoleRegistry.evict(9005);
+
+        assertFalse(user.hasRole(9005));
+        assertEquals(1, user.getRoles().size());
+        assertEquals("FIJO", user.getRoles().get(0).getName());
+        assertEquals(-1, RoleRegistry.ordinalOf(9005));
+    }
+
+    @Test
+    public void canonicalRejectsRolesWithoutId() {
+        assertThrows(IllegalArgumentException.class, () -> RoleRegistry.canonical(new Role("SIN_ID", null)));
+        assertThrows(IllegalArgumentException.class, () -> RoleRegistry.canonical(null));
+    }
+
+    private static Role role(long id, String name) {
+        Role role = new Role(name, "Rol " + name);
+        role.setIdValue(id);
+        return role;
+    }
+}
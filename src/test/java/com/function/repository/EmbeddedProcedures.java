@@ -0,0 +1,85 @@
+package com.function.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+
+/**
+ * Funciones de base de datos de Oracle reimplementadas en Java para la base
+ * embebida H2 de las pruebas, donde se registran como alias (ver
+ * sql/h2 en los recursos de prueba). Cada método hace lo mismo que la función Oracle del mismo nombre;
+ * H2 pasa como primer argumento la conexión de la sesión que las llama.
+ */
+public final class EmbeddedProcedures {
+
+    private EmbeddedProcedures() {
+    }
+
+    /**
+     * ASSIGN_DEFAULT_ROLE (sql/assign_default_role.sql)
+     */
+    public static long assignDefaultRole(Connection conn, long userId, String roleName, String description)
+            throws SQLException {
+        long roleId;
+        try (PreparedStatement select = conn.prepareStatement("SELECT ID FROM ROLES WHERE NAME = ?")) {
+            select.setString(1, roleName);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    roleId = rs.getLong(1);
+                } else {
+                    roleId = insertRole(conn, roleName, description);
+                }
+            }
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Otra sesión creó el rol al mismo tiempo (DUP_VAL_ON_INDEX en Oracle)
+            roleId = findRole(conn, roleName);
+        }
+
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT 1 FROM USER_ROLES WHERE USER_ID = ? AND ROLE_ID = ?")) {
+            select.setLong(1, userId);
+            select.setLong(2, roleId);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    return roleId;
+                }
+            }
+        }
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO USER_ROLES (USER_ID, ROLE_ID) VALUES (?, ?)")) {
+            insert.setLong(1, userId);
+            insert.setLong(2, roleId);
+            insert.executeUpdate();
+        }
+        return roleId;
+    }
+
+    private static long findRole(Connection conn, String roleName) throws SQLException {
+        try (PreparedStatement select = conn.prepareStatement("SELECT ID FROM ROLES WHERE NAME = ?")) {
+            select.setString(1, roleName);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No se encontró el rol: " + roleName);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private static long insertRole(Connection conn, String roleName, String description) throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO ROLES (NAME, DESCRIPTION) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            insert.setString(1, roleName);
+            insert.setString(2, description);
+            insert.executeUpdate();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No se obtuvo el ID del rol creado: " + roleName);
+                }
+                return keys.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.function.repository;
+
+import com.function.OracleDBConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test of the one-call default role assignment against the embedded H2 database.
+ */
+public class RoleRepositoryEmbeddedTest {
+    private static final String URL = "jdbc:h2:mem:roles;MODE=Oracle;DB_CLOSE_DELAY=-1";
+
+    @BeforeAll
+    public static void createSchema() throws SQLException, IOException {
+        OracleDBConnection.setConnectionSource(() -> DriverManager.getConnection(URL));
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE ROLES (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "NAME VARCHAR(100) NOT NULL UNIQUE, DESCRIPTION VARCHAR(200), ACTIVE BOOLEAN DEFAULT TRUE)");
+            stmt.execute("CREATE TABLE USER_ROLES (USER_ID BIGINT NOT NULL, ROLE_ID BIGINT NOT NULL, "
+                    + "PRIMARY KEY (USER_ID, ROLE_ID))");
+            stmt.execute(resource("/sql/h2/assign_default_role.sql"));
+        }
+    }
+
+    @AfterAll
+    public static void dropSchema() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+        OracleDBConnection.setConnectionSource(null);
+    }
+
+    @Test
+    public void createsDefaultRoleOnceAndAssignsIdempotently() throws SQLException {
+        RoleRepository repository = new RoleRepository();
+
+        long first = repository.assignDefaultRole(1, "USER", "Rol por defecto");
+        long second = repository.assignDefaultRole(2, "USER", "Rol por defecto");
+        long again = repository.assignDefaultRole(1, "USER", "Rol por defecto");
+
+        assertEquals(first, second);
+        assertEquals(first, again);
+        assertEquals(1, count("SELECT COUNT(*) FROM ROLES WHERE NAME = 'USER'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM USER_ROLES WHERE ROLE_ID = " + first));
+    }
+
+    @Test
+    public void findOrCreateByNameCreatesTheRoleOnce() throws SQLException {
+        RoleRepository repository = new RoleRepository();
+
+        long created = repository.findOrCreateByName("AUDITOR", "Auditoría").getIdValue();
+        long found = repository.findOrCreateByName("AUDITOR", "Auditoría").getIdValue();
+
+        assertEquals(created, found);
+        assertEquals(1, count("SELECT COUNT(*) FROM ROLES WHERE NAME = 'AUDITOR'"));
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String resource(String path) throws IOException {
+        try (InputStream in = RoleRepositoryEmbeddedTest.class.getResourceAsStream(path)) {
+            String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            // Sólo la sentencia, sin los comentarios
+            StringBuilder sql = new StringBuilder();
+            for (String line : script.split("\n")) {
+                if (!line.startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            return sql.toString().trim().replaceAll(";$", "");
+        }
+    }
+}
@@ -0,0 +1,4 @@
+-- Equivalente de ASSIGN_DEFAULT_ROLE (sql/assign_default_role.sql) para la base
+-- embebida H2 de las pruebas (ver OracleDBConnection.setConnectionSource). La
+-- lógica está en com.function.repository.EmbeddedProcedures.
+CREATE ALIAS IF NOT EXISTS ASSIGN_DEFAULT_ROLE FOR "com.function.repository.EmbeddedProcedures.assignDefaultRole";